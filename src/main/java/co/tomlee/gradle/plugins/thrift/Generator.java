@@ -18,14 +18,30 @@ package co.tomlee.gradle.plugins.thrift;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 
 public final class Generator implements Serializable {
 
+    /** Runs the thrift compiler. */
+    public static final String ENGINE_NATIVE = "native";
+
+    /**
+     * Generates Java in the Gradle daemon, falling back to the thrift
+     * compiler for IDLs or options it does not support.
+     */
+    public static final String ENGINE_INPROCESS = "inprocess";
+
     private final String name;
     private final List<String> options = new ArrayList<>();
     private Object out;
+    private Object srcjar;
+    private String engine = ENGINE_NATIVE;
+    private boolean docs = true;
+    private final List<String> roots = new ArrayList<>();
 
     public Generator() {
         this.name = null;
@@ -47,18 +63,94 @@ public final class Generator implements Serializable {
         this.out = out;
     }
 
+    /**
+     * Packs this generator's output into the given source archive instead
+     * of writing loose files into an output directory.
+     */
+    public void srcjar(Object srcjar) {
+        this.srcjar = srcjar;
+    }
+
+    /**
+     * Generates only the given services or types and whatever they refer
+     * to, transitively across includes. Names are as declared in the
+     * task's IDLs, or qualified by an included file, as in
+     * {@code shared.Foo}.
+     */
+    public void roots(String... roots) {
+        this.roots.addAll(Arrays.asList(roots));
+    }
+
+    public void engine(String engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Declares whether this generator copies doc comments into its output.
+     * If no generator does, semantic change detection ignores doc comments.
+     */
+    public void docs(boolean docs) {
+        this.docs = docs;
+    }
+
+    @Input
     public String getName() {
         return name;
     }
 
+    @Input
     public List<String> getOptions() {
         return options;
     }
 
+    @Input
+    public List<String> getRoots() {
+        return roots;
+    }
+
+    @Internal
+    public boolean isPruning() {
+        return !roots.isEmpty();
+    }
+
+    @Input
+    public String getEngine() {
+        return engine;
+    }
+
+    @Internal
+    public boolean isDocs() {
+        return docs;
+    }
+
+    @Internal
+    public boolean isInProcess() {
+        return ENGINE_INPROCESS.equals(engine);
+    }
+
+    /**
+     * The output directory, which is tracked as an output of the task
+     * rather than as an input of the generator.
+     */
+    @Internal
     public Object getOut() {
         return out;
     }
 
+    /**
+     * The source archive, which like the output directory is tracked as an
+     * output of the task.
+     */
+    @Internal
+    public Object getSrcjar() {
+        return srcjar;
+    }
+
+    @Internal
+    public boolean isSrcjar() {
+        return srcjar != null;
+    }
+
     @Override
     public int hashCode() {
         return name.hashCode();
@@ -70,7 +162,11 @@ public final class Generator implements Serializable {
             final Generator otherGenerator = (Generator) other;
             return name.equals(((Generator) other).name)
                     && options.equals(((Generator) other).options)
-                    && Objects.equals(out, ((Generator) other).out);
+                    && Objects.equals(out, ((Generator) other).out)
+                    && Objects.equals(srcjar, ((Generator) other).srcjar)
+                    && roots.equals(((Generator) other).roots)
+                    && engine.equals(((Generator) other).engine)
+                    && docs == ((Generator) other).docs;
         }
         return false;
     }
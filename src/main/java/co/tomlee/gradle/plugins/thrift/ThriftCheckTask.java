@@ -0,0 +1,227 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDefinition;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDocument;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftParseException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftParser;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.SourceTask;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.inject.Inject;
+
+/**
+ * Validates Thrift IDLs without running the thrift compiler.
+ *
+ * Every IDL is parsed in this JVM, which finds syntax errors, includes
+ * which do not resolve against the include path, and types which are
+ * defined twice in the same namespace.
+ */
+@CacheableTask
+public class ThriftCheckTask extends SourceTask {
+
+    private final ConfigurableFileCollection include;
+
+    private final ConfigurableFileCollection includeDependencies;
+
+    private final File gradleUserHome;
+
+    private final RegularFileProperty reportFile;
+
+    private final Property<Integer> maxParallelism;
+
+    @Inject
+    public ThriftCheckTask(final ObjectFactory objectFactory) {
+        this.include = objectFactory.fileCollection();
+        this.includeDependencies = objectFactory.fileCollection();
+        this.gradleUserHome = getProject().getGradle().getGradleUserHomeDir();
+        this.reportFile = objectFactory.fileProperty()
+                .convention(getProject().getLayout().getBuildDirectory().file("reports/thrift/" + getName() + ".txt"));
+        this.maxParallelism = objectFactory.property(Integer.class)
+                .convention(getProject().getGradle().getStartParameter().getMaxWorkerCount());
+    }
+
+    @TaskAction
+    public void check() throws IOException, InterruptedException {
+        final List<File> files = new ArrayList<>();
+        for (final File file : getSource().getFiles()) {
+            files.add(ThriftIncludeGraph.normalize(file));
+        }
+        Collections.sort(files);
+
+        final List<ThriftDocument> documents = new ArrayList<>();
+        final List<String> errors = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxParallelism.get(), files.size())));
+        try {
+            final List<Future<ThriftDocument>> futures = new ArrayList<>();
+            for (final File file : files) {
+                futures.add(executor.submit(new Callable<ThriftDocument>() {
+                    @Override
+                    public ThriftDocument call() throws Exception {
+                        return ThriftParser.parse(file);
+                    }
+                }));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    documents.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ThriftParseException) {
+                        errors.add(e.getCause().getMessage());
+                    } else if (e.getCause() instanceof IOException) {
+                        errors.add(files.get(i) + ": " + e.getCause());
+                    } else {
+                        throw new GradleException("Failed to parse " + files.get(i), e.getCause());
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        final List<File> includeDirs = new ArrayList<>();
+        for (final File dir : include.getFiles()) {
+            includeDirs.add(ThriftIncludeGraph.normalize(dir));
+        }
+        for (final File dir : ThriftDependencyIdls.forUserHome(gradleUserHome).resolve(includeDependencies)) {
+            includeDirs.add(ThriftIncludeGraph.normalize(dir));
+        }
+
+        //
+        // Types only clash when the files defining them generate into the
+        // same namespace for some language.
+        //
+        final Map<String, String> definedIn = new TreeMap<>();
+        for (final ThriftDocument document : documents) {
+            for (final String warning : document.getWarnings()) {
+                getLogger().warn(warning);
+            }
+            for (final ThriftDocument.Include inc : document.getIncludes()) {
+                if (ThriftProgram.resolveInclude(document.getFile(), inc.getPath(), includeDirs) == null) {
+                    errors.add(document.getFile() + ":" + inc.getLine() + ": Could not find include file " + inc.getPath());
+                }
+            }
+            final Map<String, String> namespaces = new TreeMap<>(document.getNamespaces());
+            if (namespaces.isEmpty()) {
+                namespaces.put("*", "");
+            }
+            for (final ThriftDefinition definition : document.getDefinitions()) {
+                if (!definition.getKind().isType() && definition.getKind() != ThriftDefinition.Kind.SERVICE) {
+                    continue;
+                }
+                for (final Map.Entry<String, String> namespace : namespaces.entrySet()) {
+                    final String key = namespace.getKey() + " " + namespace.getValue() + "." + definition.getName();
+                    final String location = document.getFile() + ":" + definition.getLine();
+                    final String previous = definedIn.get(key);
+                    if (previous == null) {
+                        definedIn.put(key, location);
+                    } else if (!previous.startsWith(document.getFile() + ":")) {
+                        errors.add(location + ": " + definition.getName() + " is already defined in namespace "
+                                + namespace.getKey() + " " + namespace.getValue() + " at " + previous);
+                        break;
+                    }
+                }
+            }
+        }
+
+        final File report = reportFile.get().getAsFile();
+        Files.createDirectories(report.getParentFile().toPath());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8))) {
+            for (final String error : errors) {
+                writer.println(error);
+            }
+        }
+
+        getLogger().info("Checked " + files.size() + " thrift IDLs");
+        if (!errors.isEmpty()) {
+            for (final String error : errors) {
+                getLogger().error(error);
+            }
+            throw new GradleException(errors.size() + " thrift IDL errors found; see " + report);
+        }
+    }
+
+    @Override
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public FileTree getSource() {
+        return super.getSource();
+    }
+
+    /**
+     * The directories searched for included IDLs.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public ConfigurableFileCollection getInclude() {
+        return include;
+    }
+
+    /**
+     * Archives whose IDLs are searched after {@link #getInclude()}.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getIncludeDependencies() {
+        return includeDependencies;
+    }
+
+    @OutputFile
+    public RegularFileProperty getReportFile() {
+        return reportFile;
+    }
+
+    /**
+     * The maximum number of IDLs parsed at once. Defaults to the value of
+     * {@code --max-workers}.
+     */
+    @Internal
+    public Property<Integer> getMaxParallelism() {
+        return maxParallelism;
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Probes thrift compilers for their version, once per build for each
+ * distinct binary.
+ *
+ * A binary is identified by its path, size and modification time, so
+ * replacing it in place is noticed by the next build.
+ */
+public abstract class ThriftCompilerService implements BuildService<BuildServiceParameters.None> {
+
+    public static final String NAME = "thriftCompiler";
+
+    private static final Logger LOGGER = Logging.getLogger(ThriftCompilerService.class);
+
+    private final ConcurrentMap<String, String> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the output of {@code thrift -version}.
+     *
+     * @param executable The command to run.
+     * @param file The binary the command resolves to, or null if it could not be found.
+     */
+    public String getVersion(String executable, File file) {
+        final String key = file == null
+                ? executable
+                : file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified();
+        String version = versions.get(key);
+        if (version == null) {
+            version = probe(executable);
+            final String existing = versions.putIfAbsent(key, version);
+            if (existing != null) {
+                version = existing;
+            }
+        }
+        return version;
+    }
+
+    private static String probe(String executable) {
+        try {
+            final Process p = new ProcessBuilder(Arrays.asList(executable, "-version"))
+                    .redirectErrorStream(true)
+                    .start();
+            final String output = read(p.getInputStream()).trim();
+            if (p.waitFor() != 0) {
+                LOGGER.info("Could not determine the version of " + executable + ": " + output);
+                return "unknown";
+            }
+            LOGGER.info("Using " + executable + ": " + output);
+            return output;
+        } catch (IOException | InterruptedException e) {
+            // The task will fail with a better message if it ever runs the compiler.
+            LOGGER.info("Could not determine the version of " + executable + ": " + e);
+            return "unknown";
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buf = new byte[1024];
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            out.write(buf, 0, n);
+        }
+        return out.toString(Charset.defaultCharset().name());
+    }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * Makes the IDLs shipped inside dependency archives available as include
+ * directories.
+ *
+ * Only the {@code .thrift} entries of an archive are extracted, into a
+ * directory named after the digest of the archive. Extraction happens
+ * once per archive content and is published by an atomic rename, so
+ * concurrent builds share the result, and an archive which has already
+ * been extracted costs one directory lookup.
+ */
+final class ThriftDependencyIdls {
+
+    private static final Logger LOGGER = Logging.getLogger(ThriftDependencyIdls.class);
+
+    private static final String EXTENSION = ".thrift";
+
+    /**
+     * Digests of the archives this daemon has seen, keyed by path, length
+     * and modification time, so unchanged archives are not read again.
+     */
+    private static final Map<String, String> DIGESTS = new ConcurrentHashMap<>();
+
+    private final File root;
+
+    ThriftDependencyIdls(File root) {
+        this.root = root;
+    }
+
+    /** The cache shared by every build run with the given Gradle user home. */
+    static ThriftDependencyIdls forUserHome(File gradleUserHome) {
+        return new ThriftDependencyIdls(new File(gradleUserHome, "caches/thrift-plugin/idl"));
+    }
+
+    /**
+     * Returns the include directories for the given dependency files, in
+     * order. Directories are used as they are; archives which contain no
+     * IDLs contribute nothing.
+     */
+    List<File> resolve(Iterable<File> dependencies) throws IOException {
+        final List<File> dirs = new ArrayList<>();
+        for (final File dependency : dependencies) {
+            if (dependency.isDirectory()) {
+                dirs.add(dependency);
+            } else if (dependency.isFile()) {
+                final File dir = extract(dependency);
+                final String[] children = dir.list();
+                if (children != null && children.length > 0) {
+                    dirs.add(dir);
+                }
+            }
+        }
+        return dirs;
+    }
+
+    private File extract(File archive) throws IOException {
+        final File dir = new File(root, digest(archive));
+        if (dir.isDirectory()) {
+            return dir;
+        }
+        final Path tmp = new File(new File(root, "tmp"), UUID.randomUUID().toString()).toPath();
+        Files.createDirectories(tmp);
+        int count = 0;
+        try {
+            try (ZipFile zip = new ZipFile(archive)) {
+                for (final Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                    final ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !entry.getName().endsWith(EXTENSION)) {
+                        continue;
+                    }
+                    final Path target = tmp.resolve(entry.getName()).normalize();
+                    if (!target.startsWith(tmp)) {
+                        throw new IOException("Refusing to extract " + entry.getName() + " outside of " + tmp);
+                    }
+                    Files.createDirectories(target.getParent());
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        Files.copy(in, target);
+                    }
+                    count++;
+                }
+            }
+            try {
+                Files.move(tmp, dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                LOGGER.info("Extracted " + count + " thrift IDLs from " + archive);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Another build extracted the same archive first.
+                ThriftOutputCache.deleteTree(tmp);
+            }
+        } catch (IOException | RuntimeException e) {
+            ThriftOutputCache.deleteTree(tmp);
+            throw new IOException("Could not extract thrift IDLs from " + archive, e);
+        }
+        return dir;
+    }
+
+    private static String digest(File archive) throws IOException {
+        final String stamp = archive.getAbsolutePath() + "\t" + archive.length() + "\t" + archive.lastModified();
+        String digest = DIGESTS.get(stamp);
+        if (digest == null) {
+            digest = ThriftOutputCache.hash(archive);
+            DIGESTS.put(stamp, digest);
+        }
+        return digest;
+    }
+}
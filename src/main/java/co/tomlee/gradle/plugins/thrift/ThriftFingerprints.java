@@ -0,0 +1,134 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftLexer;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftParseException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftToken;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fingerprints IDLs by their token stream, so that edits to whitespace and
+ * comments, which cannot change what thrift generates, are recognized.
+ *
+ * Doc comments are only ignored on request, since most generators copy
+ * them into their output.
+ */
+final class ThriftFingerprints {
+
+    private final Map<File, String> fingerprints = new TreeMap<>();
+
+    public static ThriftFingerprints load(File file) {
+        final ThriftFingerprints result = new ThriftFingerprints();
+        if (!file.isFile()) {
+            return result;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    result.fingerprints.put(new File(line.substring(tab + 1)), line.substring(0, tab));
+                }
+            }
+        } catch (IOException e) {
+            // Without fingerprints every change counts, which is merely slower.
+            result.fingerprints.clear();
+        }
+        return result;
+    }
+
+    public void save(File file) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (final Map.Entry<File, String> e : fingerprints.entrySet()) {
+                writer.write(e.getValue() + "\t" + e.getKey().getPath() + "\n");
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Fingerprints the IDL and records the result.
+     *
+     * @return Whether the IDL has the same fingerprint as last recorded.
+     */
+    public boolean update(File file, boolean includeDocs) {
+        final String fingerprint = compute(file, includeDocs);
+        if (fingerprint == null) {
+            fingerprints.remove(file);
+            return false;
+        }
+        return fingerprint.equals(fingerprints.put(file, fingerprint));
+    }
+
+    public void remove(File file) {
+        fingerprints.remove(file);
+    }
+
+    public void clear() {
+        fingerprints.clear();
+    }
+
+    /**
+     * Returns the fingerprint of an IDL, or null if it cannot be read or
+     * tokenized, in which case it must be treated as changed.
+     */
+    static String compute(File file, boolean includeDocs) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            for (final ThriftToken token : ThriftLexer.tokenize(file, text)) {
+                if (token.getKind() == ThriftToken.Kind.DOC_COMMENT && !includeDocs) {
+                    continue;
+                }
+                // Length-prefix each token, so that no two streams digest alike.
+                final byte[] bytes = token.getText().getBytes(StandardCharsets.UTF_8);
+                digest.update((byte) token.getKind().ordinal());
+                digest.update(String.valueOf(bytes.length).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) ':');
+                digest.update(bytes);
+            }
+        } catch (IOException | ThriftParseException e) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder(includeDocs ? "d:" : "n:");
+        for (final byte b : digest.digest()) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+}
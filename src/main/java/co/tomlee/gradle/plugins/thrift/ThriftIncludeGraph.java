@@ -0,0 +1,361 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The include relationships between IDL files.
+ *
+ * Files are scanned with a lightweight pattern match rather than a full
+ * parse, and the result for each file is reused for as long as its length
+ * and modification time are unchanged. Includes are resolved by
+ * {@link ThriftProgram#resolveInclude}, the way the thrift compiler and
+ * the rest of the plugin resolve them. Since that depends on which
+ * other files exist, includes which did not resolve are resolved again on
+ * every rescan, and all of them are once the set of sources or of IDLs in
+ * the include directories changes.
+ */
+final class ThriftIncludeGraph {
+
+    private static final Pattern COMMENT = Pattern.compile("//[^\\n]*|#[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+    private static final String FORMAT = "3";
+    private static final Pattern INCLUDE = Pattern.compile("(?<![\\w.])include\\s+[\"']([^\"']+)[\"']");
+
+    private static final class Entry {
+
+        private final long length;
+        private final long lastModified;
+        /** The include paths as written. */
+        private final List<String> paths;
+        /** What each path resolved to, or null where it did not. */
+        private final List<File> resolved;
+        /** The files included, in order. */
+        private final List<File> includes = new ArrayList<>();
+        private boolean unresolved;
+
+        private Entry(long length, long lastModified, List<String> paths, List<File> resolved) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.paths = paths;
+            this.resolved = resolved;
+            for (final File include : resolved) {
+                if (include == null) {
+                    unresolved = true;
+                } else {
+                    includes.add(include);
+                }
+            }
+        }
+    }
+
+    private final List<File> includeDirs;
+    private final Map<File, Entry> entries;
+    /** Identifies the sources and the IDLs in the include directories which the includes were resolved against. */
+    private final String layout;
+
+    private ThriftIncludeGraph(List<File> includeDirs, Map<File, Entry> entries, String layout) {
+        this.includeDirs = includeDirs;
+        this.entries = entries;
+        this.layout = layout;
+    }
+
+    public static File normalize(File file) {
+        return ThriftProgram.normalize(file);
+    }
+
+    /**
+     * Loads a graph saved by {@link #save(File)}, or returns an empty graph
+     * if there is none or it was built against different include directories.
+     */
+    public static ThriftIncludeGraph load(File file, List<File> includeDirs) {
+        final List<File> dirs = new ArrayList<>();
+        for (final File dir : includeDirs) {
+            dirs.add(normalize(dir));
+        }
+        final Map<File, Entry> entries = new LinkedHashMap<>();
+        String layout = "";
+        if (file.isFile()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+                final List<File> savedDirs = new ArrayList<>();
+                final Map<File, String[]> headers = new LinkedHashMap<>();
+                final Map<File, List<String>> paths = new HashMap<>();
+                final Map<File, List<File>> includes = new HashMap<>();
+                File current = null;
+                boolean versioned = false;
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    if (line.equals("V " + FORMAT)) {
+                        versioned = true;
+                    } else if (line.startsWith("L ")) {
+                        layout = line.substring(2);
+                    } else if (line.startsWith("P ")) {
+                        savedDirs.add(new File(line.substring(2)));
+                    } else if (line.startsWith("F ")) {
+                        final String[] fields = line.split(" ", 4);
+                        current = new File(fields[3]);
+                        headers.put(current, fields);
+                        paths.put(current, new ArrayList<String>());
+                        includes.put(current, new ArrayList<File>());
+                    } else if (line.startsWith("I ") && current != null) {
+                        final String[] fields = line.substring(2).split("\t", 2);
+                        paths.get(current).add(fields[0]);
+                        includes.get(current).add(fields[1].isEmpty() ? null : new File(fields[1]));
+                    }
+                }
+                for (final Map.Entry<File, String[]> e : headers.entrySet()) {
+                    final String[] fields = e.getValue();
+                    entries.put(e.getKey(), new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            paths.get(e.getKey()), includes.get(e.getKey())));
+                }
+                if (!versioned || !savedDirs.equals(dirs)) {
+                    entries.clear();
+                }
+            } catch (IOException | RuntimeException e) {
+                // A damaged graph only costs a rescan.
+                entries.clear();
+            }
+        }
+        return new ThriftIncludeGraph(dirs, entries, layout);
+    }
+
+    public void save(File file) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            writer.write("V " + FORMAT + "\n");
+            writer.write("L " + layout + "\n");
+            for (final File dir : includeDirs) {
+                writer.write("P " + dir.getPath() + "\n");
+            }
+            for (final Map.Entry<File, Entry> e : entries.entrySet()) {
+                final Entry entry = e.getValue();
+                writer.write("F " + entry.length + " " + entry.lastModified + " " + e.getKey().getPath() + "\n");
+                for (int i = 0; i < entry.paths.size(); i++) {
+                    final File include = entry.resolved.get(i);
+                    writer.write("I " + entry.paths.get(i) + "\t" + (include == null ? "" : include.getPath()) + "\n");
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Returns a graph covering the given files and everything they
+     * transitively include, scanning only files which changed since this
+     * graph was built.
+     */
+    public ThriftIncludeGraph rescan(Collection<File> roots) throws IOException {
+        final Map<File, Entry> result = new LinkedHashMap<>();
+        final Deque<File> queue = new ArrayDeque<>();
+        final List<String> files = new ArrayList<>();
+        for (final File root : roots) {
+            final File normalized = normalize(root);
+            queue.add(normalized);
+            files.add("S " + normalized.getPath());
+        }
+        files.addAll(listIncludeDirs());
+        Collections.sort(files);
+        final String current = ThriftOutputCache.key(files);
+        final boolean relayout = !current.equals(layout);
+        while (!queue.isEmpty()) {
+            final File file = queue.removeFirst();
+            if (result.containsKey(file) || !file.isFile()) {
+                continue;
+            }
+            Entry entry = entries.get(file);
+            if (entry == null || entry.length != file.length() || entry.lastModified != file.lastModified()) {
+                entry = resolve(file, new Entry(file.length(), file.lastModified(), scan(file), Collections.<File>emptyList()));
+            } else if (relayout || entry.unresolved) {
+                // Another file may now be found first, or at all.
+                entry = resolve(file, entry);
+            }
+            result.put(file, entry);
+            queue.addAll(entry.includes);
+        }
+        return new ThriftIncludeGraph(includeDirs, result, current);
+    }
+
+    /** Returns the IDLs under the include directories. */
+    private List<String> listIncludeDirs() throws IOException {
+        final List<String> files = new ArrayList<>();
+        for (final File dir : includeDirs) {
+            if (!dir.isDirectory()) {
+                continue;
+            }
+            Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (file.getFileName().toString().endsWith(".thrift")) {
+                        files.add("I " + file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        return files;
+    }
+
+    private static List<String> scan(File file) throws IOException {
+        final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        final Matcher matcher = INCLUDE.matcher(COMMENT.matcher(text).replaceAll(" "));
+        final List<String> paths = new ArrayList<>();
+        while (matcher.find()) {
+            paths.add(matcher.group(1));
+        }
+        return paths;
+    }
+
+    private Entry resolve(File file, Entry entry) {
+        final List<File> resolved = new ArrayList<>();
+        for (final String path : entry.paths) {
+            resolved.add(ThriftProgram.resolveInclude(file, path, includeDirs));
+        }
+        return new Entry(entry.length, entry.lastModified, entry.paths, resolved);
+    }
+
+    /** Returns every file in the graph. */
+    public Set<File> getFiles() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /** Returns the files directly included by the given file. */
+    public List<File> getIncludes(File file) {
+        final Entry entry = entries.get(normalize(file));
+        return entry == null ? Collections.<File>emptyList() : entry.includes;
+    }
+
+    /** Returns every file transitively included by the given file. */
+    public Set<File> getTransitiveIncludes(File file) {
+        final Set<File> result = new LinkedHashSet<>();
+        final Deque<File> queue = new ArrayDeque<>(getIncludes(file));
+        while (!queue.isEmpty()) {
+            final File include = queue.removeFirst();
+            if (result.add(include)) {
+                queue.addAll(getIncludes(include));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Chooses the fewest of the given files which, compiled with
+     * {@code -recurse}, also compile all of the others.
+     *
+     * Files are considered in decreasing order of how much they include, so
+     * an includer is always considered before anything it includes. The
+     * result maps each chosen root to the other given files it covers.
+     */
+    public Map<File, Set<File>> planRoots(Collection<File> files) {
+        final Map<File, Set<File>> closures = new HashMap<>();
+        final List<File> order = new ArrayList<>();
+        for (final File file : files) {
+            final File normalized = normalize(file);
+            if (!closures.containsKey(normalized)) {
+                closures.put(normalized, getTransitiveIncludes(normalized));
+                order.add(normalized);
+            }
+        }
+        Collections.sort(order, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                final int cmp = Integer.compare(closures.get(b).size(), closures.get(a).size());
+                return cmp != 0 ? cmp : a.compareTo(b);
+            }
+        });
+
+        final Map<File, Set<File>> roots = new LinkedHashMap<>();
+        final Set<File> covered = new HashSet<>();
+        for (final File file : order) {
+            if (covered.contains(file)) {
+                continue;
+            }
+            final Set<File> covers = new LinkedHashSet<>();
+            for (final File include : closures.get(file)) {
+                if (closures.containsKey(include) && covered.add(include)) {
+                    covers.add(include);
+                }
+            }
+            covered.add(file);
+            roots.put(file, covers);
+        }
+        return roots;
+    }
+
+    /**
+     * Returns the given files together with every file which transitively
+     * includes one of them.
+     */
+    public Set<File> getDependents(Collection<File> files) {
+        final Map<File, List<File>> dependents = new HashMap<>();
+        for (final Map.Entry<File, Entry> e : entries.entrySet()) {
+            for (final File include : e.getValue().includes) {
+                List<File> list = dependents.get(include);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    dependents.put(include, list);
+                }
+                list.add(e.getKey());
+            }
+        }
+        final Set<File> result = new HashSet<>();
+        final Deque<File> queue = new ArrayDeque<>();
+        for (final File file : files) {
+            queue.add(normalize(file));
+        }
+        while (!queue.isEmpty()) {
+            final File file = queue.removeFirst();
+            if (!result.add(file)) {
+                continue;
+            }
+            final List<File> list = dependents.get(file);
+            if (list != null) {
+                queue.addAll(list);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A single run of the thrift compiler: one generator applied to one IDL.
+ */
+public final class ThriftInvocation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String generatorName;
+    private final File file;
+    private final File outputDirectory;
+    private final File stagingDirectory;
+    private final List<String> command;
+    private List<String> inProcessOptions;
+    private List<File> includePath = new ArrayList<>();
+    private boolean recurse;
+    private String cacheKey;
+    private String schedulingKey;
+    private long priority;
+
+    /**
+     * @param stagingDirectory The private directory the command writes to,
+     * whose contents are moved to the output directory afterwards.
+     */
+    public ThriftInvocation(String generatorName, File file, File outputDirectory, File stagingDirectory, List<String> command) {
+        this.generatorName = generatorName;
+        this.file = file;
+        this.outputDirectory = outputDirectory;
+        this.stagingDirectory = stagingDirectory;
+        this.command = new ArrayList<>(command);
+    }
+
+    /**
+     * Makes this invocation try the in-process Java generator first, keeping
+     * the command for IDLs the generator does not support.
+     */
+    public ThriftInvocation inProcess(List<String> options, List<File> includePath, boolean recurse) {
+        this.inProcessOptions = new ArrayList<>(options);
+        this.includePath = new ArrayList<>(includePath);
+        this.recurse = recurse;
+        return this;
+    }
+
+    public String getGeneratorName() {
+        return generatorName;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public File getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public File getStagingDirectory() {
+        return stagingDirectory;
+    }
+
+    public List<String> getCommand() {
+        return command;
+    }
+
+    /** Sets the key of this invocation's outputs in the shared output cache. */
+    public ThriftInvocation cacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+        return this;
+    }
+
+    /** The key of this invocation's outputs in the shared output cache, or null. */
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * Sets the priority with which this invocation asks the build-wide
+     * scheduler for a process slot. Higher values run first.
+     */
+    public ThriftInvocation priority(long priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    public long getPriority() {
+        return priority;
+    }
+
+    /** Sets the key which identifies this invocation across builds in the recorded durations. */
+    public ThriftInvocation schedulingKey(String schedulingKey) {
+        this.schedulingKey = schedulingKey;
+        return this;
+    }
+
+    /** Identifies this invocation across builds in the recorded durations. */
+    public String getSchedulingKey() {
+        return schedulingKey != null ? schedulingKey : generatorName + " " + file.getAbsolutePath();
+    }
+
+    public boolean isInProcess() {
+        return inProcessOptions != null;
+    }
+
+    /** The options of the in-process generator, or null if it is not used. */
+    public List<String> getInProcessOptions() {
+        return inProcessOptions;
+    }
+
+    public List<File> getIncludePath() {
+        return includePath;
+    }
+
+    public boolean isRecurse() {
+        return recurse;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(generatorName, file, outputDirectory);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof ThriftInvocation) {
+            final ThriftInvocation other = (ThriftInvocation) obj;
+            return generatorName.equals(other.generatorName)
+                    && file.equals(other.file)
+                    && outputDirectory.equals(other.outputDirectory);
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return generatorName + ":" + file.getName();
+    }
+}
@@ -0,0 +1,112 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What one invocation cost, as recorded by {@link ThriftWorkAction}.
+ *
+ * Times are in milliseconds. Spawn and run times stay at zero for
+ * invocations which never started a process, and the exit code stays at
+ * -1. A failed invocation also records its error: what thrift wrote to
+ * stderr, or else the message of the failure.
+ */
+final class ThriftInvocationMetrics {
+
+    static final String SOURCE_THRIFT = "thrift";
+    static final String SOURCE_INPROCESS = "inprocess";
+    static final String SOURCE_CACHE = "cache";
+
+    private String source = SOURCE_THRIFT;
+    private long waitMillis;
+    private long spawnMillis;
+    private long runMillis;
+    private long totalMillis;
+    private int exitCode = -1;
+    private int outputFiles;
+    private long outputBytes;
+    private int filesWritten;
+    private String error;
+
+    void source(String source) {
+        this.source = source;
+    }
+
+    void process(long waitMillis, long spawnMillis, long runMillis, int exitCode) {
+        this.waitMillis = waitMillis;
+        this.spawnMillis = spawnMillis;
+        this.runMillis = runMillis;
+        this.exitCode = exitCode;
+    }
+
+    void output(long bytes, boolean written) {
+        outputFiles++;
+        outputBytes += bytes;
+        if (written) {
+            filesWritten++;
+        }
+    }
+
+    void error(String error) {
+        this.error = error;
+    }
+
+    void totalMillis(long totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    /** Where the outputs came from: thrift, the in-process generator or the output cache. */
+    String getSource() {
+        return source;
+    }
+
+    String getError() {
+        return error;
+    }
+
+    long getWaitMillis() {
+        return waitMillis;
+    }
+
+    long getRunMillis() {
+        return runMillis;
+    }
+
+    /** The time the invocation took, from its start to its outputs being in place. */
+    long getTotalMillis() {
+        return totalMillis;
+    }
+
+    Map<String, Object> toMap() {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("source", source);
+        map.put("totalMillis", totalMillis);
+        map.put("waitMillis", waitMillis);
+        map.put("spawnMillis", spawnMillis);
+        map.put("runMillis", runMillis);
+        map.put("exitCode", exitCode);
+        map.put("outputFiles", outputFiles);
+        map.put("outputBytes", outputBytes);
+        map.put("filesWritten", filesWritten);
+        if (error != null) {
+            map.put("error", error);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,347 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+/**
+ * A content-addressed store of generated sources, shared by every build
+ * run by the same user.
+ *
+ * An entry holds the files one invocation wrote, keyed by a digest of
+ * everything which determines them. Entries are published by an atomic
+ * rename and never modified, and a manifest lists their files, so a reader
+ * either sees a complete entry or fails and treats it as a miss. This keeps
+ * concurrent builds safe without holding a lock while reading. Files are
+ * copied in and out rather than linked, so that editing a generated file
+ * cannot change the entry, and the manifest records the digest of each so
+ * that a damaged entry is discarded instead of served.
+ *
+ * The manifest's modification time records the last use, and eviction
+ * removes the least recently used entries once the cache outgrows its
+ * limit.
+ */
+final class ThriftOutputCache {
+
+    private static final Logger LOGGER = Logging.getLogger(ThriftOutputCache.class);
+
+    /** Bumped whenever the layout or the key changes meaning. */
+    static final String FORMAT = "2";
+
+    private static final String MANIFEST = "manifest.txt";
+
+    /** Abandoned temporary directories older than this are removed by eviction. */
+    private static final long ABANDONED_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Eviction in this JVM, which a file lock does not exclude. */
+    private static final AtomicBoolean EVICTING = new AtomicBoolean();
+
+    private final File root;
+
+    ThriftOutputCache(File root) {
+        this.root = root;
+    }
+
+    private File entryDirectory(String key) {
+        return new File(new File(new File(root, "entries"), key.substring(0, 2)), key);
+    }
+
+    /**
+     * Copies an entry into the given empty directory.
+     *
+     * @return False, leaving the directory empty, if there is no complete
+     * entry for the key.
+     */
+    boolean restore(String key, File directory) {
+        final File entry = entryDirectory(key);
+        final File manifest = new File(entry, MANIFEST);
+        if (!manifest.isFile()) {
+            return false;
+        }
+        try {
+            for (final String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                final String[] fields = line.split("\t", 3);
+                final String path = fields[2];
+                final Path target = directory.toPath().resolve(path);
+                Files.createDirectories(target.getParent());
+                Files.copy(entry.toPath().resolve("files").resolve(path), target);
+                if (Files.size(target) != Long.parseLong(fields[0]) || !hash(target.toFile()).equals(fields[1])) {
+                    discard(entry);
+                    throw new IOException("Content mismatch for " + path);
+                }
+            }
+            if (!manifest.setLastModified(System.currentTimeMillis())) {
+                LOGGER.debug("Could not record use of thrift cache entry " + key);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Most likely evicted while we read it.
+            LOGGER.info("Thrift cache entry " + key + " is unusable: " + e);
+            try {
+                deleteContents(directory.toPath());
+            } catch (IOException f) {
+                throw new IllegalStateException("Could not clean " + directory, f);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Publishes the contents of a directory as the entry for a key, unless
+     * another build already has. Failures only cost a future miss.
+     */
+    void store(String key, File directory) {
+        final File entry = entryDirectory(key);
+        if (entry.isDirectory()) {
+            return;
+        }
+        final Path tmp = new File(new File(root, "tmp"), UUID.randomUUID().toString()).toPath();
+        try {
+            final Path files = tmp.resolve("files");
+            final Path from = directory.toPath();
+            final StringBuilder manifest = new StringBuilder();
+            for (final Path file : listFiles(from)) {
+                final String relative = from.relativize(file).toString().replace(File.separatorChar, '/');
+                final Path target = files.resolve(relative);
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target);
+                manifest.append(Files.size(target)).append('\t').append(hash(target.toFile())).append('\t').append(relative).append('\n');
+            }
+            Files.write(tmp.resolve(MANIFEST), manifest.toString().getBytes(StandardCharsets.UTF_8));
+            Files.createDirectories(entry.getParentFile().toPath());
+            try {
+                Files.move(tmp, entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+                // Another build published it first.
+                deleteTree(tmp);
+            }
+        } catch (IOException e) {
+            LOGGER.info("Could not store thrift cache entry " + key + ": " + e);
+            try {
+                deleteTree(tmp);
+            } catch (IOException f) {
+                LOGGER.debug("Could not clean " + tmp, f);
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is no larger
+     * than the given size. Does nothing if another build or task is already
+     * evicting.
+     */
+    void evict(long maxBytes) throws IOException {
+        if (!EVICTING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Files.createDirectories(root.toPath());
+            try (FileChannel channel = FileChannel.open(new File(root, "evict.lock").toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = channel.tryLock()) {
+                if (lock != null) {
+                    evictLocked(maxBytes);
+                }
+            }
+        } finally {
+            EVICTING.set(false);
+        }
+    }
+
+    private void evictLocked(long maxBytes) throws IOException {
+        final File trash = new File(root, "tmp");
+        final long now = System.currentTimeMillis();
+        final File[] abandoned = trash.listFiles();
+        if (abandoned != null) {
+            for (final File dir : abandoned) {
+                if (now - dir.lastModified() > ABANDONED_MILLIS) {
+                    deleteTree(dir.toPath());
+                }
+            }
+        }
+
+        final List<File> manifests = new ArrayList<>();
+        final File[] shards = new File(root, "entries").listFiles();
+        if (shards != null) {
+            for (final File shard : shards) {
+                final File[] entries = shard.listFiles();
+                if (entries != null) {
+                    for (final File entry : entries) {
+                        final File manifest = new File(entry, MANIFEST);
+                        if (manifest.isFile()) {
+                            manifests.add(manifest);
+                        }
+                    }
+                }
+            }
+        }
+
+        long total = 0;
+        final List<Long> sizes = new ArrayList<>();
+        for (final File manifest : manifests) {
+            long size = manifest.length();
+            for (final String line : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+                size += Long.parseLong(line.substring(0, line.indexOf('\t')));
+            }
+            sizes.add(size);
+            total += size;
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < manifests.size(); i++) {
+            order.add(i);
+        }
+        final List<Long> lastUsed = new ArrayList<>();
+        for (final File manifest : manifests) {
+            lastUsed.add(manifest.lastModified());
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Long.compare(lastUsed.get(a), lastUsed.get(b));
+            }
+        });
+
+        int evicted = 0;
+        for (final int i : order) {
+            if (total <= maxBytes) {
+                break;
+            }
+            discard(manifests.get(i).getParentFile());
+            total -= sizes.get(i);
+            evicted++;
+        }
+        LOGGER.info("Evicted " + evicted + " thrift cache entries, leaving " + total + " bytes");
+    }
+
+    /** Returns the SHA-256 of a file's content, in hex. */
+    static String hash(File file) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buf = new byte[8 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                digest.update(buf, 0, n);
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    /** Returns the key for the given description of an invocation. */
+    static String key(List<String> parts) {
+        final MessageDigest digest = newDigest();
+        digest.update(FORMAT.getBytes(StandardCharsets.UTF_8));
+        for (final String part : parts) {
+            digest.update((byte) '\n');
+            digest.update(part.getBytes(StandardCharsets.UTF_8));
+        }
+        return hex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : bytes) {
+            sb.append(String.format("%02x", b & 0xff));
+        }
+        return sb.toString();
+    }
+
+    /** Removes an entry, renaming it first so that readers never see it partly deleted. */
+    private void discard(File entry) throws IOException {
+        final File trash = new File(root, "tmp");
+        final Path doomed = new File(trash, "evicted-" + UUID.randomUUID()).toPath();
+        Files.createDirectories(trash.toPath());
+        Files.move(entry.toPath(), doomed, StandardCopyOption.ATOMIC_MOVE);
+        deleteTree(doomed);
+    }
+
+    private static List<Path> listFiles(Path dir) throws IOException {
+        final List<Path> files = new ArrayList<>();
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                files.add(file);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(files);
+        return files;
+    }
+
+    private static void deleteContents(Path dir) throws IOException {
+        final File[] children = dir.toFile().listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteTree(child.toPath());
+            }
+        }
+    }
+
+    static void deleteTree(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -0,0 +1,198 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records which files each (generator, IDL) invocation wrote, so that
+ * outputs nothing produces any more can be deleted without a full rebuild.
+ *
+ * Several invocations may claim the same file, for example the outputs of
+ * a header included by two roots; a file is only stale once no entry claims
+ * it.
+ */
+final class ThriftOutputManifest {
+
+    private static final class Entry {
+
+        private final String generatorName;
+        private final File file;
+        private final File outputDirectory;
+        private final Set<String> outputs;
+
+        private Entry(String generatorName, File file, File outputDirectory, Collection<String> outputs) {
+            this.generatorName = generatorName;
+            this.file = file;
+            this.outputDirectory = outputDirectory;
+            this.outputs = new LinkedHashSet<>(outputs);
+        }
+
+        private List<File> getOutputFiles() {
+            final List<File> files = new ArrayList<>();
+            for (final String output : outputs) {
+                files.add(new File(outputDirectory, output));
+            }
+            return files;
+        }
+    }
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    private static String key(String generatorName, File file) {
+        return generatorName + "\t" + file.getPath();
+    }
+
+    public static ThriftOutputManifest load(File file) {
+        final ThriftOutputManifest manifest = new ThriftOutputManifest();
+        if (!file.isFile()) {
+            return manifest;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            Entry entry = null;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.startsWith("E\t")) {
+                    final String[] fields = line.split("\t", 4);
+                    entry = new Entry(fields[1], new File(fields[3]), new File(fields[2]), new ArrayList<String>());
+                    manifest.entries.put(key(entry.generatorName, entry.file), entry);
+                } else if (line.startsWith("O\t") && entry != null) {
+                    entry.outputs.add(line.substring(2));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Without a manifest we lose track of stale outputs, but nothing else.
+            manifest.entries.clear();
+        }
+        return manifest;
+    }
+
+    public void save(File file) throws IOException {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+            for (final Entry entry : entries.values()) {
+                writer.write("E\t" + entry.generatorName + "\t" + entry.outputDirectory.getPath() + "\t" + entry.file.getPath() + "\n");
+                for (final String output : entry.outputs) {
+                    writer.write("O\t" + output + "\n");
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /** Returns the outputs recorded for an invocation, or an empty list. */
+    public List<File> getOutputFiles(String generatorName, File file) {
+        final Entry entry = entries.get(key(generatorName, file));
+        return entry == null ? new ArrayList<File>() : entry.getOutputFiles();
+    }
+
+    public void put(String generatorName, File file, File outputDirectory, Collection<String> outputs) {
+        entries.put(key(generatorName, file), new Entry(generatorName, file, outputDirectory, outputs));
+    }
+
+    /** Forgets every invocation of the given IDL and returns the files they claimed. */
+    public List<File> remove(File file) {
+        final List<File> outputs = new ArrayList<>();
+        for (final Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            final Entry entry = it.next();
+            if (entry.file.equals(file)) {
+                outputs.addAll(entry.getOutputFiles());
+                it.remove();
+            }
+        }
+        return outputs;
+    }
+
+    /** Forgets every invocation of the given generator and returns the files they claimed. */
+    public List<File> removeGenerator(String generatorName) {
+        final List<File> outputs = new ArrayList<>();
+        for (final Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            final Entry entry = it.next();
+            if (entry.generatorName.equals(generatorName)) {
+                outputs.addAll(entry.getOutputFiles());
+                it.remove();
+            }
+        }
+        return outputs;
+    }
+
+    /** Forgets every invocation and returns the files they claimed. */
+    public List<File> clear() {
+        final List<File> outputs = new ArrayList<>();
+        for (final Entry entry : entries.values()) {
+            outputs.addAll(entry.getOutputFiles());
+        }
+        entries.clear();
+        return outputs;
+    }
+
+    /**
+     * Deletes those of the given files which no entry claims, along with
+     * any directories below the output directories that leaves empty.
+     * Returns the number of files deleted.
+     */
+    public int deleteUnclaimed(Collection<File> candidates, Collection<File> outputDirectories) throws IOException {
+        final Set<File> claimed = new HashSet<>();
+        for (final Entry entry : entries.values()) {
+            claimed.addAll(entry.getOutputFiles());
+        }
+        final Set<File> roots = new HashSet<>(outputDirectories);
+        int count = 0;
+        for (final File candidate : new LinkedHashSet<>(candidates)) {
+            if (claimed.contains(candidate) || !candidate.isFile()) {
+                continue;
+            }
+            Files.delete(candidate.toPath());
+            count++;
+            for (File dir = candidate.getParentFile(); isBelow(dir, roots); dir = dir.getParentFile()) {
+                final String[] children = dir.list();
+                if (children == null || children.length > 0 || !dir.delete()) {
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static boolean isBelow(File dir, Set<File> roots) {
+        for (File parent = dir.getParentFile(); parent != null; parent = parent.getParentFile()) {
+            if (roots.contains(parent)) {
+                return !roots.contains(dir);
+            }
+        }
+        return false;
+    }
+}
@@ -17,24 +17,96 @@
 package co.tomlee.gradle.plugins.thrift;
 
 import org.gradle.api.Action;
+import org.gradle.api.GradleException;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.Transformer;
+import org.gradle.api.artifacts.ArtifactCollection;
+import org.gradle.api.artifacts.ArtifactView;
+import org.gradle.api.artifacts.ConfigurablePublishArtifact;
 import org.gradle.api.artifacts.Configuration;
-import org.gradle.api.internal.plugins.DslObject;
+import org.gradle.api.artifacts.ConfigurationVariant;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.artifacts.type.ArtifactTypeDefinition;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.attributes.AttributeContainer;
+import org.gradle.api.attributes.Usage;
+import org.gradle.api.component.AdhocComponentWithVariants;
+import org.gradle.api.component.ConfigurationVariantDetails;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.SourceDirectorySet;
 import org.gradle.api.internal.tasks.DefaultSourceSet;
+import org.gradle.api.plugins.BasePlugin;
 import org.gradle.api.plugins.JavaLibraryPlugin;
 import org.gradle.api.plugins.JavaPlugin;
-import org.gradle.api.plugins.JavaPluginConvention;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildServiceParameters;
+import org.gradle.api.services.BuildServiceSpec;
 import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+import org.gradle.api.tasks.bundling.Jar;
+import org.gradle.api.tasks.compile.JavaCompile;
+import org.gradle.util.GradleVersion;
 
-import javax.inject.Inject;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import javax.inject.Inject;
 import org.gradle.api.model.ObjectFactory;
 
 public class ThriftPlugin implements Plugin<Project> {
 
+    public static final String THRIFT_CONFIGURATION_NAME = "thrift";
+
+    /**
+     * The project property which makes each source set compile its
+     * generated sources in a source set of their own.
+     */
+    public static final String SEPARATE_COMPILATION_PROPERTY = "thrift.separateCompilation";
+
+    /**
+     * The project property which publishes the classes compiled from the
+     * main IDLs as a variant of their own, for consumers whose compiler and
+     * generators match. It implies {@link #SEPARATE_COMPILATION_PROPERTY}.
+     */
+    public static final String PUBLISH_GENERATED_PROPERTY = "thrift.publishGenerated";
+
+    /**
+     * The project property which makes the main generate task use the
+     * classes published by its {@code thrift} dependencies, where they
+     * match, instead of generating their IDLs again.
+     */
+    public static final String CONSUME_PREBUILT_PROPERTY = "thrift.consumePrebuilt";
+
+    public static final String THRIFT_GENERATED_ELEMENTS_CONFIGURATION_NAME = "thriftGeneratedElements";
+
+    public static final String THRIFT_PREBUILT_CONFIGURATION_NAME = "thriftPrebuilt";
+
+    /** The usage of the published classes, which no ordinary Java consumer requests. */
+    public static final String THRIFT_CLASSES_USAGE = "thrift-java-classes";
+
+    /** The version reported by the compiler which generated the published classes. */
+    public static final Attribute<String> THRIFT_COMPILER_ATTRIBUTE = Attribute.of("co.tomlee.thrift.compiler", String.class);
+
+    /** The generators, with their options, which generated the published classes. */
+    public static final Attribute<String> THRIFT_GENERATORS_ATTRIBUTE = Attribute.of("co.tomlee.thrift.generators", String.class);
+
     private final ObjectFactory objectFactory;
 
+    /** The source sets this plugin created for generated sources. */
+    private final Set<String> generatedSourceSets = new HashSet<>();
+
     @Inject
     public ThriftPlugin(final ObjectFactory objectFactory) {
         this.objectFactory = objectFactory;
@@ -45,54 +117,488 @@ public class ThriftPlugin implements Plugin<Project> {
         project.getPlugins().apply(JavaLibraryPlugin.class);
 
         configureConfigurations(project);
+        configureCompilerService(project);
+        configureScheduler(project);
         configureSourceSets(project);
+        if (isSeparateCompilation(project)) {
+            configureSeparateCompilation(project);
+        }
+        if (isEnabled(project, PUBLISH_GENERATED_PROPERTY)) {
+            configurePublishGenerated(project);
+        }
+        if (isEnabled(project, CONSUME_PREBUILT_PROPERTY)) {
+            configureConsumePrebuilt(project);
+        }
+    }
+
+    private void configureCompilerService(final Project project) {
+        final Provider<ThriftCompilerService> compilerService = project.getGradle().getSharedServices()
+                .registerIfAbsent(ThriftCompilerService.NAME, ThriftCompilerService.class, new Action<BuildServiceSpec<BuildServiceParameters.None>>() {
+                    @Override
+                    public void execute(BuildServiceSpec<BuildServiceParameters.None> spec) {
+                    }
+                });
+        project.getTasks().withType(ThriftTask.class).configureEach(new Action<ThriftTask>() {
+            @Override
+            public void execute(ThriftTask task) {
+                task.getCompilerService().set(compilerService);
+                task.usesService(compilerService);
+            }
+        });
+    }
+
+    /**
+     * Registers the scheduler every ThriftTask in the build shares. The
+     * first project to apply the plugin configures it, from the properties
+     * {@code thrift.maxProcesses}, {@code thrift.memoryBudget} and
+     * {@code thrift.memoryPerProcess}; sizes take a k, m or g suffix.
+     */
+    private void configureScheduler(final Project project) {
+        final Provider<ThriftSchedulerService> scheduler = project.getGradle().getSharedServices()
+                .registerIfAbsent(ThriftSchedulerService.NAME, ThriftSchedulerService.class, new Action<BuildServiceSpec<ThriftSchedulerService.Params>>() {
+                    @Override
+                    public void execute(BuildServiceSpec<ThriftSchedulerService.Params> spec) {
+                        final Object maxProcesses = project.findProperty("thrift.maxProcesses");
+                        spec.getParameters().getMaxProcesses().set(maxProcesses != null
+                                ? Integer.parseInt(maxProcesses.toString().trim())
+                                : project.getGradle().getStartParameter().getMaxWorkerCount());
+                        spec.getParameters().getMemoryBudget().set(parseSize(project.findProperty("thrift.memoryBudget"), 0));
+                        spec.getParameters().getMemoryPerProcess().set(parseSize(project.findProperty("thrift.memoryPerProcess"), 256L << 20));
+                        File cacheDir = project.getGradle().getStartParameter().getProjectCacheDir();
+                        if (cacheDir == null) {
+                            cacheDir = new File(project.getRootProject().getProjectDir(), ".gradle");
+                        }
+                        spec.getParameters().getHistoryFile().set(new File(cacheDir, "thrift/durations.txt"));
+                    }
+                });
+        project.getTasks().withType(ThriftTask.class).configureEach(new Action<ThriftTask>() {
+            @Override
+            public void execute(ThriftTask task) {
+                task.getScheduler().set(scheduler);
+                task.usesService(scheduler);
+            }
+        });
+    }
+
+    private static boolean isEnabled(final Project project, final String property) {
+        return Boolean.parseBoolean(String.valueOf(project.findProperty(property)));
+    }
+
+    private static boolean isSeparateCompilation(final Project project) {
+        return isEnabled(project, SEPARATE_COMPILATION_PROPERTY) || isEnabled(project, PUBLISH_GENERATED_PROPERTY);
+    }
+
+    /**
+     * Makes a source set compile what a ThriftTask generates: its output
+     * directory, and the srcjars of generators which write one. Mapping the
+     * task provider also makes compilation depend on the task.
+     */
+    private static void addGeneratedSources(final Project project, final SourceSet target, final TaskProvider<ThriftTask> thriftTask) {
+        target.getJava().srcDir(thriftTask.map(new Transformer<Directory, ThriftTask>() {
+            @Override
+            public Directory transform(ThriftTask task) {
+                return task.getOutputDirectory().get();
+            }
+        }));
+        project.getTasks().named(target.getCompileJavaTaskName(), JavaCompile.class).configure(new Action<JavaCompile>() {
+            @Override
+            public void execute(JavaCompile compile) {
+                compile.source(project.provider(new Callable<List<FileTree>>() {
+                    @Override
+                    public List<FileTree> call() {
+                        final List<FileTree> trees = new ArrayList<>();
+                        for (final File srcjar : thriftTask.get().getSrcjarFiles()) {
+                            trees.add(project.zipTree(srcjar));
+                        }
+                        return trees;
+                    }
+                }));
+            }
+        });
+    }
+
+    /**
+     * Compiles the generated sources of each source set in a source set of
+     * their own, named {@code <name>Thrift}, whose classes go on the
+     * classpaths of the original. Editing hand-written code then never
+     * recompiles generated code, and the generated classes are cached on
+     * their own. The generated classes of {@code main} are also published,
+     * in a jar with the classifier {@code thrift}.
+     *
+     * This uses all() rather than configureEach(), which may not add to
+     * the container it is iterating.
+     */
+    private void configureSeparateCompilation(final Project project) {
+        final SourceSetContainer sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
+        sourceSets.all(new Action<SourceSet>() {
+            @Override
+            public void execute(SourceSet sourceSet) {
+                if (!generatedSourceSets.contains(sourceSet.getName())) {
+                    configureSeparateCompilation(project, sourceSets, sourceSet);
+                }
+            }
+        });
+    }
+
+    private void configureSeparateCompilation(final Project project, final SourceSetContainer sourceSets, final SourceSet sourceSet) {
+        final String name = sourceSet.getName() + "Thrift";
+        generatedSourceSets.add(name);
+        final SourceSet generated = sourceSets.create(name);
+        addGeneratedSources(project, generated,
+                project.getTasks().named(sourceSet.getTaskName("generate", "ThriftSource"), ThriftTask.class));
+        FileCollection compileClasspath = project.getConfigurations().getByName(sourceSet.getCompileClasspathConfigurationName());
+        FileCollection runtimeClasspath = project.getConfigurations().getByName(sourceSet.getRuntimeClasspathConfigurationName());
+        FileCollection generatedClasses = generated.getOutput();
+        if (!SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSet.getName())) {
+            //
+            // Other IDLs, such as test ones, may include the main ones, so
+            // their classes see main's, as the java plugin does for test.
+            // mainThrift may not exist yet, since source sets are visited
+            // in name order.
+            //
+            final FileCollection mainThrift = project.files(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME + "Thrift").getOutput();
+                }
+            });
+            final FileCollection main = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME).getOutput().plus(mainThrift);
+            compileClasspath = main.plus(compileClasspath);
+            runtimeClasspath = main.plus(runtimeClasspath);
+            generatedClasses = generatedClasses.plus(mainThrift);
+        }
+        generated.setCompileClasspath(compileClasspath);
+        generated.setRuntimeClasspath(generated.getOutput().plus(runtimeClasspath));
+        sourceSet.setCompileClasspath(sourceSet.getCompileClasspath().plus(generatedClasses));
+        sourceSet.setRuntimeClasspath(sourceSet.getRuntimeClasspath().plus(generatedClasses));
+
+        if (!SourceSet.MAIN_SOURCE_SET_NAME.equals(sourceSet.getName())) {
+            return;
+        }
+        final TaskProvider<Jar> jar = project.getTasks().register(generated.getJarTaskName(), Jar.class, new Action<Jar>() {
+            @Override
+            public void execute(Jar task) {
+                task.setDescription("Assembles a jar archive containing the classes generated from the main Thrift IDLs.");
+                task.getArchiveClassifier().set("thrift");
+                task.from(generated.getOutput());
+            }
+        });
+        project.getTasks().named(BasePlugin.ASSEMBLE_TASK_NAME).configure(new Action<Task>() {
+            @Override
+            public void execute(Task task) {
+                task.dependsOn(jar);
+            }
+        });
+        final TaskProvider<Task> compile = project.getTasks().named(generated.getCompileJavaTaskName());
+        for (final String elements : Arrays.asList(JavaPlugin.API_ELEMENTS_CONFIGURATION_NAME, JavaPlugin.RUNTIME_ELEMENTS_CONFIGURATION_NAME)) {
+            project.getArtifacts().add(elements, jar);
+            //
+            // Consumers in the same build compile against class directories
+            // rather than jars, where the java plugin allows it.
+            //
+            final ConfigurationVariant classes = project.getConfigurations().getByName(elements)
+                    .getOutgoing().getVariants().findByName("classes");
+            if (classes != null) {
+                classes.artifact(generated.getJava().getDestinationDirectory(), new Action<ConfigurablePublishArtifact>() {
+                    @Override
+                    public void execute(ConfigurablePublishArtifact artifact) {
+                        artifact.setType(ArtifactTypeDefinition.JVM_CLASS_DIRECTORY);
+                        artifact.builtBy(compile);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Adds {@code thriftGeneratedElements}, whose only artifact is the jar
+     * of classes compiled from the main IDLs, and adds it to the java
+     * component so that it is published too.
+     */
+    private void configurePublishGenerated(final Project project) {
+        final SourceSetContainer sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
+        final SourceSet main = sourceSets.getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        final Configuration elements = project.getConfigurations().create(THRIFT_GENERATED_ELEMENTS_CONFIGURATION_NAME);
+        elements.setDescription("Classes compiled from the main Thrift IDLs, for consumers which generate them the same way.");
+        elements.setVisible(false);
+        elements.setCanBeConsumed(true);
+        elements.setCanBeResolved(false);
+        setThriftAttributes(project, elements.getAttributes(),
+                project.getTasks().named(main.getTaskName("generate", "ThriftSource"), ThriftTask.class));
+        project.getArtifacts().add(THRIFT_GENERATED_ELEMENTS_CONFIGURATION_NAME,
+                project.getTasks().named(sourceSets.getByName(main.getName() + "Thrift").getJarTaskName()));
+        ((AdhocComponentWithVariants) project.getComponents().getByName("java")).addVariantsFromConfiguration(elements, new Action<ConfigurationVariantDetails>() {
+            @Override
+            public void execute(ConfigurationVariantDetails details) {
+                details.mapToOptional();
+            }
+        });
+    }
+
+    /**
+     * Adds {@code thriftPrebuilt}, which asks the {@code thrift}
+     * dependencies for the classes their producers published with the
+     * compiler and generators of the main generate task. Only if every
+     * dependency has them, and the task generates nothing but Java, the
+     * task stops generating the dependencies' IDLs and the classes go on
+     * the classpath instead. Otherwise generation stays local.
+     */
+    private void configureConsumePrebuilt(final Project project) {
+        final SourceSet main = project.getExtensions().getByType(SourceSetContainer.class).getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+        final TaskProvider<ThriftTask> thriftTask = project.getTasks().named(main.getTaskName("generate", "ThriftSource"), ThriftTask.class);
+        final Configuration prebuilt = project.getConfigurations().create(THRIFT_PREBUILT_CONFIGURATION_NAME);
+        prebuilt.setDescription("Classes published for the Thrift IDL dependencies.");
+        prebuilt.setVisible(false);
+        prebuilt.setCanBeConsumed(false);
+        prebuilt.setCanBeResolved(true);
+        prebuilt.extendsFrom(project.getConfigurations().getByName(THRIFT_CONFIGURATION_NAME));
+        setThriftAttributes(project, prebuilt.getAttributes(), thriftTask);
+
+        //
+        // A lenient view leaves out the dependencies without a matching
+        // variant, and records them as failures.
+        //
+        final ArtifactCollection artifacts = prebuilt.getIncoming().artifactView(new Action<ArtifactView.ViewConfiguration>() {
+            @Override
+            public void execute(ArtifactView.ViewConfiguration view) {
+                view.setLenient(true);
+            }
+        }).getArtifacts();
+        thriftTask.configure(new Action<ThriftTask>() {
+            @Override
+            public void execute(final ThriftTask task) {
+                task.getPrebuiltComplete().set(project.provider(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return isJavaOnly(task) && isComplete(artifacts);
+                    }
+                }));
+            }
+        });
+        project.getDependencies().add(JavaPlugin.IMPLEMENTATION_CONFIGURATION_NAME, project.files(new Callable<Object>() {
+            @Override
+            public Object call() {
+                // Some classes without all of them would clash with the generated ones.
+                return thriftTask.get().getPrebuiltComplete().get() ? artifacts.getArtifactFiles() : Collections.emptyList();
+            }
+        }));
+    }
+
+    /**
+     * Describes how a ThriftTask generates, for matching published classes
+     * against a consumer. Both are only known once the task is configured,
+     * so before Gradle 7.4 they are set after the project is evaluated.
+     */
+    private void setThriftAttributes(final Project project, final AttributeContainer attributes, final TaskProvider<ThriftTask> thriftTask) {
+        attributes.attribute(Usage.USAGE_ATTRIBUTE, objectFactory.named(Usage.class, THRIFT_CLASSES_USAGE));
+        final Provider<String> compiler = thriftTask.map(new Transformer<String, ThriftTask>() {
+            @Override
+            public String transform(ThriftTask task) {
+                return task.getCompilerVersion();
+            }
+        });
+        final Provider<String> generators = thriftTask.map(new Transformer<String, ThriftTask>() {
+            @Override
+            public String transform(ThriftTask task) {
+                return getGeneratorsKey(task);
+            }
+        });
+        if (GradleVersion.current().compareTo(GradleVersion.version("7.4")) >= 0) {
+            attributes.attributeProvider(THRIFT_COMPILER_ATTRIBUTE, compiler);
+            attributes.attributeProvider(THRIFT_GENERATORS_ATTRIBUTE, generators);
+        } else {
+            project.afterEvaluate(new Action<Project>() {
+                @Override
+                public void execute(Project p) {
+                    attributes.attribute(THRIFT_COMPILER_ATTRIBUTE, compiler.get());
+                    attributes.attribute(THRIFT_GENERATORS_ATTRIBUTE, generators.get());
+                }
+            });
+        }
+    }
+
+    /**
+     * The generators of a task as they appear on the command line, in name
+     * order, each followed by its engine and roots, and then the
+     * post-processors, in the order they run.
+     */
+    private static String getGeneratorsKey(final ThriftTask task) {
+        final List<String> parts = new ArrayList<>();
+        for (final Map.Entry<String, Generator> e : task.getGenerators().entrySet()) {
+            final Generator generator = e.getValue();
+            final List<String> options = new ArrayList<>(generator.getOptions());
+            Collections.sort(options);
+            final StringBuilder part = new StringBuilder(e.getKey());
+            if (!options.isEmpty()) {
+                part.append(':').append(ThriftTask.join(",", options));
+            }
+            part.append('@').append(generator.getEngine());
+            if (generator.isPruning()) {
+                final List<String> roots = new ArrayList<>(generator.getRoots());
+                Collections.sort(roots);
+                part.append('[').append(ThriftTask.join(",", roots)).append(']');
+            }
+            parts.add(part.toString());
+        }
+        for (final ThriftPostProcessor processor : task.getPostProcessors()) {
+            parts.add("|" + getIdentity(processor));
+        }
+        return ThriftTask.join(" ", parts);
+    }
+
+    /**
+     * A post-processor's class, and its settings too if it describes them
+     * in {@link Object#toString()}, as the built-in ones do.
+     */
+    private static String getIdentity(final ThriftPostProcessor processor) {
+        try {
+            if (processor.getClass().getMethod("toString").getDeclaringClass() != Object.class) {
+                return processor.getClass().getName() + "=" + processor;
+            }
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        return processor.getClass().getName();
+    }
+
+    /**
+     * Whether every dependency resolved to published classes. File
+     * dependencies bypass variant selection, so they count as missing.
+     */
+    private static boolean isComplete(final ArtifactCollection artifacts) {
+        if (artifacts.getArtifacts().isEmpty() || !artifacts.getFailures().isEmpty()) {
+            return false;
+        }
+        for (final ResolvedArtifactResult artifact : artifacts) {
+            if (artifact.getVariant().getAttributes().getAttribute(THRIFT_GENERATORS_ATTRIBUTE) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isJavaOnly(final ThriftTask task) {
+        for (final String name : task.getGenerators().keySet()) {
+            if (!name.equals("java")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long parseSize(final Object value, final long defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        final String text = value.toString().trim().toLowerCase(Locale.ROOT);
+        final int shift = text.endsWith("k") ? 10 : text.endsWith("m") ? 20 : text.endsWith("g") ? 30 : 0;
+        final String digits = shift == 0 ? text : text.substring(0, text.length() - 1);
+        try {
+            return Long.parseLong(digits.trim()) << shift;
+        } catch (NumberFormatException e) {
+            throw new GradleException("Invalid size for a thrift property: " + value, e);
+        }
     }
 
     private void configureConfigurations(final Project project) {
-        final Configuration thriftConfiguration = project.getConfigurations().create("thrift").setVisible(false);
+        final Configuration thriftConfiguration = project.getConfigurations().create(THRIFT_CONFIGURATION_NAME).setVisible(false);
         project.getConfigurations().getByName(JavaPlugin.API_CONFIGURATION_NAME).extendsFrom(thriftConfiguration);
     }
 
     private void configureSourceSets(final Project project) {
-        project.getConvention().getPlugin(JavaPluginConvention.class).getSourceSets().all(new Action<SourceSet>() {
+        project.getExtensions().getByType(SourceSetContainer.class).configureEach(new Action<SourceSet>() {
             @Override
-            public void execute(SourceSet sourceSet) {
+            public void execute(final SourceSet sourceSet) {
+                if (generatedSourceSets.contains(sourceSet.getName())) {
+                    return;
+                }
+
                 //
                 // This logic borrowed from the antlr plugin.
                 // 1. Add a new 'thrift' virtual directory mapping
                 //
                 final ThriftSourceVirtualDirectoryImpl thriftSourceSet
                         = new ThriftSourceVirtualDirectoryImpl(((DefaultSourceSet) sourceSet).getDisplayName(), objectFactory);
-                new DslObject(sourceSet).getConvention().getPlugins().put("thrift", thriftSourceSet);
+                sourceSet.getExtensions().add(SourceDirectorySet.class, "thrift", thriftSourceSet.getThrift());
                 final String srcDir = String.format("src/%s/thrift", sourceSet.getName());
                 thriftSourceSet.getThrift().srcDir(srcDir);
                 sourceSet.getAllSource().source(thriftSourceSet.getThrift());
 
                 //
-                // 2. Create a ThriftTask for this sourceSet
+                // 2. Register a ThriftTask for this sourceSet, which is only
+                //    created if something needs it.
                 //
                 final String taskName = sourceSet.getTaskName("generate", "ThriftSource");
-                final ThriftTask thriftTask = project.getTasks().create(taskName, ThriftTask.class);
-                thriftTask.setDescription(String.format("Processes the %s Thrift IDLs.", sourceSet.getName()));
+                final Provider<Directory> outputDirectory = project.getLayout().getBuildDirectory()
+                        .dir(String.format("generated-src/thrift/%s", sourceSet.getName()));
+                final TaskProvider<ThriftTask> thriftTask = project.getTasks().register(taskName, ThriftTask.class, new Action<ThriftTask>() {
+                    @Override
+                    public void execute(ThriftTask task) {
+                        task.setDescription(String.format("Processes the %s Thrift IDLs.", sourceSet.getName()));
+
+                        //
+                        // 3. Set up convention mapping for default sources (allows user to not have to specify)
+                        //
+                        task.setSource(thriftSourceSet.getThrift());
+
+                        //
+                        // 4. Set up the thrift output directory
+                        //
+                        task.getOutputDirectory().set(outputDirectory);
+
+                        //
+                        // 5. IDLs shipped in thrift dependencies can be included
+                        //
+                        task.getIncludeDependencies().from(project.getConfigurations().getByName(THRIFT_CONFIGURATION_NAME));
+                    }
+                });
 
                 //
-                // 3. Set up convention mapping for default sources (allows user to not have to specify)
+                // 6. Add the generated sources to the javac inputs, unless
+                //    they get a source set of their own.
                 //
-                thriftTask.setSource(thriftSourceSet.getThrift());
+                if (!isSeparateCompilation(project)) {
+                    addGeneratedSources(project, sourceSet, thriftTask);
+                }
 
                 //
-                // 4. Set up the thrift output directory (adding to javac inputs)
+                // 7. Register a ThriftCheckTask which validates the same IDLs
+                //    in-process. It reads the include path lazily, so that it
+                //    sees the generate task's configuration without depending
+                //    on the generate task.
                 //
-                final String outputDirectoryName
-                        = String.format("%s/generated-src/thrift/%s", project.getBuildDir(), sourceSet.getName());
-                final File outputDirectory = new File(outputDirectoryName);
-                thriftTask.out(outputDirectory);
-                sourceSet.getJava().srcDir(outputDirectory);
+                project.getTasks().register(sourceSet.getTaskName(null, "thriftCheck"), ThriftCheckTask.class, new Action<ThriftCheckTask>() {
+                    @Override
+                    public void execute(ThriftCheckTask task) {
+                        task.setDescription(String.format("Validates the %s Thrift IDLs without running thrift.", sourceSet.getName()));
+                        task.setSource(thriftSourceSet.getThrift());
+                        task.getInclude().from(project.provider(new Callable<List<File>>() {
+                            @Override
+                            public List<File> call() {
+                                return thriftTask.get().getInclude();
+                            }
+                        }));
+                        task.getIncludeDependencies().from(project.getConfigurations().getByName(THRIFT_CONFIGURATION_NAME));
+                    }
+                });
 
                 //
-                // 5. Register the fact that thrit should run before compiling.
+                // 8. Register a ThriftWatchTask which regenerates the IDLs as
+                //    they are saved. It holds on to the generate task, which
+                //    the configuration cache cannot store.
                 //
-                project.getTasks().getByName(sourceSet.getCompileJavaTaskName()).dependsOn(taskName);
+                project.getTasks().register(sourceSet.getTaskName(null, "thriftWatch"), ThriftWatchTask.class, new Action<ThriftWatchTask>() {
+                    @Override
+                    public void execute(ThriftWatchTask task) {
+                        task.setDescription(String.format("Regenerates the %s Thrift IDLs whenever they change.", sourceSet.getName()));
+                        task.dependsOn(thriftTask);
+                        task.getGenerateTask().set(thriftTask);
+                        task.getSourceDirectories().from(thriftSourceSet.getThrift().getSourceDirectories());
+                        if (GradleVersion.current().compareTo(GradleVersion.version("7.4")) >= 0) {
+                            task.notCompatibleWithConfigurationCache("Watches the generate task's configuration for as long as it runs.");
+                        }
+                    }
+                });
             }
         });
     }
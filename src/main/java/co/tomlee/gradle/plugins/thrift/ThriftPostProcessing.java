@@ -0,0 +1,98 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Runs a file through a chain of {@link ThriftPostProcessor}s, streaming
+ * it line by line into a sibling file which then replaces it.
+ */
+final class ThriftPostProcessing {
+
+    private ThriftPostProcessing() {
+    }
+
+    static void apply(final List<ThriftPostProcessor> processors, final Path file, final String path) throws IOException {
+        if (processors.isEmpty()) {
+            return;
+        }
+        final Path tmp = file.resolveSibling(file.getFileName() + ".post");
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1);
+                Writer writer = new BufferedWriter(Files.newBufferedWriter(tmp, StandardCharsets.ISO_8859_1))) {
+            for (final ThriftPostProcessor processor : processors) {
+                final String header = processor.header(path);
+                if (header != null) {
+                    writer.write(header);
+                }
+            }
+            final StringBuilder buf = new StringBuilder();
+            LINES:
+            while (readLine(reader, buf)) {
+                String line = buf.toString();
+                for (final ThriftPostProcessor processor : processors) {
+                    line = processor.line(path, line);
+                    if (line == null) {
+                        continue LINES;
+                    }
+                }
+                writer.write(line);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads the next line into the buffer, with its terminator: "\n",
+     * "\r\n" or a lone "\r".
+     *
+     * @return False at the end of the input.
+     */
+    private static boolean readLine(final Reader reader, final StringBuilder buf) throws IOException {
+        buf.setLength(0);
+        for (;;) {
+            reader.mark(1);
+            final int c = reader.read();
+            if (c < 0) {
+                return buf.length() > 0;
+            }
+            buf.append((char) c);
+            if (c == '\n') {
+                return true;
+            }
+            if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() == '\n') {
+                    buf.append('\n');
+                } else {
+                    reader.reset();
+                }
+                return true;
+            }
+        }
+    }
+}
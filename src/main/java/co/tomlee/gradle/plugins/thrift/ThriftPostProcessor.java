@@ -0,0 +1,49 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.Serializable;
+
+/**
+ * Rewrites generated files on their way from the compiler to the output
+ * directory, one line at a time.
+ *
+ * Files are read as ISO-8859-1, so every byte maps to one char and back,
+ * whatever the file's real encoding. A processor is tracked as a nested
+ * input of the task, and must be serializable for the configuration cache.
+ *
+ * @see ThriftPostProcessors
+ */
+public interface ThriftPostProcessor extends Serializable {
+
+    /**
+     * Returns text to write before the first line of the file, or null.
+     *
+     * @param path The path of the file relative to its output directory,
+     * separated by '/'.
+     */
+    String header(String path);
+
+    /**
+     * Returns what to write in place of a line, or null to drop it.
+     *
+     * @param path The path of the file relative to its output directory.
+     * @param line The line, including its terminator unless it is the
+     * last line of a file which does not end with one.
+     */
+    String line(String path, String line);
+}
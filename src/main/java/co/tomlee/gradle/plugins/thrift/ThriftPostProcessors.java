@@ -0,0 +1,168 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Optional;
+
+/**
+ * The post-processors built into {@link ThriftTask}.
+ */
+public final class ThriftPostProcessors {
+
+    private ThriftPostProcessors() {
+    }
+
+    /**
+     * Removes the date thrift writes into {@code @Generated} annotations,
+     * or replaces it with a fixed one.
+     */
+    public static final class Timestamps implements ThriftPostProcessor {
+
+        private static final long serialVersionUID = 1L;
+        private static final Pattern DATE = Pattern.compile("(,\\s*)?date\\s*=\\s*\"[^\"]*\"");
+
+        private final String date;
+
+        /** @param date The date to write instead, or null to remove it. */
+        public Timestamps(String date) {
+            this.date = date;
+        }
+
+        @Input
+        @Optional
+        public String getDate() {
+            return date;
+        }
+
+        @Override
+        public String header(String path) {
+            return null;
+        }
+
+        @Override
+        public String line(String path, String line) {
+            if (!line.contains("@Generated")) {
+                return line;
+            }
+            final Matcher matcher = DATE.matcher(line);
+            if (!matcher.find()) {
+                return line;
+            }
+            final String replacement = date == null ? "" : matcher.group().replaceFirst("\"[^\"]*\"", Matcher.quoteReplacement("\"" + date + "\""));
+            return line.substring(0, matcher.start()) + replacement + line.substring(matcher.end());
+        }
+
+        @Override
+        public String toString() {
+            return date == null ? "stripTimestamps" : "fixTimestamps(" + date + ")";
+        }
+    }
+
+    /** Ends every line with the same terminator. */
+    public static final class LineEndings implements ThriftPostProcessor {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String terminator;
+
+        public LineEndings(String terminator) {
+            this.terminator = terminator;
+        }
+
+        @Input
+        public String getTerminator() {
+            return terminator;
+        }
+
+        @Override
+        public String header(String path) {
+            return null;
+        }
+
+        @Override
+        public String line(String path, String line) {
+            int end = line.length();
+            if (end > 0 && line.charAt(end - 1) == '\n') {
+                end--;
+            }
+            if (end > 0 && line.charAt(end - 1) == '\r') {
+                end--;
+            }
+            if (end == line.length()) {
+                // The last line, without a terminator.
+                return line;
+            }
+            return line.substring(0, end) + terminator;
+        }
+
+        @Override
+        public String toString() {
+            return "normalizeLineEndings(" + terminator.replace("\r", "\\r").replace("\n", "\\n") + ")";
+        }
+    }
+
+    /** Writes a header at the top of every file with the given extension. */
+    public static final class LicenseHeader implements ThriftPostProcessor {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String text;
+        private final String extension;
+
+        /**
+         * @param text The header, written verbatim, so it must already be a
+         * comment in the language of the files.
+         */
+        public LicenseHeader(String text, String extension) {
+            this.text = text;
+            this.extension = extension;
+        }
+
+        @Input
+        public String getText() {
+            return text;
+        }
+
+        @Input
+        public String getExtension() {
+            return extension;
+        }
+
+        @Override
+        public String header(String path) {
+            if (!path.endsWith(extension)) {
+                return null;
+            }
+            // Keep the byte per char convention of the lines.
+            return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        public String line(String path, String line) {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return "licenseHeader(" + extension + "," + Integer.toHexString(text.hashCode()) + ")";
+        }
+    }
+}
@@ -0,0 +1,203 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDefinition;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDocument;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftParseException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.gradle.api.GradleException;
+
+/**
+ * Copies a set of IDLs, and everything they include, keeping only the
+ * definitions reachable from a set of roots.
+ *
+ * Each copy goes into a numbered directory of its own, under its original
+ * name, since that is what other IDLs qualify its definitions with. The
+ * copies include each other by relative paths, which thrift resolves
+ * against the including file before the include path.
+ */
+final class ThriftPruning {
+
+    private final Map<File, File> copies = new HashMap<>();
+    private final List<String> kept = new ArrayList<>();
+    private final List<String> pruned = new ArrayList<>();
+
+    private ThriftPruning() {
+    }
+
+    /**
+     * @param sources The IDLs which bare root names are looked up in.
+     * @param scratch A directory for the copies, whose contents are replaced.
+     */
+    static ThriftPruning prune(final Collection<File> sources, final List<File> includePath, final List<String> roots,
+            final File scratch) throws IOException {
+        final Map<File, ThriftProgram> cache = new TreeMap<>();
+        final List<ThriftProgram> programs = new ArrayList<>();
+        try {
+            for (final File source : sources) {
+                programs.add(ThriftProgram.load(source, includePath, cache));
+            }
+        } catch (ThriftParseException e) {
+            throw new GradleException("Could not parse thrift IDLs for pruning: " + e.getMessage(), e);
+        }
+
+        final Set<ThriftDefinition> reachable = new HashSet<>();
+        final Deque<ThriftProgram.Resolved> queue = new ArrayDeque<>();
+        for (final String root : roots) {
+            final List<ThriftProgram.Resolved> matches = findRoot(root, programs, cache.values());
+            if (matches.isEmpty()) {
+                throw new GradleException("No thrift definition matches the root " + root);
+            }
+            queue.addAll(matches);
+        }
+        while (!queue.isEmpty()) {
+            final ThriftProgram.Resolved resolved = queue.removeFirst();
+            if (!reachable.add(resolved.getDefinition())) {
+                continue;
+            }
+            for (final String name : resolved.getDefinition().getReferencedNames()) {
+                final ThriftProgram.Resolved target = resolve(resolved.getProgram(), name);
+                // Whatever does not resolve is left for thrift to report.
+                if (target != null) {
+                    queue.addLast(target);
+                }
+            }
+        }
+
+        ThriftOutputCache.deleteTree(scratch.toPath());
+        final ThriftPruning pruning = new ThriftPruning();
+        int index = 0;
+        for (final File file : cache.keySet()) {
+            pruning.copies.put(file, new File(new File(scratch, String.valueOf(index++)), file.getName()));
+        }
+        for (final Map.Entry<File, ThriftProgram> e : cache.entrySet()) {
+            pruning.write(e.getKey(), e.getValue(), includePath, reachable);
+        }
+        return pruning;
+    }
+
+    /**
+     * Finds the definitions a root names: bare names in any of the sources,
+     * qualified names in any loaded program of that name.
+     */
+    private static List<ThriftProgram.Resolved> findRoot(final String root, final List<ThriftProgram> sources,
+            final Collection<ThriftProgram> loaded) {
+        final List<ThriftProgram.Resolved> matches = new ArrayList<>();
+        final int dot = root.indexOf('.');
+        for (final ThriftProgram program : dot < 0 ? sources : loaded) {
+            if (dot > 0 && !program.getName().equals(root.substring(0, dot))) {
+                continue;
+            }
+            final ThriftProgram.Resolved resolved = program.resolve(dot < 0 ? root : root.substring(dot + 1));
+            if (resolved != null && resolved.getProgram() == program) {
+                matches.add(resolved);
+            }
+        }
+        return matches;
+    }
+
+    /** Resolves a referenced name, treating {@code Enum.VALUE} as a reference to the enum. */
+    private static ThriftProgram.Resolved resolve(final ThriftProgram program, final String name) {
+        final ThriftProgram.Resolved resolved = program.resolve(name);
+        final int dot = name.lastIndexOf('.');
+        if (resolved != null || dot < 0) {
+            return resolved;
+        }
+        return program.resolve(name.substring(0, dot));
+    }
+
+    /**
+     * Writes the headers of an IDL, with its includes pointing at the other
+     * copies, and then the definitions to keep, each with its doc comment.
+     */
+    private void write(final File file, final ThriftProgram program, final List<File> includePath,
+            final Set<ThriftDefinition> reachable) throws IOException {
+        final File copy = copies.get(file);
+        final String text = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        final ThriftDocument document = program.getDocument();
+        final StringBuilder out = new StringBuilder(text.substring(0, document.getHeaderEnd()));
+        int cursor = 0;
+        for (final ThriftDocument.Include include : document.getIncludes()) {
+            final File target = copies.get(ThriftProgram.resolveInclude(file, include.getPath(), includePath));
+            final String path = "../" + target.getParentFile().getName() + "/" + target.getName();
+            int at = out.indexOf("\"" + include.getPath() + "\"", cursor);
+            if (at < 0) {
+                at = out.indexOf("'" + include.getPath() + "'", cursor);
+            }
+            out.replace(at + 1, at + 1 + include.getPath().length(), path);
+            cursor = at + path.length() + 2;
+        }
+        out.append('\n');
+        for (final ThriftDefinition definition : document.getDefinitions()) {
+            final String name = program.getName() + "." + definition.getName();
+            if (reachable.contains(definition)) {
+                out.append('\n').append(text, definition.getStart(), definition.getEnd()).append('\n');
+                kept.add(name);
+            } else {
+                pruned.add(name);
+            }
+        }
+        Files.createDirectories(copy.getParentFile().toPath());
+        Files.write(copy.toPath(), out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** The pruned copy of an IDL, or the IDL itself if it was not pruned. */
+    File getCopy(final File file) {
+        final File copy = copies.get(ThriftProgram.normalize(file));
+        return copy != null ? copy : file;
+    }
+
+    /** What was kept and pruned, by name qualified with the file name, for the report. */
+    Map<String, Object> toMap(final List<String> roots) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put("roots", roots);
+        map.put("keptCount", kept.size());
+        map.put("prunedCount", pruned.size());
+        final List<String> sortedKept = new ArrayList<>(kept);
+        Collections.sort(sortedKept);
+        map.put("kept", sortedKept);
+        final List<String> sortedPruned = new ArrayList<>(pruned);
+        Collections.sort(sortedPruned);
+        map.put("pruned", sortedPruned);
+        return map;
+    }
+
+    int getKeptCount() {
+        return kept.size();
+    }
+
+    int getPrunedCount() {
+        return pruned.size();
+    }
+}
@@ -0,0 +1,94 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import groovy.json.JsonOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The machine-readable account of one execution of a {@link ThriftTask}:
+ * a summary of the whole run and the metrics of each invocation.
+ *
+ * Paths are written relative to the project directory, so that reports
+ * from different checkouts can be compared.
+ */
+final class ThriftReport {
+
+    private final File baseDirectory;
+    private final Map<String, Object> summary = new LinkedHashMap<>();
+    private final Map<ThriftInvocation, ThriftInvocationMetrics> invocations = new LinkedHashMap<>();
+
+    ThriftReport(File baseDirectory) {
+        this.baseDirectory = baseDirectory;
+    }
+
+    void put(String key, Object value) {
+        summary.put(key, value);
+    }
+
+    void addInvocations(Map<ThriftInvocation, ThriftInvocationMetrics> metrics) {
+        invocations.putAll(metrics);
+    }
+
+    /** Returns up to {@code count} invocations, slowest first. */
+    List<Map.Entry<ThriftInvocation, ThriftInvocationMetrics>> getSlowest(int count) {
+        final List<Map.Entry<ThriftInvocation, ThriftInvocationMetrics>> entries = new ArrayList<>(invocations.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<ThriftInvocation, ThriftInvocationMetrics>>() {
+            @Override
+            public int compare(Map.Entry<ThriftInvocation, ThriftInvocationMetrics> a, Map.Entry<ThriftInvocation, ThriftInvocationMetrics> b) {
+                return Long.compare(b.getValue().getTotalMillis(), a.getValue().getTotalMillis());
+            }
+        });
+        return entries.subList(0, Math.min(count, entries.size()));
+    }
+
+    void write(File file) throws IOException {
+        final List<Map<String, Object>> list = new ArrayList<>();
+        for (final Map.Entry<ThriftInvocation, ThriftInvocationMetrics> e : getSlowest(invocations.size())) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            map.put("generator", e.getKey().getGeneratorName());
+            map.put("file", relativize(e.getKey().getFile()));
+            map.put("outputDirectory", relativize(e.getKey().getOutputDirectory()));
+            map.putAll(e.getValue().toMap());
+            list.add(map);
+        }
+        final Map<String, Object> report = new LinkedHashMap<>();
+        report.put("summary", summary);
+        report.put("invocations", list);
+        Files.createDirectories(file.getParentFile().toPath());
+        Files.write(file.toPath(), JsonOutput.prettyPrint(JsonOutput.toJson(report)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String relativize(File file) {
+        try {
+            final String path = baseDirectory.toPath().relativize(file.toPath()).toString();
+            return path.startsWith("..") ? file.getPath() : path.replace(File.separatorChar, '/');
+        } catch (IllegalArgumentException e) {
+            // On another drive.
+            return file.getPath();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Hands out slots for thrift processes to every {@link ThriftTask} in the
+ * build, so that parallel projects together respect one limit.
+ *
+ * The limit is the smaller of {@code maxProcesses} and the number of
+ * processes of {@code memoryPerProcess} which fit in {@code memoryBudget}.
+ * Waiting invocations are granted slots longest first, by the duration
+ * recorded for them in earlier builds, which keeps the tail of the build
+ * short. The recorded durations are saved when the build finishes.
+ *
+ * Durations are keyed by task path, generators and project-relative IDL
+ * path, so that they survive moving the checkout. Each task that runs
+ * names the keys it still has, and its other durations are dropped.
+ */
+public abstract class ThriftSchedulerService implements BuildService<ThriftSchedulerService.Params>, AutoCloseable {
+
+    public static final String NAME = "thriftScheduler";
+
+    public interface Params extends BuildServiceParameters {
+
+        Property<Integer> getMaxProcesses();
+
+        /** The memory all thrift processes may use together, in bytes, or zero for no limit. */
+        Property<Long> getMemoryBudget();
+
+        /** The memory assumed for each thrift process, in bytes. */
+        Property<Long> getMemoryPerProcess();
+
+        /** Where durations are kept between builds. */
+        RegularFileProperty getHistoryFile();
+    }
+
+    private static final Logger LOGGER = Logging.getLogger(ThriftSchedulerService.class);
+
+    private final Object lock = new Object();
+
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    private long sequence;
+
+    private int running;
+
+    private Map<String, Long> history;
+
+    private final ConcurrentMap<String, Long> recorded = new ConcurrentHashMap<>();
+
+    /** The keys each task that ran still has, by the prefix of its keys. */
+    private final ConcurrentMap<String, Set<String>> retained = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+
+    private final AtomicLong totalRunMillis = new AtomicLong();
+
+    /** How many processes may run at once. */
+    public int getLimit() {
+        int limit = getParameters().getMaxProcesses().get();
+        final long budget = getParameters().getMemoryBudget().getOrElse(0L);
+        final long perProcess = getParameters().getMemoryPerProcess().getOrElse(0L);
+        if (budget > 0 && perProcess > 0) {
+            limit = (int) Math.min(limit, budget / perProcess);
+        }
+        return Math.max(1, limit);
+    }
+
+    /**
+     * Returns how long the keyed invocation took when it last ran, in
+     * milliseconds, or -1 if it is not known.
+     */
+    public long getRecordedMillis(String key) {
+        synchronized (lock) {
+            if (history == null) {
+                history = load(getParameters().getHistoryFile().getAsFile().getOrNull());
+            }
+            final Long millis = history.get(key);
+            return millis == null ? -1 : millis;
+        }
+    }
+
+    /**
+     * Declares the keys starting with the given prefix which still exist.
+     * When the build finishes, durations recorded for any other key with
+     * that prefix are dropped.
+     */
+    public void retain(String prefix, Set<String> keys) {
+        retained.put(prefix, new HashSet<>(keys));
+    }
+
+    /**
+     * Blocks until a slot is free and no waiter with a higher priority is
+     * queued.
+     *
+     * @param priority Higher values are granted first.
+     * @return How long the caller waited, in milliseconds.
+     */
+    public long acquire(long priority) throws InterruptedException {
+        final long start = System.nanoTime();
+        final int limit = getLimit();
+        synchronized (lock) {
+            final Waiter waiter = new Waiter(priority, sequence++);
+            waiters.add(waiter);
+            try {
+                while (waiters.peek() != waiter || running >= limit) {
+                    lock.wait();
+                }
+            } finally {
+                waiters.remove(waiter);
+                // The head of the queue may have changed.
+                lock.notifyAll();
+            }
+            running++;
+        }
+        final long waited = (System.nanoTime() - start) / 1000000;
+        totalWaitMillis.addAndGet(waited);
+        return waited;
+    }
+
+    /**
+     * Frees the slot taken by {@link #acquire}, recording how long the
+     * keyed invocation ran unless that is negative.
+     */
+    public void release(String key, long runMillis) {
+        synchronized (lock) {
+            running--;
+            lock.notifyAll();
+        }
+        if (runMillis >= 0) {
+            recorded.put(key, runMillis);
+            totalRunMillis.addAndGet(runMillis);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (recorded.isEmpty() && retained.isEmpty()) {
+            return;
+        }
+        LOGGER.info("Thrift processes ran for " + totalRunMillis.get() + "ms and waited " + totalWaitMillis.get()
+                + "ms for one of " + getLimit() + " slots");
+        final File file = getParameters().getHistoryFile().getAsFile().getOrNull();
+        if (file == null) {
+            return;
+        }
+        final Map<String, Long> merged;
+        synchronized (lock) {
+            merged = new TreeMap<>(history != null ? history : load(file));
+        }
+        merged.putAll(recorded);
+        for (final Iterator<String> it = merged.keySet().iterator(); it.hasNext();) {
+            if (!isRetained(it.next())) {
+                it.remove();
+            }
+        }
+        try {
+            save(file, merged);
+        } catch (IOException e) {
+            // Only the ordering of the next build suffers.
+            LOGGER.info("Could not save thrift durations to " + file + ": " + e);
+        }
+    }
+
+    private boolean isRetained(String key) {
+        if (!key.startsWith(":")) {
+            // Keyed by absolute path, by an older version.
+            return false;
+        }
+        for (final Map.Entry<String, Set<String>> e : retained.entrySet()) {
+            if (key.startsWith(e.getKey())) {
+                return e.getValue().contains(key);
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, Long> load(File file) {
+        final Map<String, Long> durations = new TreeMap<>();
+        if (file == null || !file.isFile()) {
+            return durations;
+        }
+        try {
+            for (final String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                final int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    durations.put(line.substring(tab + 1), Long.parseLong(line.substring(0, tab)));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            LOGGER.info("Ignoring unreadable thrift durations in " + file + ": " + e);
+            durations.clear();
+        }
+        return durations;
+    }
+
+    private static void save(File file, Map<String, Long> durations) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Map.Entry<String, Long> e : durations.entrySet()) {
+            lines.add(e.getValue() + "\t" + e.getKey());
+        }
+        Files.createDirectories(file.getParentFile().toPath());
+        final File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static final class Waiter implements Comparable<Waiter> {
+
+        private final long priority;
+        private final long sequence;
+
+        Waiter(long priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+        }
+    }
+}
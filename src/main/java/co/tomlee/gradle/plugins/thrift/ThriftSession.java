@@ -0,0 +1,197 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.gradle.api.GradleException;
+
+/**
+ * Shared state for the work items submitted by one execution of a
+ * {@link ThriftTask}.
+ *
+ * Work actions run without isolation, so they reach this through a static
+ * registry keyed by the id passed in their parameters. The first failure
+ * destroys every process still running in the session.
+ */
+final class ThriftSession {
+
+    private static final ConcurrentMap<String, ThriftSession> SESSIONS = new ConcurrentHashMap<>();
+
+    private final String id = UUID.randomUUID().toString();
+    private final Set<Process> processes = Collections.newSetFromMap(new ConcurrentHashMap<Process, Boolean>());
+    private final AtomicReference<GradleException> failure = new AtomicReference<>();
+    private final ConcurrentMap<ThriftInvocation, List<String>> outputs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<ThriftInvocation, ThriftInvocationMetrics> metrics = new ConcurrentHashMap<>();
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final AtomicInteger cacheMisses = new AtomicInteger();
+    private final AtomicLong waitMillis = new AtomicLong();
+    private final AtomicLong runMillis = new AtomicLong();
+    private volatile ThriftSchedulerService scheduler;
+    private volatile List<ThriftPostProcessor> postProcessors = Collections.emptyList();
+
+    private ThriftSession() {
+    }
+
+    public static ThriftSession open() {
+        final ThriftSession session = new ThriftSession();
+        SESSIONS.put(session.id, session);
+        return session;
+    }
+
+    public static ThriftSession get(String id) {
+        final ThriftSession session = SESSIONS.get(id);
+        if (session == null) {
+            throw new IllegalStateException("No such thrift session: " + id);
+        }
+        return session;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void close() {
+        SESSIONS.remove(id);
+    }
+
+    public boolean isFailed() {
+        return failure.get() != null;
+    }
+
+    public GradleException getFailure() {
+        return failure.get();
+    }
+
+    /**
+     * Returns false, having destroyed the process, if the session has already failed.
+     */
+    public boolean register(Process process) {
+        processes.add(process);
+        if (isFailed()) {
+            processes.remove(process);
+            process.destroy();
+            return false;
+        }
+        return true;
+    }
+
+    public void unregister(Process process) {
+        processes.remove(process);
+    }
+
+    /** Records the files, relative to its output directory, an invocation wrote. */
+    public void addOutputs(ThriftInvocation invocation, List<String> files) {
+        outputs.put(invocation, files);
+    }
+
+    public Map<ThriftInvocation, List<String>> getOutputs() {
+        return outputs;
+    }
+
+    public void addMetrics(ThriftInvocation invocation, ThriftInvocationMetrics metrics) {
+        this.metrics.put(invocation, metrics);
+    }
+
+    public Map<ThriftInvocation, ThriftInvocationMetrics> getMetrics() {
+        return metrics;
+    }
+
+    public void countWritten() {
+        written.incrementAndGet();
+    }
+
+    public void countUnchanged() {
+        unchanged.incrementAndGet();
+    }
+
+    public int getWritten() {
+        return written.get();
+    }
+
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    public void countCacheHit() {
+        cacheHits.incrementAndGet();
+    }
+
+    public void countCacheMiss() {
+        cacheMisses.incrementAndGet();
+    }
+
+    public int getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public int getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    /** Makes thrift processes in this session take their slots from the given scheduler. */
+    public void setScheduler(ThriftSchedulerService scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /** The build-wide scheduler, or null if processes are not scheduled. */
+    public ThriftSchedulerService getScheduler() {
+        return scheduler;
+    }
+
+    /** Runs every file written in this session through the given processors, in order. */
+    public void setPostProcessors(List<ThriftPostProcessor> postProcessors) {
+        this.postProcessors = postProcessors;
+    }
+
+    public List<ThriftPostProcessor> getPostProcessors() {
+        return postProcessors;
+    }
+
+    /** Records how long a process waited for its slot and then ran. */
+    public void addProcessTime(long waitMillis, long runMillis) {
+        this.waitMillis.addAndGet(waitMillis);
+        this.runMillis.addAndGet(runMillis);
+    }
+
+    public long getWaitMillis() {
+        return waitMillis.get();
+    }
+
+    public long getRunMillis() {
+        return runMillis.get();
+    }
+
+    public void fail(GradleException e) {
+        if (!failure.compareAndSet(null, e)) {
+            return;
+        }
+        for (final Process process : processes) {
+            process.destroy();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packs generated sources into a deterministic source archive.
+ *
+ * Generators writing a srcjar still write loose files, but into a scratch
+ * directory in the task's temporary directory. An incremental run unpacks
+ * the archive there first, regenerates only what changed, and repacks the
+ * archive from it. The scratch directory is deleted once the archive is
+ * packed, so the archive, which is a declared output, is all that carries
+ * over between runs.
+ *
+ * The archive is rooted at each generator's {@code gen-<lang>} directory,
+ * so that its entries are paths within the generated packages. Each entry
+ * names the directory it came from in its comment, which is how unpacking
+ * puts it back where the generator would have written it.
+ */
+final class ThriftSrcjar {
+
+    /**
+     * The time of every entry, as Gradle's reproducible archives use. Zip
+     * times are local, so a local time converts back to the same fields in
+     * any time zone.
+     */
+    private static final long ENTRY_TIME = new GregorianCalendar(1980, 1, 1, 0, 0, 0).getTimeInMillis();
+
+    /** The prefix of the directories thrift generates into, one per language. */
+    private static final String GEN_PREFIX = "gen-";
+
+    private ThriftSrcjar() {
+    }
+
+    /** Returns the scratch directory for the given archive, under the given directory. */
+    static File getScratchDirectory(File srcjar, File root) {
+        return new File(root, UUID.nameUUIDFromBytes(srcjar.getAbsolutePath().getBytes(StandardCharsets.UTF_8)).toString());
+    }
+
+    static void unpack(File srcjar, File dir) throws IOException {
+        final Path root = dir.toPath();
+        try (ZipFile zip = new ZipFile(srcjar)) {
+            for (final Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                final ZipEntry entry = entries.nextElement();
+                final String gen = entry.getComment();
+                final Path base = gen != null && gen.startsWith(GEN_PREFIX) && gen.indexOf('/') < 0 ? root.resolve(gen) : root;
+                final Path target = base.resolve(entry.getName()).normalize();
+                if (entry.isDirectory() || !target.startsWith(root)) {
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                try (InputStream in = zip.getInputStream(entry)) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes every file under the directory into the archive, sorted by
+     * name and with fixed timestamps, replacing the archive atomically.
+     *
+     * @throws IOException if two generators write the same entry.
+     */
+    static void pack(File dir, File srcjar) throws IOException {
+        final Path root = dir.toPath();
+        final List<String> paths = new ArrayList<>();
+        if (dir.isDirectory()) {
+            Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    paths.add(root.relativize(file).toString().replace(File.separatorChar, '/'));
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        // Entry name to the path it is packed from.
+        final Map<String, String> names = new TreeMap<>();
+        for (final String path : paths) {
+            final String name = path.startsWith(GEN_PREFIX) && path.indexOf('/') > 0 ? path.substring(path.indexOf('/') + 1) : path;
+            final String previous = names.put(name, path);
+            if (previous != null) {
+                throw new IOException("Both " + previous + " and " + path + " would be " + name + " in " + srcjar);
+            }
+        }
+
+        Files.createDirectories(srcjar.getAbsoluteFile().getParentFile().toPath());
+        final File tmp = new File(srcjar.getPath() + ".tmp");
+        try (ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp.toPath())))) {
+            for (final Map.Entry<String, String> e : names.entrySet()) {
+                final String path = e.getValue();
+                final ZipEntry entry = new ZipEntry(e.getKey());
+                entry.setTime(ENTRY_TIME);
+                if (!path.equals(e.getKey())) {
+                    entry.setComment(path.substring(0, path.indexOf('/')));
+                }
+                out.putNextEntry(entry);
+                Files.copy(root.resolve(path), (OutputStream) out);
+                out.closeEntry();
+            }
+        }
+        try {
+            Files.move(tmp.toPath(), srcjar.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), srcjar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -16,31 +16,59 @@
 // SOFTWARE.
 package co.tomlee.gradle.plugins.thrift;
 
+import co.tomlee.gradle.plugins.thrift.codegen.JavaGenerator;
 import groovy.lang.Closure;
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.NamedDomainObjectContainer;
-import org.gradle.api.file.SourceDirectorySet;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DeleteSpec;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.tasks.*;
 import org.gradle.api.tasks.incremental.IncrementalTaskInputs;
 import org.gradle.api.tasks.incremental.InputFileDetails;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.CountDownLatch;
+import javax.inject.Inject;
 import org.gradle.api.file.FileTree;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutionException;
+import org.gradle.workers.WorkerExecutor;
 
+@CacheableTask
 public class ThriftTask extends SourceTask {
 
     private File thrift;
 
-    private final NamedDomainObjectContainer<Generator> generators = getProject().container(Generator.class);
+    /**
+     * The DSL for declaring generators. It is not kept by the configuration
+     * cache, so everything after configuration reads {@link #generatorList}.
+     */
+    private final transient NamedDomainObjectContainer<Generator> generators;
+
+    private final ListProperty<Generator> generatorList;
 
     private final ArrayList<File> include = new ArrayList<>();
 
-    private SourceDirectorySet source;
+    private final ConfigurableFileCollection includeDependencies;
+
+    private final Property<Boolean> prebuiltComplete;
+
+    /** The include directories extracted from {@link #includeDependencies} by the current run. */
+    private List<File> dependencyIncludes = Collections.emptyList();
 
-    private File out = getProject().file("build/generated-src/thrift");
+    private final File gradleUserHome;
+
+    private final DirectoryProperty outputDirectory;
 
     private boolean recurse = true;
 
@@ -50,63 +78,848 @@ public class ThriftTask extends SourceTask {
 
     private boolean debug = false;
 
+    private final Property<Integer> maxParallelInvocations;
+
+    private boolean writeIfChanged = false;
+
+    private boolean coalesceGenerators = false;
+
+    private boolean semanticChangeDetection = false;
+
+    private boolean outputCache = false;
+
+    private long outputCacheMaxSize = 1024L * 1024 * 1024;
+
+    private File outputCacheDirectory;
+
+    private final List<ThriftPostProcessor> postProcessors = new ArrayList<>();
+
+    private final WorkerExecutor workerExecutor;
+
+    private final ProjectLayout layout;
+
+    private final FileSystemOperations fileSystemOperations;
+
+    private final Property<ThriftCompilerService> compilerService;
+
+    private final Property<ThriftSchedulerService> scheduler;
+
+    private long schedulerWaitMillis;
+
+    private long schedulerRunMillis;
+
+    private final RegularFileProperty reportFile;
+
+    private final DirectoryProperty stateDirectory;
+
+    private int reportSlowest = 0;
+
+    /** Invocations which never ran before are scheduled above every recorded duration. */
+    private static final long UNKNOWN_PRIORITY = Long.MAX_VALUE / 2;
+
+    @Inject
+    public ThriftTask(final WorkerExecutor workerExecutor, final ObjectFactory objectFactory, final ProjectLayout layout,
+            final FileSystemOperations fileSystemOperations) {
+        this.workerExecutor = workerExecutor;
+        this.layout = layout;
+        this.fileSystemOperations = fileSystemOperations;
+        this.compilerService = objectFactory.property(ThriftCompilerService.class);
+        this.scheduler = objectFactory.property(ThriftSchedulerService.class);
+        this.reportFile = objectFactory.fileProperty()
+                .convention(layout.getBuildDirectory().file("reports/thrift/" + getName() + ".json"));
+        this.outputDirectory = objectFactory.directoryProperty()
+                .convention(layout.getBuildDirectory().dir("generated-src/thrift"));
+        this.stateDirectory = objectFactory.directoryProperty()
+                .convention(layout.getBuildDirectory().dir("thrift-state/" + getName()));
+        this.maxParallelInvocations = objectFactory.property(Integer.class)
+                .convention(getProject().getGradle().getStartParameter().getMaxWorkerCount());
+        this.outputCacheDirectory = new File(getProject().getGradle().getGradleUserHomeDir(), "caches/thrift-plugin");
+        this.includeDependencies = objectFactory.fileCollection();
+        this.prebuiltComplete = objectFactory.property(Boolean.class).convention(false);
+        this.gradleUserHome = getProject().getGradle().getGradleUserHomeDir();
+
+        this.generatorList = objectFactory.listProperty(Generator.class);
+        this.generators = objectFactory.domainObjectContainer(Generator.class);
+        this.generators.all(new Action<Generator>() {
+            @Override
+            public void execute(Generator generator) {
+                generatorList.add(generator);
+            }
+        });
+        this.generators.whenObjectRemoved(new Action<Generator>() {
+            @Override
+            public void execute(Generator generator) {
+                final List<Generator> remaining = new ArrayList<>(generatorList.get());
+                remaining.remove(generator);
+                generatorList.set(remaining);
+            }
+        });
+    }
+
     @TaskAction
     public void invokeThrift(final IncrementalTaskInputs inputs) throws Exception {
+        final long start = System.nanoTime();
+        final ThriftReport report = new ThriftReport(layout.getProjectDirectory().getAsFile());
+        resolveDependencyIncludes();
+        final List<File> includePath = getIncludePath();
+
+        final Set<File> sources = new LinkedHashSet<>();
+        for (final File file : getSource().getFiles()) {
+            sources.add(ThriftIncludeGraph.normalize(file));
+        }
+
+        //
+        // The state between runs is an output, so that the build cache
+        // restores it together with the outputs it describes. It holds
+        // absolute paths, so state restored into another checkout is
+        // dropped, and the run is a full one.
+        //
+        final boolean stateCurrent = isStateCurrent();
+        if (!stateCurrent) {
+            resetState();
+        }
+
+        //
+        // Keep the include graph between runs, so that a change to an IDL
+        // also regenerates everything which includes it.
+        //
+        final File graphFile = getIncludeGraphFile();
+        final ThriftIncludeGraph previousGraph = ThriftIncludeGraph.load(graphFile, includePath);
+        final ThriftIncludeGraph graph = previousGraph.rescan(sources);
+        graph.save(graphFile);
+
+        //
+        // Fingerprints of the token streams let an incremental run ignore
+        // edits to whitespace and comments. They are only saved once the
+        // run succeeds, so a failed run is retried in full.
+        //
+        final File fingerprintFile = getFingerprintFile();
+        final ThriftFingerprints fingerprints = ThriftFingerprints.load(fingerprintFile);
+
         final ArrayList<File> inputFiles = new ArrayList<>();
-        if (inputs.isIncremental()) {
+        final Set<File> changed = new HashSet<>();
+        boolean incremental = inputs.isIncremental() && stateCurrent;
+        if (incremental) {
             inputs.outOfDate(new Action<InputFileDetails>() {
                 @Override
                 public void execute(InputFileDetails inputFileDetails) {
-                    if (inputFileDetails.isAdded() || inputFileDetails.isModified()) {
-                        inputFiles.add(inputFileDetails.getFile());
-                    }
+                    changed.add(inputFileDetails.getFile());
+                }
+            });
+            inputs.removed(new Action<InputFileDetails>() {
+                @Override
+                public void execute(InputFileDetails inputFileDetails) {
+                    changed.add(inputFileDetails.getFile());
                 }
             });
+            //
+            // The include graph only sees the IDLs extracted from an archive,
+            // under a directory named after its content, so a changed
+            // archive regenerates everything.
+            //
+            for (final File file : changed) {
+                if (isDependencyArchive(file, sources)) {
+                    getLogger().info("Thrift dependency " + file + " changed, regenerating all IDLs");
+                    incremental = false;
+                    break;
+                }
+            }
+        }
+        report.put("incremental", incremental);
+        report.put("sources", sources.size());
+        if (incremental) {
+            if (semanticChangeDetection) {
+                final int modified = changed.size();
+                final boolean docs = isAnyGeneratorDocumenting();
+                for (final Iterator<File> it = changed.iterator(); it.hasNext();) {
+                    final File file = ThriftIncludeGraph.normalize(it.next());
+                    if (!sources.contains(file)) {
+                        fingerprints.remove(file);
+                    } else if (fingerprints.update(file, docs)) {
+                        it.remove();
+                    }
+                }
+                getLogger().info((modified - changed.size()) + " modified thrift inputs are semantically unchanged");
+                report.put("semanticallyUnchanged", modified - changed.size());
+            }
+            final Set<File> affected = getAffected(previousGraph, graph, changed);
+            for (final File file : sources) {
+                if (affected.contains(file)) {
+                    inputFiles.add(file);
+                }
+            }
+            getLogger().info(changed.size() + " thrift inputs changed, regenerating " + inputFiles.size() + " IDLs");
+            report.put("changedInputs", changed.size());
         } else {
-            inputFiles.addAll(getSource().getFiles());
+            inputFiles.addAll(sources);
+            if (semanticChangeDetection) {
+                final boolean docs = isAnyGeneratorDocumenting();
+                fingerprints.clear();
+                for (final File file : sources) {
+                    fingerprints.update(file, docs);
+                }
+            }
         }
 
-        for (final Generator generator : generators) {
+        //
+        // Whatever was generated for the IDLs we are about to regenerate, or
+        // which no longer exist, is stale unless this run produces it again.
+        //
+        final File manifestFile = getManifestFile();
+        final ThriftOutputManifest manifest = ThriftOutputManifest.load(manifestFile);
+        final List<File> staleCandidates = new ArrayList<>();
+        if (incremental) {
+            for (final File file : changed) {
+                staleCandidates.addAll(manifest.remove(ThriftIncludeGraph.normalize(file)));
+            }
             for (final File file : inputFiles) {
-                final File out = generatorOutputDirectory(generator);
+                staleCandidates.addAll(manifest.remove(file));
+            }
+        } else {
+            staleCandidates.addAll(manifest.clear());
+        }
 
-                final List<String> command = buildCommand(generator, out, file.getAbsolutePath());
-                getProject().getLogger().info("Running thrift: " + command);
-                if (!out.isDirectory()) {
-                    if (!out.mkdirs()) {
-                        throw new GradleException("Could not create thrift output directory: " + out);
-                    }
+        //
+        // Generators with roots regenerate from every IDL once any changed,
+        // since an edit anywhere can change what the roots reach.
+        //
+        if (incremental && !inputFiles.isEmpty()) {
+            for (final Generator generator : generatorList.get()) {
+                if (generator.isPruning()) {
+                    staleCandidates.addAll(manifest.removeGenerator(generator.getName()));
                 }
-                final CountDownLatch latch = new CountDownLatch(2);
+            }
+        }
 
-                try {
-                    final Process p = new ProcessBuilder(command).start();
-                    new SlurpThread(latch, p.getInputStream(), System.out).start();
-                    new SlurpThread(latch, p.getErrorStream(), System.err).start();
+        //
+        // Generators writing a srcjar regenerate into a scratch directory,
+        // which has to match the archive an incremental run starts from.
+        //
+        createSrcjarScratchDirectories(incremental);
 
-                    if (p.waitFor() != 0) {
-                        throw new GradleException(getExecutable() + " command failed");
-                    }
-                    latch.await();
-                } catch (GradleException e) {
+        //
+        // With -recurse, compiling an IDL also compiles everything it
+        // includes, so only the IDLs no other input includes need a run.
+        //
+        report.put("regenerated", inputFiles.size());
+        report.put("skippedUnchanged", sources.size() - inputFiles.size());
+        if (isRecursing() && inputFiles.size() > 1) {
+            final Map<File, Set<File>> plan = graph.planRoots(inputFiles);
+            getLogger().info("Thrift plan: " + plan.size() + " root IDLs cover " + inputFiles.size() + " inputs");
+            for (final Map.Entry<File, Set<File>> e : plan.entrySet()) {
+                if (e.getValue().isEmpty()) {
+                    getLogger().info("  " + e.getKey());
+                } else {
+                    getLogger().info("  " + e.getKey() + " (covers " + e.getValue() + ")");
+                }
+            }
+            report.put("coveredByRecurse", inputFiles.size() - plan.size());
+            inputFiles.clear();
+            inputFiles.addAll(plan.keySet());
+        }
+
+        final File stagingRoot = new File(getTemporaryDir(), "staging");
+        fileSystemOperations.delete(new Action<DeleteSpec>() {
+            @Override
+            public void execute(DeleteSpec spec) {
+                spec.delete(stagingRoot);
+            }
+        });
+
+        final Map<File, List<List<Generator>>> batches = batchGenerators();
+        final Map<String, Object> pruningReport = new LinkedHashMap<>();
+        final List<ThriftInvocation> invocations = createInvocations(batches, inputFiles, graph, stagingRoot, pruningReport);
+        if (!pruningReport.isEmpty()) {
+            report.put("pruning", pruningReport);
+        }
+        final Set<File> outputDirectories = batches.keySet();
+        retainSchedulingKeys(batches, graph);
+        prioritize(invocations, graph);
+
+        //
+        // The report is written even if the run fails, since that is
+        // when it is most needed.
+        //
+        final File reportOutput = reportFile.get().getAsFile();
+        boolean succeeded = false;
+        try {
+            final Map<ThriftInvocation, List<String>> outputs = runInvocations(invocations, report);
+            for (final Map.Entry<ThriftInvocation, List<String>> e : outputs.entrySet()) {
+                final ThriftInvocation invocation = e.getKey();
+                manifest.put(invocation.getGeneratorName(), invocation.getFile(), invocation.getOutputDirectory(), e.getValue());
+            }
+            if (outputCache) {
+                new ThriftOutputCache(outputCacheDirectory).evict(outputCacheMaxSize);
+            }
+            final int deleted = manifest.deleteUnclaimed(staleCandidates, outputDirectories);
+            if (deleted > 0) {
+                getLogger().info("Deleted " + deleted + " stale thrift outputs");
+            }
+            report.put("staleDeleted", deleted);
+            packSrcjars();
+            deleteSrcjarScratchDirectories();
+            manifest.save(manifestFile);
+            if (semanticChangeDetection) {
+                fingerprints.save(fingerprintFile);
+            } else if (fingerprintFile.exists() && !fingerprintFile.delete()) {
+                throw new GradleException("Could not delete stale thrift fingerprints: " + fingerprintFile);
+            }
+            succeeded = true;
+        } finally {
+            report.put("failed", !succeeded);
+            report.put("wallMillis", (System.nanoTime() - start) / 1000000);
+            try {
+                report.write(reportOutput);
+            } catch (IOException e) {
+                if (succeeded) {
                     throw e;
-                } catch (Exception e) {
-                    throw new GradleException("Unexpected error while executing thrift: " + e.getMessage(), e);
                 }
+                // Let the failure of the run through instead.
+                getLogger().warn("Could not write the thrift report " + reportOutput + ": " + e);
+            }
+        }
+        if (reportSlowest > 0) {
+            final List<Map.Entry<ThriftInvocation, ThriftInvocationMetrics>> slowest = report.getSlowest(reportSlowest);
+            if (!slowest.isEmpty()) {
+                getLogger().lifecycle("Slowest thrift invocations (report: " + reportOutput + "):");
+                for (final Map.Entry<ThriftInvocation, ThriftInvocationMetrics> e : slowest) {
+                    getLogger().lifecycle(String.format("  %6dms  %-9s  %s", e.getValue().getTotalMillis(),
+                            e.getValue().getSource(), e.getKey()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the IDLs to regenerate once the given files changed: those
+     * which include them, before or after the change.
+     */
+    Set<File> getAffected(final ThriftIncludeGraph previousGraph, final ThriftIncludeGraph graph, final Set<File> changed) {
+        final Set<File> affected = graph.getDependents(changed);
+        affected.addAll(previousGraph.getDependents(changed));
+        if (isRecursing()) {
+            //
+            // With -recurse, a root claimed the outputs of everything it
+            // included. Once it is regenerated or gone, those outputs
+            // are stale candidates, so whatever it used to include has
+            // to claim them again, through the new plan.
+            //
+            final Set<File> previouslyIncluded = new HashSet<>();
+            for (final File file : changed) {
+                previouslyIncluded.addAll(previousGraph.getTransitiveIncludes(file));
+            }
+            for (final File file : affected) {
+                previouslyIncluded.addAll(previousGraph.getTransitiveIncludes(file));
             }
+            affected.addAll(previouslyIncluded);
         }
+        return affected;
     }
 
+    /** The output directory of every generator, and the scratch directory of every srcjar. */
+    Set<File> getGeneratedDirectories() {
+        return batchGenerators().keySet();
+    }
+
+    File getIncludeGraphFile() {
+        return new File(stateDirectory.get().getAsFile(), "include-graph.txt");
+    }
+
+    File getFingerprintFile() {
+        return new File(stateDirectory.get().getAsFile(), "fingerprints.txt");
+    }
+
+    File getManifestFile() {
+        return new File(stateDirectory.get().getAsFile(), "outputs.txt");
+    }
+
+    /** Records which project directory the state files were written for. */
+    private File getStampFile() {
+        return new File(stateDirectory.get().getAsFile(), "project.txt");
+    }
+
+    private String getStamp() {
+        return ThriftIncludeGraph.normalize(layout.getProjectDirectory().getAsFile()).getPath() + "\n";
+    }
+
+    /** Whether the state files were written for this project directory. */
+    private boolean isStateCurrent() throws IOException {
+        final File stamp = getStampFile();
+        return stamp.isFile() && new String(Files.readAllBytes(stamp.toPath()), StandardCharsets.UTF_8).equals(getStamp());
+    }
+
+    /** Deletes the state files, then claims the state directory for this project directory. */
+    private void resetState() throws IOException {
+        final File dir = stateDirectory.get().getAsFile();
+        ThriftOutputCache.deleteTree(dir.toPath());
+        Files.createDirectories(dir.toPath());
+        Files.write(getStampFile().toPath(), getStamp().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Whether a changed input is an archive from {@link #getIncludeDependencies()}
+     * rather than an IDL: it is neither a source, nor an IDL, nor anything
+     * else in an include directory.
+     */
+    private boolean isDependencyArchive(final File file, final Set<File> sources) {
+        final File normalized = ThriftIncludeGraph.normalize(file);
+        if (sources.contains(normalized) || normalized.getName().endsWith(".thrift")) {
+            return false;
+        }
+        for (final File dir : include) {
+            if (normalized.toPath().startsWith(ThriftIncludeGraph.normalize(dir).toPath())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Groups the generators by output directory. Generators which share an
+     * output directory can share a process, since thrift accepts any number
+     * of --gen flags.
+     */
+    private Map<File, List<List<Generator>>> batchGenerators() {
+        final Map<File, List<List<Generator>>> batches = new LinkedHashMap<>();
+        for (final Generator generator : generatorList.get()) {
+            final File out = ThriftIncludeGraph.normalize(generatorOutputDirectory(generator));
+            List<List<Generator>> groups = batches.get(out);
+            if (groups == null) {
+                groups = new ArrayList<>();
+                batches.put(out, groups);
+            }
+            final List<Generator> nativeGroup = findNativeGroup(groups);
+            if (coalesceGenerators && !generator.isInProcess() && !generator.isPruning() && nativeGroup != null) {
+                nativeGroup.add(generator);
+            } else {
+                groups.add(new ArrayList<>(Collections.singletonList(generator)));
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Creates the invocations which regenerate the given IDLs, each staging
+     * its outputs in a directory of its own under the staging root.
+     */
+    List<ThriftInvocation> createInvocations(final List<File> inputFiles, final ThriftIncludeGraph graph, final File stagingRoot)
+            throws IOException {
+        return createInvocations(batchGenerators(), inputFiles, graph, stagingRoot, new HashMap<String, Object>());
+    }
+
+    /**
+     * @param pruningReport Receives what each generator with roots pruned.
+     */
+    private List<ThriftInvocation> createInvocations(final Map<File, List<List<Generator>>> batches, final List<File> inputFiles,
+            final ThriftIncludeGraph graph, final File stagingRoot, final Map<String, Object> pruningReport) throws IOException {
+        final List<File> includePath = getIncludePath();
+        final List<ThriftInvocation> invocations = new ArrayList<>();
+        final Map<File, String> contentHashes = new HashMap<>();
+        for (final Map.Entry<File, List<List<Generator>>> e : batches.entrySet()) {
+            final File out = e.getKey();
+            if (!out.isDirectory()) {
+                if (!out.mkdirs()) {
+                    throw new GradleException("Could not create thrift output directory: " + out);
+                }
+            }
+            for (final List<Generator> group : e.getValue()) {
+                final List<String> names = new ArrayList<>();
+                for (final Generator generator : group) {
+                    names.add(generator.getName());
+                }
+                final Generator first = group.get(0);
+                if (first.isInProcess() && !first.getName().equals(JavaGenerator.NAME)) {
+                    throw new GradleException("The " + Generator.ENGINE_INPROCESS + " engine only supports the "
+                            + JavaGenerator.NAME + " generator, not " + first.getName());
+                }
+                List<File> files = inputFiles;
+                ThriftPruning pruning = null;
+                if (first.isPruning()) {
+                    if (inputFiles.isEmpty()) {
+                        continue;
+                    }
+                    pruning = prune(first, includePath, pruningReport);
+                    files = getPruningInputs(graph);
+                }
+                for (final File file : files) {
+                    final File input = pruning == null ? file : pruning.getCopy(file);
+                    final File staging = new File(stagingRoot, String.valueOf(invocations.size()));
+                    final List<String> command = buildCommand(group, staging, input.getAbsolutePath());
+                    final ThriftInvocation invocation = new ThriftInvocation(join("+", names), input, out, staging, command)
+                            .schedulingKey(schedulingKey(names, file));
+                    if (first.isInProcess()) {
+                        invocation.inProcess(first.getOptions(), includePath, isRecursing());
+                    }
+                    if (outputCache) {
+                        invocation.cacheKey(cacheKey(graph, group, file, pruning, contentHashes));
+                    }
+                    invocations.add(invocation);
+                }
+            }
+        }
+        return invocations;
+    }
+
+    /**
+     * Copies the task's IDLs, keeping only what the generator's roots reach,
+     * into a scratch directory of its own.
+     */
+    private ThriftPruning prune(final Generator generator, final List<File> includePath, final Map<String, Object> pruningReport)
+            throws IOException {
+        final File scratch = new File(getTemporaryDir(), "pruned/" + generator.getName().replaceAll("[^A-Za-z0-9]", "_"));
+        final ThriftPruning pruning = ThriftPruning.prune(getPruningInputs(null), includePath, generator.getRoots(), scratch);
+        getLogger().info("Pruned " + pruning.getPrunedCount() + " of " + (pruning.getKeptCount() + pruning.getPrunedCount())
+                + " thrift definitions for the " + generator.getName() + " generator");
+        pruningReport.put(generator.getName(), pruning.toMap(generator.getRoots()));
+        return pruning;
+    }
+
+    /**
+     * The IDLs a generator with roots compiles: all of the task's IDLs, or
+     * with -recurse and a graph, only those no other IDL includes.
+     */
+    private List<File> getPruningInputs(final ThriftIncludeGraph graph) {
+        final List<File> sources = new ArrayList<>();
+        for (final File file : getSource().getFiles()) {
+            sources.add(ThriftIncludeGraph.normalize(file));
+        }
+        if (graph == null || !isRecursing()) {
+            return sources;
+        }
+        return new ArrayList<>(graph.planRoots(sources).keySet());
+    }
+
+    /**
+     * Describes everything which determines what an invocation generates:
+     * the compiler, the flags, the generators and the content of the IDL
+     * and of everything it includes. Paths are left out, so that projects
+     * compiling the same IDLs share entries. With pruning, the content is
+     * that of the pruned copies.
+     */
+    private String cacheKey(final ThriftIncludeGraph graph, final List<Generator> group, final File file,
+            final ThriftPruning pruning, final Map<File, String> contentHashes) throws IOException {
+        final List<String> parts = new ArrayList<>();
+        parts.add("compiler " + getCompilerVersion());
+        parts.add("flags recurse=" + isRecursing() + " verbose=" + verbose + " strict=" + strict + " debug=" + debug);
+        for (final Generator generator : group) {
+            parts.add("generator " + generator.getName() + " " + generator.getEngine() + " " + generator.getOptions()
+                    + " " + generator.getRoots());
+        }
+        parts.add("idl " + file.getName() + " " + contentHash(pruning == null ? file : pruning.getCopy(file), contentHashes));
+        final List<String> includes = new ArrayList<>();
+        for (final File included : graph.getTransitiveIncludes(file)) {
+            includes.add("include " + included.getName() + " "
+                    + contentHash(pruning == null ? included : pruning.getCopy(included), contentHashes));
+        }
+        Collections.sort(includes);
+        parts.addAll(includes);
+        return ThriftOutputCache.key(parts);
+    }
+
+    private static String contentHash(final File file, final Map<File, String> contentHashes) throws IOException {
+        String hash = contentHashes.get(file);
+        if (hash == null) {
+            hash = ThriftOutputCache.hash(file);
+            contentHashes.put(file, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Keys the duration of an invocation by this task, its generators and
+     * the project-relative path of the IDL, so that the durations apply in
+     * any checkout.
+     */
+    private String schedulingKey(final List<String> generatorNames, final File file) {
+        String path;
+        try {
+            path = layout.getProjectDirectory().getAsFile().toPath().toAbsolutePath()
+                    .relativize(file.toPath().toAbsolutePath()).toString().replace(File.separatorChar, '/');
+        } catch (IllegalArgumentException e) {
+            // On another drive.
+            path = file.getAbsolutePath();
+        }
+        return getPath() + " " + join("+", generatorNames) + " " + path;
+    }
+
+    /**
+     * Tells the scheduler which of this task's durations may still be
+     * used, which is those of every IDL in the include graph, so that the
+     * others are dropped.
+     */
+    private void retainSchedulingKeys(final Map<File, List<List<Generator>>> batches, final ThriftIncludeGraph graph) {
+        final ThriftSchedulerService service = scheduler.getOrNull();
+        if (service == null) {
+            return;
+        }
+        final Set<String> keys = new HashSet<>();
+        for (final List<List<Generator>> groups : batches.values()) {
+            for (final List<Generator> group : groups) {
+                final List<String> names = new ArrayList<>();
+                for (final Generator generator : group) {
+                    names.add(generator.getName());
+                }
+                for (final File file : graph.getFiles()) {
+                    keys.add(schedulingKey(names, file));
+                }
+            }
+        }
+        service.retain(getPath() + " ", keys);
+    }
+
+    /**
+     * Orders the invocations longest first, by the durations the scheduler
+     * recorded in earlier builds. Invocations which never ran go ahead of
+     * the rest, those with the largest IDLs first, since nothing is known
+     * about them.
+     */
+    private void prioritize(final List<ThriftInvocation> invocations, final ThriftIncludeGraph graph) {
+        final ThriftSchedulerService service = scheduler.getOrNull();
+        for (final ThriftInvocation invocation : invocations) {
+            final long recorded = service == null ? -1 : service.getRecordedMillis(invocation.getSchedulingKey());
+            if (recorded >= 0) {
+                invocation.priority(recorded);
+            } else {
+                long bytes = invocation.getFile().length();
+                for (final File included : graph.getTransitiveIncludes(invocation.getFile())) {
+                    bytes += included.length();
+                }
+                invocation.priority(UNKNOWN_PRIORITY + bytes);
+            }
+        }
+        Collections.sort(invocations, new Comparator<ThriftInvocation>() {
+            @Override
+            public int compare(ThriftInvocation a, ThriftInvocation b) {
+                return Long.compare(b.getPriority(), a.getPriority());
+            }
+        });
+    }
+
+    /** Whether any generator copies doc comments into its output. */
+    boolean isAnyGeneratorDocumenting() {
+        for (final Generator generator : generatorList.get()) {
+            if (generator.isDocs()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the group which further native generators are coalesced into,
+     * or null if there is none yet. Generators with roots keep to themselves.
+     */
+    private static List<Generator> findNativeGroup(final List<List<Generator>> groups) {
+        for (final List<Generator> group : groups) {
+            if (!group.get(0).isInProcess() && !group.get(0).isPruning()) {
+                return group;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Runs the given invocations through the worker API and returns the
+     * files each one wrote, relative to its output directory.
+     */
+    private Map<ThriftInvocation, List<String>> runInvocations(final List<ThriftInvocation> invocations, final ThriftReport report) {
+        report.put("invocationCount", invocations.size());
+        if (invocations.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        //
+        // Each lane runs its invocations in sequence, so the number of lanes
+        // bounds how many thrift processes this task has running at once.
+        //
+        final int laneCount = Math.max(1, Math.min(getMaxParallelInvocations(), invocations.size()));
+        //
+        // The invocations arrive longest first, so giving each to the lane
+        // with the least work so far balances the lanes.
+        //
+        long knownMillis = 0;
+        int known = 0;
+        for (final ThriftInvocation invocation : invocations) {
+            if (invocation.getPriority() < UNKNOWN_PRIORITY) {
+                knownMillis += invocation.getPriority();
+                known++;
+            }
+        }
+        final long unknownMillis = known == 0 ? 1 : Math.max(1, knownMillis / known);
+        final List<List<ThriftInvocation>> lanes = new ArrayList<>();
+        final long[] load = new long[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayList<ThriftInvocation>());
+        }
+        for (final ThriftInvocation invocation : invocations) {
+            int lightest = 0;
+            for (int i = 1; i < laneCount; i++) {
+                if (load[i] < load[lightest]) {
+                    lightest = i;
+                }
+            }
+            lanes.get(lightest).add(invocation);
+            load[lightest] += invocation.getPriority() < UNKNOWN_PRIORITY ? Math.max(1, invocation.getPriority()) : unknownMillis;
+        }
+        getLogger().info("Running " + invocations.size() + " thrift invocations in " + laneCount + " lanes");
+
+        final ThriftSession session = ThriftSession.open();
+        session.setScheduler(scheduler.getOrNull());
+        session.setPostProcessors(getPostProcessors());
+        try {
+            final WorkQueue queue = workerExecutor.noIsolation();
+            for (final List<ThriftInvocation> lane : lanes) {
+                queue.submit(ThriftWorkAction.class, new Action<ThriftWorkAction.Parameters>() {
+                    @Override
+                    public void execute(ThriftWorkAction.Parameters parameters) {
+                        parameters.getSessionId().set(session.getId());
+                        parameters.getInvocations().set(lane);
+                        parameters.getWriteIfChanged().set(writeIfChanged);
+                        if (outputCache) {
+                            parameters.getOutputCacheDirectory().set(outputCacheDirectory);
+                        }
+                    }
+                });
+            }
+            queue.await();
+            getLogger().info("Thrift processes waited " + session.getWaitMillis() + "ms for a slot and ran for " + session.getRunMillis() + "ms");
+            if (outputCache) {
+                getLogger().info("Thrift output cache: " + session.getCacheHits() + " hits, " + session.getCacheMisses() + " misses");
+            }
+            if (writeIfChanged) {
+                getLogger().info("Thrift wrote " + session.getWritten() + " outputs, left " + session.getUnchanged() + " unchanged");
+            }
+            return new HashMap<>(session.getOutputs());
+        } catch (WorkerExecutionException e) {
+            // Report the invocation which failed first, not the ones it cancelled.
+            if (session.getFailure() != null) {
+                throw session.getFailure();
+            }
+            throw e;
+        } finally {
+            // Failed invocations are reported too, with their exit codes and errors.
+            schedulerWaitMillis = session.getWaitMillis();
+            schedulerRunMillis = session.getRunMillis();
+            report.addInvocations(session.getMetrics());
+            long workMillis = 0;
+            for (final ThriftInvocationMetrics metrics : session.getMetrics().values()) {
+                workMillis += metrics.getTotalMillis();
+            }
+            report.put("lanes", laneCount);
+            report.put("cacheHits", session.getCacheHits());
+            report.put("cacheMisses", session.getCacheMisses());
+            report.put("filesWritten", session.getWritten());
+            report.put("filesUnchanged", session.getUnchanged());
+            report.put("waitMillis", schedulerWaitMillis);
+            report.put("processMillis", schedulerRunMillis);
+            report.put("workMillis", workMillis);
+            session.close();
+        }
+    }
+
+    /**
+     * Creates the scratch directory of every srcjar, from scratch, and
+     * unpacks the srcjar into it if the run builds on it.
+     */
+    void createSrcjarScratchDirectories(final boolean unpack) throws IOException {
+        for (final Map.Entry<File, File> e : getSrcjarScratchDirectories().entrySet()) {
+            ThriftOutputCache.deleteTree(e.getValue().toPath());
+            if (unpack && e.getKey().isFile()) {
+                getLogger().info("Unpacking " + e.getKey() + " into " + e.getValue());
+                ThriftSrcjar.unpack(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    void deleteSrcjarScratchDirectories() throws IOException {
+        for (final File scratch : getSrcjarScratchDirectories().values()) {
+            ThriftOutputCache.deleteTree(scratch.toPath());
+        }
+    }
+
+    /** Repacks every srcjar from its scratch directory. */
+    void packSrcjars() throws IOException {
+        for (final Map.Entry<File, File> e : getSrcjarScratchDirectories().entrySet()) {
+            ThriftSrcjar.pack(e.getValue(), e.getKey());
+        }
+    }
+
+    /**
+     * The output directories keyed by a stable name, which is how the build
+     * cache requires plural outputs to be declared.
+     */
     @OutputDirectories
+    public Map<String, File> getNamedOutputDirectories() {
+        final Map<String, File> dirs = new TreeMap<>();
+        final Set<File> seen = new HashSet<>();
+        final File out = outputDirectory.get().getAsFile();
+        for (final Generator generator : generatorList.get()) {
+            if (generator.getOut() == null && !generator.isSrcjar()) {
+                seen.add(out);
+            }
+        }
+        if (!seen.isEmpty()) {
+            dirs.put("out", out);
+        }
+        for (final Generator generator : generatorList.get()) {
+            if (generator.isSrcjar()) {
+                continue;
+            }
+            final File dir = generatorOutputDirectory(generator);
+            if (seen.add(dir)) {
+                dirs.put("generator." + generator.getName(), dir);
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * The source archives of generators which write one, keyed like
+     * {@link #getNamedOutputDirectories()}.
+     */
+    @OutputFiles
+    public Map<String, File> getNamedOutputFiles() {
+        final Map<String, File> files = new TreeMap<>();
+        final Set<File> seen = new HashSet<>();
+        for (final Generator generator : generatorList.get()) {
+            if (generator.isSrcjar()) {
+                final File srcjar = generatorSrcjar(generator);
+                if (seen.add(srcjar)) {
+                    files.put("srcjar." + generator.getName(), srcjar);
+                }
+            }
+        }
+        return files;
+    }
+
+    /** The source archives of generators which write one. */
+    @Internal
+    public Set<File> getSrcjarFiles() {
+        return new LinkedHashSet<>(getNamedOutputFiles().values());
+    }
+
+    /** Each source archive, and the scratch directory it is packed from. */
+    private Map<File, File> getSrcjarScratchDirectories() {
+        final Map<File, File> dirs = new LinkedHashMap<>();
+        for (final File srcjar : getSrcjarFiles()) {
+            dirs.put(srcjar, ThriftIncludeGraph.normalize(ThriftSrcjar.getScratchDirectory(srcjar, new File(getTemporaryDir(), "srcjar"))));
+        }
+        return dirs;
+    }
+
+    @Internal
     public Set<File> getOutputDirectories() {
         final HashSet<File> files = new HashSet<>();
         boolean useSharedOutputDir = false;
-        for (final Generator generator : generators) {
+        for (final Generator generator : generatorList.get()) {
+            if (generator.isSrcjar()) {
+                continue;
+            }
             useSharedOutputDir |= generator.getOut() == null;
             files.add(generatorOutputDirectory(generator));
         }
         if (useSharedOutputDir) {
-            files.add(this.out);
+            files.add(outputDirectory.get().getAsFile());
         }
         return files;
     }
@@ -115,32 +928,111 @@ public class ThriftTask extends SourceTask {
     @SkipWhenEmpty
     @Override
     @PathSensitive(value = PathSensitivity.RELATIVE)
-    public SourceDirectorySet getSource() {
-        return source;
+    public FileTree getSource() {
+        return super.getSource();
     }
 
-    @Override
-    public void setSource(Object source) {
-        super.setSource(source);
-        if (source instanceof SourceDirectorySet)
-            this.source = (SourceDirectorySet) source;
+    @Nested
+    public Map<String, Generator> getGenerators() {
+        final Map<String, Generator> map = new TreeMap<>();
+        for (final Generator generator : generatorList.get()) {
+            map.put(generator.getName(), generator);
+        }
+        return map;
     }
 
-    @Override
-    public void setSource(FileTree source) {
-        setSource((Object) source);
+    /**
+     * The processors each generated file passes through, in order, before
+     * it lands in its output directory.
+     */
+    @Nested
+    public List<ThriftPostProcessor> getPostProcessors() {
+        return new ArrayList<>(postProcessors);
     }
 
-    @Input
-    public Map<String, Generator> getGenerators() {
-        return generators.getAsMap();
+    /**
+     * The directory for generators which do not set their own.
+     */
+    @Internal
+    public DirectoryProperty getOutputDirectory() {
+        return outputDirectory;
     }
 
-    @Input
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
     public List<File> getInclude() {
         return include;
     }
 
+    /**
+     * Archives, typically the {@code thrift} configuration, whose IDLs are
+     * added to the include path after the directories given by
+     * {@link #path}. Only their {@code .thrift} entries are extracted.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public ConfigurableFileCollection getIncludeDependencies() {
+        return includeDependencies;
+    }
+
+    /**
+     * Whether every include dependency provided classes compiled from its
+     * IDLs with this task's compiler and generators. The task then only
+     * generates its own IDLs, as if {@link #recurse} were off.
+     */
+    @Input
+    public Property<Boolean> getPrebuiltComplete() {
+        return prebuiltComplete;
+    }
+
+    /** Whether thrift runs with {@code -recurse}. */
+    boolean isRecursing() {
+        return recurse && !prebuiltComplete.get();
+    }
+
+    /** Extracts the IDLs of {@link #getIncludeDependencies()}, for {@link #getIncludePath()}. */
+    void resolveDependencyIncludes() throws IOException {
+        dependencyIncludes = ThriftDependencyIdls.forUserHome(gradleUserHome).resolve(includeDependencies);
+    }
+
+    /** The include directories, followed by those extracted from dependencies. */
+    List<File> getIncludePath() {
+        final List<File> path = new ArrayList<>(include);
+        path.addAll(dependencyIncludes);
+        return path;
+    }
+
+    /**
+     * Whether an incremental run skips IDLs whose edits only touched
+     * whitespace or comments. Doc comments count as edits unless every
+     * generator declares that it ignores them.
+     */
+    @Internal
+    public boolean isSemanticChangeDetection() {
+        return semanticChangeDetection;
+    }
+
+    /**
+     * Whether invocations reuse outputs from the output cache shared by
+     * every build of this user, and publish their outputs to it.
+     */
+    @Internal
+    public boolean isOutputCache() {
+        return outputCache;
+    }
+
+    /** The size in bytes beyond which the output cache evicts its least recently used entries. */
+    @Internal
+    public long getOutputCacheMaxSize() {
+        return outputCacheMaxSize;
+    }
+
+    /** Defaults to {@code caches/thrift-plugin} in the Gradle user home. */
+    @Internal
+    public File getOutputCacheDirectory() {
+        return outputCacheDirectory;
+    }
+
     @Input
     public boolean isRecurse() {
         return recurse;
@@ -161,19 +1053,200 @@ public class ThriftTask extends SourceTask {
         return debug;
     }
 
-    @Input
+    /**
+     * Where the task keeps what it needs for incremental runs: the include
+     * graph, the fingerprints and the outputs of each IDL. Defaults to
+     * {@code build/thrift-state/<task name>}.
+     */
+    @OutputDirectory
+    public DirectoryProperty getStateDirectory() {
+        return stateDirectory;
+    }
+
+    /**
+     * Where each execution writes its JSON report. Defaults to
+     * {@code build/reports/thrift/<task name>.json}.
+     */
+    @Internal
+    public RegularFileProperty getReportFile() {
+        return reportFile;
+    }
+
+    /** How many of the slowest invocations to log after each execution. */
+    @Internal
+    public int getReportSlowest() {
+        return reportSlowest;
+    }
+
+    /**
+     * The maximum number of thrift processes this task runs at once.
+     * Defaults to the value of {@code --max-workers}.
+     */
+    @Internal
+    public int getMaxParallelInvocations() {
+        return maxParallelInvocations.get();
+    }
+
+    /**
+     * Whether outputs whose content is unchanged keep their existing file,
+     * and so their timestamp, rather than being replaced.
+     */
+    @Internal
+    public boolean isWriteIfChanged() {
+        return writeIfChanged;
+    }
+
+    /**
+     * Whether generators sharing an output directory run in one thrift
+     * process per IDL, rather than one process each.
+     */
+    @Internal
+    public boolean isCoalesceGenerators() {
+        return coalesceGenerators;
+    }
+
+    @Internal
     public String getExecutable() {
         return this.thrift != null ? this.thrift.getAbsolutePath() : "thrift";
     }
 
+    /**
+     * The thrift compiler binary. Resolved from the {@code PATH} if no
+     * executable was set.
+     */
+    @Internal
+    public File getExecutableFile() {
+        if (this.thrift != null) {
+            return this.thrift;
+        }
+        final String path = System.getenv("PATH");
+        if (path == null) {
+            return null;
+        }
+        for (final String dir : path.split(File.pathSeparator)) {
+            for (final String name : new String[]{"thrift", "thrift.exe"}) {
+                final File candidate = new File(dir, name);
+                if (candidate.isFile() && candidate.canExecute()) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The version reported by the compiler, which is what the task tracks
+     * rather than the path of the compiler, so that the task is relocatable
+     * and an upgrade in place invalidates it.
+     */
+    @Input
+    public String getCompilerVersion() {
+        return compilerService.get().getVersion(getExecutable(), getExecutableFile());
+    }
+
+    @Internal
+    public Property<ThriftCompilerService> getCompilerService() {
+        return compilerService;
+    }
+
+    /** The build-wide limit on thrift processes, if any. */
+    @Internal
+    public Property<ThriftSchedulerService> getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * How long the last execution's thrift processes waited for a slot from
+     * the scheduler, in total, in milliseconds.
+     */
+    @Internal
+    public long getSchedulerWaitMillis() {
+        return schedulerWaitMillis;
+    }
+
+    /** How long the last execution's thrift processes ran, in total, in milliseconds. */
+    @Internal
+    public long getSchedulerRunMillis() {
+        return schedulerRunMillis;
+    }
+
     public void out(Object dir) {
-        this.out = getProject().file(dir);
+        outputDirectory.set(getProject().file(dir));
     }
 
     public void recurse(boolean recurse) {
         this.recurse = recurse;
     }
 
+    public void maxParallelInvocations(int maxParallelInvocations) {
+        this.maxParallelInvocations.set(maxParallelInvocations);
+    }
+
+    public void writeIfChanged(boolean writeIfChanged) {
+        this.writeIfChanged = writeIfChanged;
+    }
+
+    public void coalesceGenerators(boolean coalesceGenerators) {
+        this.coalesceGenerators = coalesceGenerators;
+    }
+
+    public void semanticChangeDetection(boolean semanticChangeDetection) {
+        this.semanticChangeDetection = semanticChangeDetection;
+    }
+
+    public void outputCache(boolean outputCache) {
+        this.outputCache = outputCache;
+    }
+
+    public void outputCacheMaxSize(long outputCacheMaxSize) {
+        this.outputCacheMaxSize = outputCacheMaxSize;
+    }
+
+    public void outputCacheDirectory(Object outputCacheDirectory) {
+        this.outputCacheDirectory = getProject().file(outputCacheDirectory);
+    }
+
+    public void postProcessor(ThriftPostProcessor postProcessor) {
+        postProcessors.add(postProcessor);
+    }
+
+    /** Removes the date thrift stamps into {@code @Generated} annotations. */
+    public void stripTimestamps() {
+        postProcessor(new ThriftPostProcessors.Timestamps(null));
+    }
+
+    /** Replaces the date thrift stamps into {@code @Generated} annotations. */
+    public void fixTimestamps(String date) {
+        postProcessor(new ThriftPostProcessors.Timestamps(date));
+    }
+
+    public void normalizeLineEndings() {
+        normalizeLineEndings("\n");
+    }
+
+    public void normalizeLineEndings(String terminator) {
+        postProcessor(new ThriftPostProcessors.LineEndings(terminator));
+    }
+
+    /** Prepends the content of a file, verbatim, to every generated Java file. */
+    public void licenseHeader(Object file) {
+        licenseHeader(file, ".java");
+    }
+
+    /** Prepends the content of a file, verbatim, to every generated file with the given extension. */
+    public void licenseHeader(Object file, String extension) {
+        final File header = getProject().file(file);
+        try {
+            postProcessor(new ThriftPostProcessors.LicenseHeader(new String(Files.readAllBytes(header.toPath()), StandardCharsets.UTF_8), extension));
+        } catch (IOException e) {
+            throw new GradleException("Cannot read license header " + header, e);
+        }
+    }
+
+    public void reportSlowest(int reportSlowest) {
+        this.reportSlowest = reportSlowest;
+    }
+
     public void verbose(boolean verbose) {
         this.verbose = verbose;
     }
@@ -199,18 +1272,27 @@ public class ThriftTask extends SourceTask {
     }
 
     public List<String> buildCommand(final Generator generator, File out, String fileName) {
+        return buildCommand(Collections.singletonList(generator), out, fileName);
+    }
+
+    /**
+     * Builds a single command which runs all of the given generators.
+     */
+    public List<String> buildCommand(final List<Generator> generators, File out, String fileName) {
         final String thrift = getExecutable();
         final List<String> command = new ArrayList<>(Arrays.asList(thrift, "-out", out.getAbsolutePath()));
-        final List<String> options = generator.getOptions();
-        final String arguments = options.isEmpty() ? "" : ":" + join(",", options);
+        for (final Generator generator : generators) {
+            final List<String> options = generator.getOptions();
+            final String arguments = options.isEmpty() ? "" : ":" + join(",", options);
 
-        command.add("--gen");
-        command.add(generator.getName() + arguments);
-        for (final File include : this.include) {
+            command.add("--gen");
+            command.add(generator.getName() + arguments);
+        }
+        for (final File include : getIncludePath()) {
             command.add("-I");
             command.add(include.getAbsolutePath());
         }
-        if (recurse)
+        if (isRecursing())
             command.add("-recurse");
         if (verbose)
             command.add("-verbose");
@@ -222,7 +1304,7 @@ public class ThriftTask extends SourceTask {
         return command;
     }
 
-    private static String join(final String sep, final List<String> arg) {
+    static String join(final String sep, final List<String> arg) {
         final StringBuilder sb = new StringBuilder();
         for (int i = 0; i < arg.size(); i++) {
             sb.append(arg.get(i));
@@ -233,47 +1315,18 @@ public class ThriftTask extends SourceTask {
         return sb.toString();
     }
 
-    private File generatorOutputDirectory(final Generator generator) {
-        if (generator.getOut() != null) {
-            return getProject().file(generator.getOut());
-        } else {
-            return this.out;
-        }
+    private File generatorSrcjar(final Generator generator) {
+        return ThriftIncludeGraph.normalize(layout.files(generator.getSrcjar()).getSingleFile());
     }
 
-    private final class SlurpThread extends Thread {
-
-        private final CountDownLatch latch;
-        private final InputStream in;
-        private final PrintStream out;
-
-        public SlurpThread(final CountDownLatch latch, final InputStream in, final PrintStream out) {
-            setDaemon(true);
-
-            this.latch = latch;
-            this.in = in;
-            this.out = out;
-        }
-
-        @Override
-        public void run() {
-            try {
-                final InputStreamReader reader = new InputStreamReader(in);
-                final char[] buf = new char[8 * 1024];
-                for (;;) {
-                    try {
-                        if (reader.read(buf) <= 0) {
-                            break;
-                        }
-                        out.print(buf);
-                    } catch (IOException e) {
-                        getLogger().error("Failed to read from input stream", e);
-                        break;
-                    }
-                }
-            } finally {
-                latch.countDown();
-            }
+    /** Where a generator's outputs go: its scratch directory if it writes a srcjar. */
+    private File generatorOutputDirectory(final Generator generator) {
+        if (generator.isSrcjar()) {
+            return getSrcjarScratchDirectories().get(generatorSrcjar(generator));
+        } else if (generator.getOut() != null) {
+            return layout.files(generator.getOut()).getSingleFile();
+        } else {
+            return outputDirectory.get().getAsFile();
         }
     }
 }
@@ -0,0 +1,320 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.model.ObjectFactory;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+/**
+ * Regenerates IDLs as they are saved, until the build is cancelled.
+ *
+ * The task first brings the generate task of its source set up to date,
+ * then watches the source and include directories. Once a burst of events
+ * has settled, it regenerates only the IDLs the change affects, using the
+ * generate task's generators and command line, without going back through
+ * the task graph. Edits which only touch whitespace or comments are
+ * ignored.
+ *
+ * Outputs are written behind the generate task's back, so the next build
+ * regenerates everything once. The task does keep the generate task's
+ * record of which IDL generated which outputs up to date, deleting the
+ * outputs of IDLs which are deleted, so that the next build can still
+ * delete whatever the watched IDLs no longer generate.
+ */
+public class ThriftWatchTask extends DefaultTask {
+
+    private final Property<ThriftTask> generateTask;
+
+    private final ConfigurableFileCollection sourceDirectories;
+
+    private final Property<Long> debounceMillis;
+
+    @Inject
+    public ThriftWatchTask(final ObjectFactory objectFactory) {
+        this.generateTask = objectFactory.property(ThriftTask.class);
+        this.sourceDirectories = objectFactory.fileCollection();
+        this.debounceMillis = objectFactory.property(Long.class).convention(100L);
+    }
+
+    @TaskAction
+    public void watch() throws IOException, InterruptedException {
+        final ThriftTask task = generateTask.get();
+        task.resolveDependencyIncludes();
+        final List<File> includePath = task.getIncludePath();
+        final boolean docs = task.isAnyGeneratorDocumenting();
+        final File stagingRoot = new File(getTemporaryDir(), "staging");
+
+        final File graphFile = new File(getTemporaryDir(), "include-graph.txt");
+        Set<File> sources = getSources(task);
+        ThriftIncludeGraph graph = ThriftIncludeGraph.load(graphFile, includePath).rescan(sources);
+        graph.save(graphFile);
+        final ThriftFingerprints fingerprints = ThriftFingerprints.load(new File(getTemporaryDir(), "fingerprints.txt"));
+        for (final File file : graph.getFiles()) {
+            fingerprints.update(file, docs);
+        }
+        final File manifestFile = task.getManifestFile();
+        ThriftOutputManifest manifest = ThriftOutputManifest.load(manifestFile);
+
+        task.createSrcjarScratchDirectories(true);
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, task.getMaxParallelInvocations()));
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            final Map<WatchKey, Path> keys = new HashMap<>();
+            final Set<File> roots = new LinkedHashSet<>(sourceDirectories.getFiles());
+            roots.addAll(includePath);
+            for (final File root : roots) {
+                if (root.isDirectory()) {
+                    register(watcher, root.toPath(), keys, null);
+                }
+            }
+            getLogger().lifecycle("Watching " + keys.size() + " directories for Thrift changes. Cancel the build to stop.");
+
+            for (;;) {
+                final Set<File> changed = awaitChanges(watcher, keys);
+                final long start = System.nanoTime();
+                sources = getSources(task);
+                for (final File file : new ArrayList<>(changed)) {
+                    if (fingerprints.update(file, docs)) {
+                        changed.remove(file);
+                    }
+                }
+                if (changed.isEmpty()) {
+                    getLogger().info("Thrift changes only touched whitespace or comments");
+                    continue;
+                }
+
+                final ThriftIncludeGraph next = graph.rescan(sources);
+                final Set<File> affected = task.getAffected(graph, next, changed);
+                graph = next;
+                graph.save(graphFile);
+                List<File> inputFiles = new ArrayList<>();
+                for (final File file : sources) {
+                    if (affected.contains(file)) {
+                        inputFiles.add(file);
+                    }
+                }
+
+                //
+                // As in the generate task, whatever the changed, deleted and
+                // regenerated IDLs generated is stale unless generated again.
+                //
+                final List<File> staleCandidates = new ArrayList<>();
+                for (final File file : changed) {
+                    staleCandidates.addAll(manifest.remove(file));
+                }
+                for (final File file : inputFiles) {
+                    staleCandidates.addAll(manifest.remove(file));
+                }
+                if (!inputFiles.isEmpty()) {
+                    for (final Generator generator : task.getGenerators().values()) {
+                        if (generator.isPruning()) {
+                            staleCandidates.addAll(manifest.removeGenerator(generator.getName()));
+                        }
+                    }
+                }
+                if (task.isRecursing() && inputFiles.size() > 1) {
+                    inputFiles = new ArrayList<>(graph.planRoots(inputFiles).keySet());
+                }
+                if (inputFiles.isEmpty() && staleCandidates.isEmpty()) {
+                    continue;
+                }
+
+                ThriftOutputCache.deleteTree(stagingRoot.toPath());
+                try {
+                    final List<ThriftInvocation> invocations = task.createInvocations(inputFiles, graph, stagingRoot);
+                    for (final Map.Entry<ThriftInvocation, List<String>> e : run(executor, invocations, task.getPostProcessors()).entrySet()) {
+                        manifest.put(e.getKey().getGeneratorName(), e.getKey().getFile(), e.getKey().getOutputDirectory(), e.getValue());
+                    }
+                    final int deleted = manifest.deleteUnclaimed(staleCandidates, task.getGeneratedDirectories());
+                    task.packSrcjars();
+                    manifest.save(manifestFile);
+                    getLogger().lifecycle("Regenerated " + inputFiles.size() + " Thrift IDLs and deleted " + deleted + " stale outputs in "
+                            + (System.nanoTime() - start) / 1000000 + "ms");
+                } catch (GradleException e) {
+                    // Keep watching, so that the next save can fix the IDL.
+                    getLogger().error(e.getMessage());
+                    manifest = ThriftOutputManifest.load(manifestFile);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            task.deleteSrcjarScratchDirectories();
+        }
+    }
+
+    private static Set<File> getSources(final ThriftTask task) {
+        final Set<File> sources = new LinkedHashSet<>();
+        for (final File file : task.getSource().getFiles()) {
+            sources.add(ThriftIncludeGraph.normalize(file));
+        }
+        return sources;
+    }
+
+    /**
+     * Runs the invocations and waits for them, throwing the first failure,
+     * and returns the outputs of each.
+     */
+    private static Map<ThriftInvocation, List<String>> run(final ExecutorService executor, final List<ThriftInvocation> invocations,
+            final List<ThriftPostProcessor> postProcessors) throws InterruptedException {
+        final ThriftSession session = ThriftSession.open();
+        session.setPostProcessors(postProcessors);
+        try {
+            final List<Future<Void>> futures = new ArrayList<>();
+            for (final ThriftInvocation invocation : invocations) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (!session.isFailed()) {
+                            ThriftWorkAction.run(session, invocation, true, null);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    final GradleException failure = e.getCause() instanceof GradleException
+                            ? (GradleException) e.getCause()
+                            : new GradleException("Unexpected error while executing thrift: " + e.getCause().getMessage(), e.getCause());
+                    session.fail(failure);
+                }
+            }
+            if (session.getFailure() != null) {
+                throw session.getFailure();
+            }
+            return new HashMap<>(session.getOutputs());
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Blocks until some IDL changes, then collects further events until none
+     * arrive for the debounce interval, since editors often save in several
+     * steps.
+     */
+    private Set<File> awaitChanges(final WatchService watcher, final Map<WatchKey, Path> keys) throws IOException, InterruptedException {
+        final Set<File> changed = new LinkedHashSet<>();
+        while (changed.isEmpty()) {
+            WatchKey key = watcher.take();
+            while (key != null) {
+                final Path dir = keys.get(key);
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    if (dir == null) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were lost, so anything under the directory may have changed.
+                        register(watcher, dir, keys, changed);
+                        continue;
+                    }
+                    final Path path = dir.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                        register(watcher, path, keys, changed);
+                    } else if (isIdl(path)) {
+                        changed.add(ThriftIncludeGraph.normalize(path.toFile()));
+                    }
+                }
+                if (!key.reset()) {
+                    keys.remove(key);
+                }
+                key = watcher.poll(debounceMillis.get(), TimeUnit.MILLISECONDS);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Watches a directory tree, adding the IDLs in it to {@code found}
+     * unless that is null.
+     */
+    private static void register(final WatchService watcher, final Path root, final Map<WatchKey, Path> keys,
+            final Set<File> found) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                keys.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (found != null && isIdl(file)) {
+                    found.add(ThriftIncludeGraph.normalize(file.toFile()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isIdl(final Path path) {
+        return path.getFileName().toString().endsWith(".thrift");
+    }
+
+    @Internal
+    public Property<ThriftTask> getGenerateTask() {
+        return generateTask;
+    }
+
+    /**
+     * The directories of the source set's IDLs. The include path of the
+     * generate task is watched as well.
+     */
+    @Internal
+    public ConfigurableFileCollection getSourceDirectories() {
+        return sourceDirectories;
+    }
+
+    /** How long to wait for further events before regenerating. Defaults to 100ms. */
+    @Internal
+    public Property<Long> getDebounceMillis() {
+        return debounceMillis;
+    }
+}
@@ -0,0 +1,346 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift;
+
+import co.tomlee.gradle.plugins.thrift.codegen.JavaGenerator;
+import co.tomlee.gradle.plugins.thrift.codegen.UnsupportedIdlException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftParseException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Runs a lane of thrift invocations one after another.
+ *
+ * {@link ThriftTask} splits its invocations into as many lanes as it is
+ * allowed to run concurrently and submits one of these per lane.
+ */
+public abstract class ThriftWorkAction implements WorkAction<ThriftWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+
+        Property<String> getSessionId();
+
+        ListProperty<ThriftInvocation> getInvocations();
+
+        /** Whether to leave outputs whose content did not change untouched. */
+        Property<Boolean> getWriteIfChanged();
+
+        /** The root of the shared output cache, if it is enabled. */
+        Property<File> getOutputCacheDirectory();
+    }
+
+    private static final Logger LOGGER = Logging.getLogger(ThriftWorkAction.class);
+
+    /** The most output kept from each stream of a process. */
+    private static final int MAX_LOG_BYTES = 64 * 1024;
+
+    @Override
+    public void execute() {
+        final ThriftSession session = ThriftSession.get(getParameters().getSessionId().get());
+        final ThriftOutputCache cache = getParameters().getOutputCacheDirectory().isPresent()
+                ? new ThriftOutputCache(getParameters().getOutputCacheDirectory().get())
+                : null;
+        for (final ThriftInvocation invocation : getParameters().getInvocations().get()) {
+            if (session.isFailed()) {
+                return;
+            }
+            try {
+                run(session, invocation, getParameters().getWriteIfChanged().getOrElse(false), cache);
+            } catch (GradleException e) {
+                session.fail(e);
+                throw e;
+            } catch (Exception e) {
+                final GradleException failure = new GradleException("Unexpected error while executing thrift: " + e.getMessage(), e);
+                session.fail(failure);
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Runs one invocation and moves its outputs into place. This is also
+     * how the watch task regenerates IDLs outside of the worker API.
+     */
+    static void run(final ThriftSession session, final ThriftInvocation invocation, final boolean writeIfChanged,
+            final ThriftOutputCache cache) throws Exception {
+        final long start = System.nanoTime();
+        final ThriftInvocationMetrics metrics = new ThriftInvocationMetrics();
+        try {
+            run(session, invocation, writeIfChanged, cache, start, metrics);
+        } catch (Exception e) {
+            if (metrics.getError() == null) {
+                metrics.error(String.valueOf(e.getMessage()));
+            }
+            metrics.totalMillis((System.nanoTime() - start) / 1000000);
+            session.addMetrics(invocation, metrics);
+            throw e;
+        }
+    }
+
+    private static void run(final ThriftSession session, final ThriftInvocation invocation, final boolean writeIfChanged,
+            final ThriftOutputCache cache, final long start, final ThriftInvocationMetrics metrics) throws Exception {
+        final File staging = invocation.getStagingDirectory();
+        if (!staging.isDirectory() && !staging.mkdirs()) {
+            throw new GradleException("Could not create thrift staging directory: " + staging);
+        }
+
+        final String cacheKey = cache == null ? null : invocation.getCacheKey();
+        if (cacheKey != null) {
+            if (cache.restore(cacheKey, staging)) {
+                LOGGER.info("Restored " + invocation + " from the thrift output cache");
+                session.countCacheHit();
+                metrics.source(ThriftInvocationMetrics.SOURCE_CACHE);
+                session.addOutputs(invocation, moveOutputs(session, staging, invocation.getOutputDirectory(), writeIfChanged, metrics));
+                metrics.totalMillis((System.nanoTime() - start) / 1000000);
+                session.addMetrics(invocation, metrics);
+                return;
+            }
+            session.countCacheMiss();
+        }
+
+        if (invocation.isInProcess() && generateInProcess(invocation, staging)) {
+            metrics.source(ThriftInvocationMetrics.SOURCE_INPROCESS);
+        } else if (!runThrift(session, invocation, staging, metrics)) {
+            return;
+        }
+        if (cacheKey != null) {
+            cache.store(cacheKey, staging);
+        }
+        session.addOutputs(invocation, moveOutputs(session, staging, invocation.getOutputDirectory(), writeIfChanged, metrics));
+        metrics.totalMillis((System.nanoTime() - start) / 1000000);
+        session.addMetrics(invocation, metrics);
+    }
+
+    /**
+     * Runs the thrift compiler into the staging directory.
+     *
+     * @return False if the invocation was cancelled.
+     */
+    private static boolean runThrift(final ThriftSession session, final ThriftInvocation invocation, final File staging,
+            final ThriftInvocationMetrics metrics) throws Exception {
+        final List<String> command = invocation.getCommand();
+        LOGGER.info("Running thrift: " + command);
+
+        //
+        // The compiler writes straight to files beside its staging directory,
+        // so no thread is needed to drain its pipes.
+        //
+        final File stdout = new File(staging.getPath() + ".out");
+        final File stderr = new File(staging.getPath() + ".err");
+        final ThriftSchedulerService scheduler = session.getScheduler();
+        final long waitMillis = scheduler == null ? 0 : scheduler.acquire(invocation.getPriority());
+        final long start = System.nanoTime();
+        long spawnMillis = 0;
+        int exitCode = -1;
+        try {
+            final Process p = new ProcessBuilder(command)
+                    .redirectOutput(stdout)
+                    .redirectError(stderr)
+                    .start();
+            spawnMillis = (System.nanoTime() - start) / 1000000;
+            if (!session.register(p)) {
+                return false;
+            }
+            try {
+                exitCode = p.waitFor();
+            } finally {
+                session.unregister(p);
+            }
+        } finally {
+            final long runMillis = (System.nanoTime() - start) / 1000000;
+            if (scheduler != null) {
+                // Cancelled and failed runs say nothing about how long the invocation takes.
+                scheduler.release(invocation.getSchedulingKey(), exitCode == 0 ? runMillis : -1);
+            }
+            session.addProcessTime(waitMillis, runMillis);
+            metrics.process(waitMillis, spawnMillis, runMillis - spawnMillis, exitCode);
+        }
+        if (exitCode != 0 && session.isFailed()) {
+            // We were cancelled because another invocation failed.
+            return false;
+        }
+
+        final String out = readLog(stdout);
+        final String err = readLog(stderr);
+        if (exitCode != 0) {
+            metrics.error(err);
+            throw new GradleException(command.get(0) + " command failed for " + invocation + ":\n" + err);
+        }
+        if (!out.isEmpty()) {
+            LOGGER.lifecycle(prefix(invocation, out));
+        }
+        if (!err.isEmpty()) {
+            LOGGER.warn(prefix(invocation, err));
+        }
+        Files.delete(stdout.toPath());
+        Files.delete(stderr.toPath());
+        return true;
+    }
+
+    /**
+     * Generates Java for the invocation without running thrift.
+     *
+     * @return False if the IDL or the options are not supported, in which
+     * case nothing was written and thrift should be run instead. Parse
+     * errors also fall back, so that thrift reports them.
+     */
+    private static boolean generateInProcess(final ThriftInvocation invocation, final File staging) throws IOException {
+        try {
+            final JavaGenerator generator = new JavaGenerator(invocation.getInProcessOptions());
+            final ThriftProgram program = ThriftProgram.load(invocation.getFile(), invocation.getIncludePath(),
+                    new HashMap<File, ThriftProgram>());
+            final List<ThriftProgram> programs = invocation.isRecurse()
+                    ? program.getClosure()
+                    : Collections.singletonList(program);
+            LOGGER.info("Generating " + invocation + " in-process");
+            generator.generate(programs, staging);
+            return true;
+        } catch (UnsupportedIdlException | ThriftParseException e) {
+            LOGGER.info("Falling back to thrift for " + invocation + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Moves everything the compiler wrote into place, post-processing each
+     * file on the way, and returns the paths moved relative to the output
+     * directory.
+     */
+    private static List<String> moveOutputs(final ThriftSession session, final File staging, final File outputDirectory,
+            final boolean writeIfChanged, final ThriftInvocationMetrics metrics) throws IOException {
+        final Path from = staging.toPath();
+        final Path to = outputDirectory.toPath();
+        final List<String> outputs = new ArrayList<>();
+        Files.walkFileTree(from, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                final String relative = from.relativize(file).toString().replace(File.separatorChar, '/');
+                final Path target = to.resolve(relative);
+                ThriftPostProcessing.apply(session.getPostProcessors(), file, relative);
+                if (writeIfChanged && isSameContent(file, target)) {
+                    Files.delete(file);
+                    session.countUnchanged();
+                    metrics.output(Files.size(target), false);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    final long size = Files.size(file);
+                    move(file, target);
+                    session.countWritten();
+                    metrics.output(size, true);
+                }
+                outputs.add(relative);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(outputs);
+        return outputs;
+    }
+
+    private static boolean isSameContent(final Path a, final Path b) throws IOException {
+        if (!Files.isRegularFile(b) || Files.size(a) != Files.size(b)) {
+            return false;
+        }
+        return Arrays.equals(digest(a), digest(b));
+    }
+
+    private static byte[] digest(final Path file) throws IOException {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        final byte[] buf = new byte[8 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+                digest.update(buf, 0, n);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void move(final Path from, final Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Reads at most {@link #MAX_LOG_BYTES} of a process log. */
+    private static String readLog(final File file) throws IOException {
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        boolean truncated = false;
+        try (InputStream in = new FileInputStream(file)) {
+            final byte[] chunk = new byte[8 * 1024];
+            for (int n = in.read(chunk); n >= 0; n = in.read(chunk)) {
+                final int len = Math.min(n, MAX_LOG_BYTES - buf.size());
+                buf.write(chunk, 0, len);
+                if (len < n) {
+                    truncated = true;
+                    break;
+                }
+            }
+        }
+        final String text = buf.toString(Charset.defaultCharset().name()).trim();
+        return truncated ? text + "\n... (output truncated)" : text;
+    }
+
+    private static String prefix(final ThriftInvocation invocation, final String text) {
+        final StringBuilder sb = new StringBuilder();
+        final String prefix = "[thrift " + invocation + "] ";
+        for (final String line : text.split("\r?\n")) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(prefix).append(line);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,259 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.codegen;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDefinition;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftEnumValue;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates libthrift-compatible Java sources from parsed IDLs, without
+ * running the thrift compiler.
+ *
+ * Enums, constants, structs and exceptions are supported, with the
+ * {@code beans}, {@code private-members}, {@code hashcode} and
+ * {@code generated_annotations} options. Anything else, such as services
+ * and unions, raises {@link UnsupportedIdlException} so that the caller
+ * can fall back to the thrift compiler.
+ */
+public final class JavaGenerator {
+
+    /** The name of the thrift generator this replaces. */
+    public static final String NAME = "java";
+
+    /** The version this generator claims in the sources it writes. */
+    public static final String VERSION = "inprocess";
+
+    private boolean beans = false;
+    private boolean privateMembers = false;
+    private boolean hashcode = false;
+    private boolean generatedAnnotation = true;
+
+    /**
+     * @param options The options of the {@code java} generator, as passed to
+     * {@code --gen java:...}.
+     */
+    public JavaGenerator(List<String> options) throws UnsupportedIdlException {
+        for (final String option : options) {
+            switch (option) {
+                case "beans":
+                    beans = true;
+                    break;
+                case "private-members":
+                    privateMembers = true;
+                    break;
+                case "hashcode":
+                    hashcode = true;
+                    break;
+                case "generated_annotations=undated":
+                    generatedAnnotation = true;
+                    break;
+                case "generated_annotations=suppress":
+                    generatedAnnotation = false;
+                    break;
+                default:
+                    throw new UnsupportedIdlException("option " + option + " is not supported");
+            }
+        }
+    }
+
+    boolean isBeans() {
+        return beans;
+    }
+
+    boolean isHashcode() {
+        return hashcode;
+    }
+
+    String memberVisibility() {
+        return beans || privateMembers ? "private" : "public";
+    }
+
+    /**
+     * Writes the {@code @Generated} annotation. It is never dated, unlike
+     * the thrift compiler's default, so that output is reproducible.
+     */
+    void writeGeneratedAnnotation(JavaWriter w) {
+        if (generatedAnnotation) {
+            w.line("@javax.annotation.Generated(value = \"Autogenerated by Thrift Compiler (" + VERSION + ")\")");
+        }
+    }
+
+    /**
+     * Generates sources for each of the given programs.
+     *
+     * @return The content of each source, keyed by its path relative to the
+     * output directory.
+     * @throws UnsupportedIdlException If any program uses a feature this
+     * generator does not implement, before anything is written.
+     */
+    public Map<String, String> generate(List<ThriftProgram> programs) throws UnsupportedIdlException {
+        final Map<String, String> sources = new TreeMap<>();
+        for (final ThriftProgram program : programs) {
+            generate(program, sources);
+        }
+        return sources;
+    }
+
+    /**
+     * Generates sources for each of the given programs into a directory.
+     *
+     * @return The paths written, relative to the output directory.
+     */
+    public List<String> generate(List<ThriftProgram> programs, File outputDirectory) throws UnsupportedIdlException, IOException {
+        final Map<String, String> sources = generate(programs);
+        for (final Map.Entry<String, String> e : sources.entrySet()) {
+            final File file = new File(outputDirectory, e.getKey());
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.write(file.toPath(), e.getValue().getBytes(StandardCharsets.UTF_8));
+        }
+        return new ArrayList<>(sources.keySet());
+    }
+
+    private void generate(ThriftProgram program, Map<String, String> sources) throws UnsupportedIdlException {
+        final JavaTypes types = new JavaTypes(program);
+        final List<ThriftDefinition> constants = new ArrayList<>();
+        for (final ThriftDefinition definition : program.getDocument().getDefinitions()) {
+            final JavaWriter w = newFile(program);
+            switch (definition.getKind()) {
+                case ENUM:
+                    writeEnum(w, definition);
+                    break;
+                case STRUCT:
+                case EXCEPTION:
+                    new JavaStructGenerator(this, types, program, definition).write(w);
+                    break;
+                case CONST:
+                    constants.add(definition);
+                    continue;
+                case TYPEDEF:
+                    continue;
+                default:
+                    throw new UnsupportedIdlException(program.getDocument().getFile().getName() + ": "
+                            + definition.getKind().name().toLowerCase() + " " + definition.getName() + " is not supported");
+            }
+            sources.put(path(program, definition.getName()), w.toString());
+        }
+        if (!constants.isEmpty()) {
+            final JavaWriter w = newFile(program);
+            writeConstants(w, types, program, constants);
+            sources.put(path(program, JavaTypes.constantsClass(program)), w.toString());
+        }
+    }
+
+    private static String path(ThriftProgram program, String className) {
+        final String pkg = JavaTypes.packageName(program);
+        return (pkg == null ? "" : pkg.replace('.', '/') + "/") + className + ".java";
+    }
+
+    private static JavaWriter newFile(ThriftProgram program) {
+        final JavaWriter w = new JavaWriter();
+        w.line("/**");
+        w.line(" * Autogenerated by Thrift Compiler (" + VERSION + ")");
+        w.line(" *");
+        w.line(" * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING");
+        w.line(" *  @generated");
+        w.line(" */");
+        final String pkg = JavaTypes.packageName(program);
+        if (pkg != null) {
+            w.line("package " + pkg + ";");
+        }
+        w.blank();
+        return w;
+    }
+
+    private void writeEnum(JavaWriter w, ThriftDefinition definition) {
+        final String name = definition.getName();
+        final List<ThriftEnumValue> values = definition.getEnumValues();
+        w.doc(definition.getDoc());
+        writeGeneratedAnnotation(w);
+        w.open("public enum " + name + " implements org.apache.thrift.TEnum");
+        for (int i = 0; i < values.size(); i++) {
+            final ThriftEnumValue value = values.get(i);
+            w.doc(value.getDoc());
+            w.line(value.getName() + "(" + value.getValue() + ")" + (i < values.size() - 1 ? "," : ";"));
+        }
+        if (values.isEmpty()) {
+            w.line(";");
+        }
+        w.blank();
+        w.line("private final int value;");
+        w.blank();
+        w.open("private " + name + "(int value)");
+        w.line("this.value = value;");
+        w.close();
+        w.blank();
+        w.line("/**");
+        w.line(" * Get the integer value of this enum value, as defined in the Thrift IDL.");
+        w.line(" */");
+        w.open("public int getValue()");
+        w.line("return value;");
+        w.close();
+        w.blank();
+        w.line("/**");
+        w.line(" * Find a the enum type by its integer value, as defined in the Thrift IDL.");
+        w.line(" * @return null if the value is not found.");
+        w.line(" */");
+        w.open("public static " + name + " findByValue(int value)");
+        w.open("switch (value)");
+        final Set<Integer> seen = new HashSet<>();
+        for (final ThriftEnumValue value : values) {
+            if (seen.add(value.getValue())) {
+                w.line("case " + value.getValue() + ":");
+                w.line("  return " + value.getName() + ";");
+            }
+        }
+        w.line("default:");
+        w.line("  return null;");
+        w.close();
+        w.close();
+        w.close();
+    }
+
+    private void writeConstants(JavaWriter w, JavaTypes types, ThriftProgram program, List<ThriftDefinition> constants)
+            throws UnsupportedIdlException {
+        writeGeneratedAnnotation(w);
+        w.open("public class " + JavaTypes.constantsClass(program));
+        for (final ThriftDefinition constant : constants) {
+            w.blank();
+            w.doc(constant.getDoc());
+            final JavaTypes.TypeRef type = types.resolve(program, constant.getType());
+            final String javaType = types.javaType(type, false);
+            if (type.isContainer()) {
+                w.line("public static final " + javaType + " " + constant.getName() + ";");
+                w.open("static");
+                w.line(constant.getName() + " = " + types.constValue(program, type, constant.getValue(), w) + ";");
+                w.close();
+            } else {
+                w.line("public static final " + javaType + " " + constant.getName() + " = "
+                        + types.constValue(program, type, constant.getValue(), w) + ";");
+            }
+        }
+        w.blank();
+        w.close();
+    }
+}
@@ -0,0 +1,839 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.codegen;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDefinition;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftField;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a struct or exception as a class implementing libthrift's
+ * {@code TBase}, with the same members the thrift compiler generates.
+ *
+ * Fields are read and written directly against the protocol rather than
+ * through the scheme classes, which libthrift does not require.
+ */
+final class JavaStructGenerator {
+
+    private static final String TTYPE = "org.apache.thrift.protocol.TType";
+    private static final String HELPER = "org.apache.thrift.TBaseHelper";
+
+    /** A field and everything about it the generator needs. */
+    private static final class Member {
+
+        private final ThriftField field;
+        private final JavaTypes.TypeRef type;
+        private final String name;
+        private final String cap;
+        private final String constant;
+        private final int issetIndex;
+
+        private Member(ThriftField field, JavaTypes.TypeRef type, int issetIndex) {
+            this.field = field;
+            this.type = type;
+            this.name = field.getName();
+            this.cap = JavaTypes.capitalize(field.getName());
+            this.constant = JavaTypes.constantName(field.getName());
+            this.issetIndex = issetIndex;
+        }
+
+        private boolean isOptional() {
+            return field.getRequiredness() == ThriftField.Requiredness.OPTIONAL;
+        }
+
+        private boolean isRequired() {
+            return field.getRequiredness() == ThriftField.Requiredness.REQUIRED;
+        }
+
+        private String getter() {
+            return (type.isBase("bool") ? "is" : "get") + cap;
+        }
+    }
+
+    private final JavaGenerator generator;
+    private final JavaTypes types;
+    private final ThriftProgram program;
+    private final ThriftDefinition definition;
+    private final String className;
+    private final List<Member> members = new ArrayList<>();
+    private int issetCount = 0;
+
+    JavaStructGenerator(JavaGenerator generator, JavaTypes types, ThriftProgram program, ThriftDefinition definition)
+            throws UnsupportedIdlException {
+        this.generator = generator;
+        this.types = types;
+        this.program = program;
+        this.definition = definition;
+        this.className = definition.getName();
+        for (final ThriftField field : definition.getFields()) {
+            final JavaTypes.TypeRef type = types.resolve(program, field.getType());
+            members.add(new Member(field, type, type.isPrimitive() ? issetCount++ : -1));
+        }
+    }
+
+    void write(JavaWriter w) throws UnsupportedIdlException {
+        w.doc(definition.getDoc());
+        w.line("@SuppressWarnings({\"cast\", \"rawtypes\", \"serial\", \"unchecked\", \"unused\"})");
+        generator.writeGeneratedAnnotation(w);
+        final String base = definition.getKind() == ThriftDefinition.Kind.EXCEPTION ? "extends org.apache.thrift.TException " : "";
+        w.open("public class " + className + " " + base + "implements org.apache.thrift.TBase<" + className + ", "
+                + className + "._Fields>, java.io.Serializable, Cloneable, Comparable<" + className + ">");
+        w.line("private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("
+                + JavaTypes.quote(className) + ");");
+        w.blank();
+        for (final Member m : members) {
+            w.line("private static final org.apache.thrift.protocol.TField " + m.constant
+                    + "_FIELD_DESC = new org.apache.thrift.protocol.TField(" + JavaTypes.quote(m.name) + ", "
+                    + types.ttype(m.type) + ", (short)" + m.field.getId() + ");");
+        }
+        w.blank();
+        for (final Member m : members) {
+            w.doc(m.field.getDoc());
+            w.line(generator.memberVisibility() + " " + types.javaType(m.type, false) + " " + m.name + "; // "
+                    + (m.isOptional() ? "optional" : "required"));
+        }
+        w.blank();
+        writeFieldsEnum(w);
+        w.blank();
+        if (issetCount > 0) {
+            w.line("// isset id assignments");
+            for (final Member m : members) {
+                if (m.issetIndex >= 0) {
+                    w.line("private static final int __" + m.name.toUpperCase() + "_ISSET_ID = " + m.issetIndex + ";");
+                }
+            }
+            w.line("private java.util.BitSet __isset_bit_vector = new java.util.BitSet(" + issetCount + ");");
+        }
+        writeMetaData(w);
+        w.blank();
+        writeConstructors(w);
+        w.blank();
+        writeClear(w);
+        for (final Member m : members) {
+            w.blank();
+            writeAccessors(w, m);
+        }
+        w.blank();
+        writeFieldValueMethods(w);
+        w.blank();
+        writeEquals(w);
+        w.blank();
+        writeHashCode(w);
+        w.blank();
+        writeCompareTo(w);
+        w.blank();
+        w.open("public _Fields fieldForId(int fieldId)");
+        w.line("return _Fields.findByThriftId(fieldId);");
+        w.close();
+        w.blank();
+        writeRead(w);
+        w.blank();
+        writeWrite(w);
+        w.blank();
+        writeToString(w);
+        w.blank();
+        writeValidate(w);
+        w.blank();
+        writeSerialization(w);
+        w.blank();
+        w.close();
+    }
+
+    private void writeFieldsEnum(JavaWriter w) {
+        w.line("/** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */");
+        w.open("public enum _Fields implements org.apache.thrift.TFieldIdEnum");
+        for (int i = 0; i < members.size(); i++) {
+            final Member m = members.get(i);
+            w.doc(m.field.getDoc());
+            w.line(m.constant + "((short)" + m.field.getId() + ", " + JavaTypes.quote(m.name) + ")"
+                    + (i < members.size() - 1 ? "," : ";"));
+        }
+        if (members.isEmpty()) {
+            w.line(";");
+        }
+        w.blank();
+        w.line("private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();");
+        w.blank();
+        w.open("static");
+        w.open("for (_Fields field : java.util.EnumSet.allOf(_Fields.class))");
+        w.line("byName.put(field.getFieldName(), field);");
+        w.close();
+        w.close();
+        w.blank();
+        w.line("/**");
+        w.line(" * Find the _Fields constant that matches fieldId, or null if its not found.");
+        w.line(" */");
+        w.open("public static _Fields findByThriftId(int fieldId)");
+        w.open("switch(fieldId)");
+        for (final Member m : members) {
+            w.line("case " + m.field.getId() + ": // " + m.constant);
+            w.line("  return " + m.constant + ";");
+        }
+        w.line("default:");
+        w.line("  return null;");
+        w.close();
+        w.close();
+        w.blank();
+        w.line("/**");
+        w.line(" * Find the _Fields constant that matches fieldId, throwing an exception");
+        w.line(" * if it is not found.");
+        w.line(" */");
+        w.open("public static _Fields findByThriftIdOrThrow(int fieldId)");
+        w.line("_Fields fields = findByThriftId(fieldId);");
+        w.line("if (fields == null) throw new IllegalArgumentException(\"Field \" + fieldId + \" doesn't exist!\");");
+        w.line("return fields;");
+        w.close();
+        w.blank();
+        w.line("/**");
+        w.line(" * Find the _Fields constant that matches name, or null if its not found.");
+        w.line(" */");
+        w.open("public static _Fields findByName(String name)");
+        w.line("return byName.get(name);");
+        w.close();
+        w.blank();
+        w.line("private final short _thriftId;");
+        w.line("private final String _fieldName;");
+        w.blank();
+        w.open("_Fields(short thriftId, String fieldName)");
+        w.line("_thriftId = thriftId;");
+        w.line("_fieldName = fieldName;");
+        w.close();
+        w.blank();
+        w.open("public short getThriftFieldId()");
+        w.line("return _thriftId;");
+        w.close();
+        w.blank();
+        w.open("public String getFieldName()");
+        w.line("return _fieldName;");
+        w.close();
+        w.close();
+    }
+
+    private void writeMetaData(JavaWriter w) throws UnsupportedIdlException {
+        final String mapType = "java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData>";
+        w.line("public static final " + mapType + " metaDataMap;");
+        w.open("static");
+        w.line(mapType + " tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);");
+        for (final Member m : members) {
+            w.line("tmpMap.put(_Fields." + m.constant + ", new org.apache.thrift.meta_data.FieldMetaData("
+                    + JavaTypes.quote(m.name) + ", org.apache.thrift.TFieldRequirementType."
+                    + (m.isRequired() ? "REQUIRED" : m.isOptional() ? "OPTIONAL" : "DEFAULT") + ", "
+                    + types.metaData(m.type) + "));");
+        }
+        w.line("metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);");
+        w.line("org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(" + className + ".class, metaDataMap);");
+        w.close();
+    }
+
+    private void writeDefaults(JavaWriter w) throws UnsupportedIdlException {
+        for (final Member m : members) {
+            if (m.field.getDefaultValue() != null) {
+                w.line("this." + m.name + " = " + types.constValue(program, m.type, m.field.getDefaultValue(), w) + ";");
+            }
+        }
+    }
+
+    private void writeConstructors(JavaWriter w) throws UnsupportedIdlException {
+        w.open("public " + className + "()");
+        writeDefaults(w);
+        w.close();
+        w.blank();
+
+        final List<Member> required = new ArrayList<>();
+        for (final Member m : members) {
+            if (!m.isOptional()) {
+                required.add(m);
+            }
+        }
+        if (!required.isEmpty()) {
+            final StringBuilder params = new StringBuilder();
+            for (final Member m : required) {
+                if (params.length() > 0) {
+                    params.append(", ");
+                }
+                params.append(types.javaType(m.type, false)).append(' ').append(m.name);
+            }
+            w.open("public " + className + "(" + params + ")");
+            w.line("this();");
+            for (final Member m : required) {
+                if (m.type.isBinary()) {
+                    w.line("this." + m.name + " = " + HELPER + ".copyBinary(" + m.name + ");");
+                } else {
+                    w.line("this." + m.name + " = " + m.name + ";");
+                }
+                if (m.issetIndex >= 0) {
+                    w.line("set" + m.cap + "IsSet(true);");
+                }
+            }
+            w.close();
+            w.blank();
+        }
+
+        w.line("/**");
+        w.line(" * Performs a deep copy on <i>other</i>.");
+        w.line(" */");
+        w.open("public " + className + "(" + className + " other)");
+        if (issetCount > 0) {
+            w.line("__isset_bit_vector.clear();");
+            w.line("__isset_bit_vector.or(other.__isset_bit_vector);");
+        }
+        for (final Member m : members) {
+            if (m.type.isPrimitive()) {
+                w.line("this." + m.name + " = other." + m.name + ";");
+            } else {
+                w.open("if (other.isSet" + m.cap + "())");
+                w.line("this." + m.name + " = " + deepCopy(w, m.type, "other." + m.name) + ";");
+                w.close();
+            }
+        }
+        w.close();
+        w.blank();
+        w.open("public " + className + " deepCopy()");
+        w.line("return new " + className + "(this);");
+        w.close();
+    }
+
+    /** Returns an expression deep copying the given one, first writing any loops it needs. */
+    private String deepCopy(JavaWriter w, JavaTypes.TypeRef type, String source) throws UnsupportedIdlException {
+        if (type.isBinary()) {
+            return HELPER + ".copyBinary(" + source + ")";
+        }
+        if (type.isStruct()) {
+            return "new " + types.javaType(type, false) + "(" + source + ")";
+        }
+        if (!type.isContainer()) {
+            return source;
+        }
+        final String copy = w.temporary("__this__" + "copy");
+        w.line(types.javaType(type, false) + " " + copy + " = new " + types.implType(type) + "(" + source + ".size());");
+        if (type.getKind() == ThriftType.Kind.MAP) {
+            final JavaTypes.TypeRef key = types.key(type);
+            final JavaTypes.TypeRef value = types.element(type);
+            final String entry = w.temporary("other_element");
+            w.open("for (java.util.Map.Entry<" + types.javaType(key, true) + ", " + types.javaType(value, true) + "> "
+                    + entry + " : " + source + ".entrySet())");
+            final String k = deepCopy(w, key, entry + ".getKey()");
+            final String v = deepCopy(w, value, entry + ".getValue()");
+            w.line(copy + ".put(" + k + ", " + v + ");");
+            w.close();
+        } else {
+            final JavaTypes.TypeRef element = types.element(type);
+            final String item = w.temporary("other_element");
+            w.open("for (" + types.javaType(element, true) + " " + item + " : " + source + ")");
+            w.line(copy + ".add(" + deepCopy(w, element, item) + ");");
+            w.close();
+        }
+        return copy;
+    }
+
+    private void writeClear(JavaWriter w) throws UnsupportedIdlException {
+        w.line("@Override");
+        w.open("public void clear()");
+        for (final Member m : members) {
+            if (m.field.getDefaultValue() != null) {
+                w.line("this." + m.name + " = " + types.constValue(program, m.type, m.field.getDefaultValue(), w) + ";");
+            } else if (m.type.isPrimitive()) {
+                w.line("set" + m.cap + "IsSet(false);");
+                w.line("this." + m.name + " = " + JavaTypes.zero(m.type) + ";");
+            } else {
+                w.line("this." + m.name + " = null;");
+            }
+        }
+        w.close();
+    }
+
+    private void writeAccessors(JavaWriter w, Member m) throws UnsupportedIdlException {
+        final String type = types.javaType(m.type, false);
+        final String returns = generator.isBeans() ? "void" : className;
+
+        if (m.type.isContainer()) {
+            w.open("public int get" + m.cap + "Size()");
+            w.line("return (this." + m.name + " == null) ? 0 : this." + m.name + ".size();");
+            w.close();
+            w.blank();
+            if (m.type.getKind() == ThriftType.Kind.MAP) {
+                final String key = types.javaType(types.key(m.type), true);
+                final String value = types.javaType(types.element(m.type), true);
+                w.open("public void putTo" + m.cap + "(" + key + " key, " + value + " val)");
+                w.open("if (this." + m.name + " == null)");
+                w.line("this." + m.name + " = new " + types.implType(m.type) + "();");
+                w.close();
+                w.line("this." + m.name + ".put(key, val);");
+                w.close();
+            } else {
+                final String element = types.javaType(types.element(m.type), true);
+                w.open("public java.util.Iterator<" + element + "> get" + m.cap + "Iterator()");
+                w.line("return (this." + m.name + " == null) ? null : this." + m.name + ".iterator();");
+                w.close();
+                w.blank();
+                w.open("public void addTo" + m.cap + "(" + element + " elem)");
+                w.open("if (this." + m.name + " == null)");
+                w.line("this." + m.name + " = new " + types.implType(m.type) + "();");
+                w.close();
+                w.line("this." + m.name + ".add(elem);");
+                w.close();
+            }
+            w.blank();
+        }
+
+        w.doc(m.field.getDoc());
+        if (m.type.isBinary()) {
+            w.open("public byte[] " + m.getter() + "()");
+            w.line("set" + m.cap + "(" + HELPER + ".rightSize(" + m.name + "));");
+            w.line("return " + m.name + " == null ? null : " + m.name + ".array();");
+            w.close();
+            w.blank();
+            w.open("public java.nio.ByteBuffer bufferFor" + m.cap + "()");
+            w.line("return " + HELPER + ".copyBinary(" + m.name + ");");
+            w.close();
+            w.blank();
+            w.doc(m.field.getDoc());
+            w.open("public " + returns + " set" + m.cap + "(byte[] " + m.name + ")");
+            w.line("this." + m.name + " = " + m.name + " == null ? (java.nio.ByteBuffer)null : java.nio.ByteBuffer.wrap("
+                    + m.name + ".clone());");
+            if (!generator.isBeans()) {
+                w.line("return this;");
+            }
+            w.close();
+            w.blank();
+            w.open("public " + returns + " set" + m.cap + "(java.nio.ByteBuffer " + m.name + ")");
+            w.line("this." + m.name + " = " + HELPER + ".copyBinary(" + m.name + ");");
+        } else {
+            w.open("public " + type + " " + m.getter() + "()");
+            w.line("return this." + m.name + ";");
+            w.close();
+            w.blank();
+            w.doc(m.field.getDoc());
+            w.open("public " + returns + " set" + m.cap + "(" + type + " " + m.name + ")");
+            w.line("this." + m.name + " = " + m.name + ";");
+            if (m.issetIndex >= 0) {
+                w.line("set" + m.cap + "IsSet(true);");
+            }
+        }
+        if (!generator.isBeans()) {
+            w.line("return this;");
+        }
+        w.close();
+        w.blank();
+
+        w.open("public void unset" + m.cap + "()");
+        if (m.issetIndex >= 0) {
+            w.line("__isset_bit_vector.clear(" + issetId(m) + ");");
+        } else {
+            w.line("this." + m.name + " = null;");
+        }
+        w.close();
+        w.blank();
+        w.line("/** Returns true if field " + m.name + " is set (has been assigned a value) and false otherwise */");
+        w.open("public boolean isSet" + m.cap + "()");
+        if (m.issetIndex >= 0) {
+            w.line("return __isset_bit_vector.get(" + issetId(m) + ");");
+        } else {
+            w.line("return this." + m.name + " != null;");
+        }
+        w.close();
+        w.blank();
+        w.open("public void set" + m.cap + "IsSet(boolean value)");
+        if (m.issetIndex >= 0) {
+            w.line("__isset_bit_vector.set(" + issetId(m) + ", value);");
+        } else {
+            w.open("if (!value)");
+            w.line("this." + m.name + " = null;");
+            w.close();
+        }
+        w.close();
+    }
+
+    private static String issetId(Member m) {
+        return "__" + m.name.toUpperCase() + "_ISSET_ID";
+    }
+
+    private void writeFieldValueMethods(JavaWriter w) throws UnsupportedIdlException {
+        w.open("public void setFieldValue(_Fields field, Object value)");
+        w.open("switch (field)");
+        for (final Member m : members) {
+            w.line("case " + m.constant + ":");
+            w.indent();
+            w.open("if (value == null)");
+            w.line("unset" + m.cap + "();");
+            w.reopen("else");
+            if (m.type.isBinary()) {
+                w.open("if (value instanceof byte[])");
+                w.line("set" + m.cap + "((byte[])value);");
+                w.reopen("else");
+                w.line("set" + m.cap + "((java.nio.ByteBuffer)value);");
+                w.close();
+            } else {
+                w.line("set" + m.cap + "((" + types.javaType(m.type, true) + ")value);");
+            }
+            w.close();
+            w.line("break;");
+            w.outdent();
+            w.blank();
+        }
+        w.close();
+        w.close();
+        w.blank();
+        w.open("public Object getFieldValue(_Fields field)");
+        w.open("switch (field)");
+        for (final Member m : members) {
+            w.line("case " + m.constant + ":");
+            w.line("  return " + m.getter() + "();");
+            w.blank();
+        }
+        w.close();
+        w.line("throw new IllegalStateException();");
+        w.close();
+        w.blank();
+        w.line("/** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */");
+        w.open("public boolean isSet(_Fields field)");
+        w.open("if (field == null)");
+        w.line("throw new IllegalArgumentException();");
+        w.close();
+        w.blank();
+        w.open("switch (field)");
+        for (final Member m : members) {
+            w.line("case " + m.constant + ":");
+            w.line("  return isSet" + m.cap + "();");
+        }
+        w.close();
+        w.line("throw new IllegalStateException();");
+        w.close();
+    }
+
+    /** The expression for whether a field takes part in equality and hashing. */
+    private static String present(Member m, String target) {
+        if (m.type.isPrimitive() && !m.isOptional()) {
+            return "true";
+        }
+        return target + ".isSet" + m.cap + "()";
+    }
+
+    private void writeEquals(JavaWriter w) {
+        w.line("@Override");
+        w.open("public boolean equals(Object that)");
+        w.line("if (that == null)");
+        w.line("  return false;");
+        w.line("if (that instanceof " + className + ")");
+        w.line("  return this.equals((" + className + ")that);");
+        w.line("return false;");
+        w.close();
+        w.blank();
+        w.open("public boolean equals(" + className + " that)");
+        w.line("if (that == null)");
+        w.line("  return false;");
+        for (final Member m : members) {
+            w.blank();
+            w.line("boolean this_present_" + m.name + " = " + present(m, "this") + ";");
+            w.line("boolean that_present_" + m.name + " = " + present(m, "that") + ";");
+            w.open("if (this_present_" + m.name + " || that_present_" + m.name + ")");
+            w.line("if (!(this_present_" + m.name + " && that_present_" + m.name + "))");
+            w.line("  return false;");
+            if (m.type.isPrimitive()) {
+                w.line("if (this." + m.name + " != that." + m.name + ")");
+            } else {
+                w.line("if (!this." + m.name + ".equals(that." + m.name + "))");
+            }
+            w.line("  return false;");
+            w.close();
+        }
+        w.blank();
+        w.line("return true;");
+        w.close();
+    }
+
+    private void writeHashCode(JavaWriter w) {
+        w.line("@Override");
+        w.open("public int hashCode()");
+        if (!generator.isHashcode()) {
+            w.line("return 0;");
+            w.close();
+            return;
+        }
+        w.line("java.util.List<Object> list = new java.util.ArrayList<Object>();");
+        for (final Member m : members) {
+            w.blank();
+            w.line("boolean present_" + m.name + " = " + present(m, "this") + ";");
+            w.line("list.add(present_" + m.name + ");");
+            w.line("if (present_" + m.name + ")");
+            w.line("  list.add(" + m.name + (m.type.isEnum() ? ".getValue()" : "") + ");");
+        }
+        w.blank();
+        w.line("return list.hashCode();");
+        w.close();
+    }
+
+    private void writeCompareTo(JavaWriter w) {
+        w.line("@Override");
+        w.open("public int compareTo(" + className + " other)");
+        w.open("if (!getClass().equals(other.getClass()))");
+        w.line("return getClass().getName().compareTo(other.getClass().getName());");
+        w.close();
+        w.blank();
+        w.line("int lastComparison = 0;");
+        w.blank();
+        for (final Member m : members) {
+            w.line("lastComparison = Boolean.valueOf(isSet" + m.cap + "()).compareTo(other.isSet" + m.cap + "());");
+            w.open("if (lastComparison != 0)");
+            w.line("return lastComparison;");
+            w.close();
+            w.open("if (isSet" + m.cap + "())");
+            w.line("lastComparison = " + HELPER + ".compareTo(this." + m.name + ", other." + m.name + ");");
+            w.open("if (lastComparison != 0)");
+            w.line("return lastComparison;");
+            w.close();
+            w.close();
+        }
+        w.line("return 0;");
+        w.close();
+    }
+
+    private void writeRead(JavaWriter w) throws UnsupportedIdlException {
+        w.open("public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException");
+        w.line("org.apache.thrift.protocol.TField schemeField;");
+        w.line("iprot.readStructBegin();");
+        w.open("while (true)");
+        w.line("schemeField = iprot.readFieldBegin();");
+        w.open("if (schemeField.type == " + TTYPE + ".STOP)");
+        w.line("break;");
+        w.close();
+        w.open("switch (schemeField.id)");
+        for (final Member m : members) {
+            w.line("case " + m.field.getId() + ": // " + m.constant);
+            w.indent();
+            w.open("if (schemeField.type == " + types.ttype(m.type) + ")");
+            readValue(w, m.type, "this." + m.name);
+            w.line("set" + m.cap + "IsSet(true);");
+            w.reopen("else");
+            w.line("org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);");
+            w.close();
+            w.line("break;");
+            w.outdent();
+        }
+        w.line("default:");
+        w.line("  org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);");
+        w.close();
+        w.line("iprot.readFieldEnd();");
+        w.close();
+        w.line("iprot.readStructEnd();");
+        w.blank();
+        w.line("// check for required fields of primitive type, which can't be checked in the validate method");
+        for (final Member m : members) {
+            if (m.isRequired() && m.type.isPrimitive()) {
+                w.open("if (!isSet" + m.cap + "())");
+                w.line("throw new org.apache.thrift.protocol.TProtocolException(\"Required field '" + m.name
+                        + "' was not found in serialized data! Struct: \" + toString());");
+                w.close();
+            }
+        }
+        w.line("validate();");
+        w.close();
+    }
+
+    private void readValue(JavaWriter w, JavaTypes.TypeRef type, String target) throws UnsupportedIdlException {
+        if (type.isEnum()) {
+            w.line(target + " = " + types.javaType(type, false) + ".findByValue(iprot.readI32());");
+        } else if (type.isStruct()) {
+            w.line(target + " = new " + types.javaType(type, false) + "();");
+            w.line(target + ".read(iprot);");
+        } else if (!type.isContainer()) {
+            w.line(target + " = iprot.read" + JavaTypes.protocolSuffix(type) + "();");
+        } else if (type.getKind() == ThriftType.Kind.MAP) {
+            final JavaTypes.TypeRef key = types.key(type);
+            final JavaTypes.TypeRef value = types.element(type);
+            final String map = w.temporary("_map");
+            final String i = w.temporary("_i");
+            final String k = w.temporary("_key");
+            final String v = w.temporary("_val");
+            w.open("");
+            w.line("org.apache.thrift.protocol.TMap " + map + " = iprot.readMapBegin();");
+            w.line(target + " = new " + types.implType(type) + "(2*" + map + ".size);");
+            w.open("for (int " + i + " = 0; " + i + " < " + map + ".size; ++" + i + ")");
+            w.line(types.javaType(key, false) + " " + k + ";");
+            w.line(types.javaType(value, false) + " " + v + ";");
+            readValue(w, key, k);
+            readValue(w, value, v);
+            w.line(target + ".put(" + k + ", " + v + ");");
+            w.close();
+            w.line("iprot.readMapEnd();");
+            w.close();
+        } else {
+            final boolean list = type.getKind() == ThriftType.Kind.LIST;
+            final JavaTypes.TypeRef element = types.element(type);
+            final String container = w.temporary(list ? "_list" : "_set");
+            final String i = w.temporary("_i");
+            final String e = w.temporary("_elem");
+            w.open("");
+            w.line("org.apache.thrift.protocol." + (list ? "TList " : "TSet ") + container + " = iprot.read"
+                    + (list ? "List" : "Set") + "Begin();");
+            w.line(target + " = new " + types.implType(type) + "(" + (list ? "" : "2*") + container + ".size);");
+            w.open("for (int " + i + " = 0; " + i + " < " + container + ".size; ++" + i + ")");
+            w.line(types.javaType(element, false) + " " + e + ";");
+            readValue(w, element, e);
+            w.line(target + ".add(" + e + ");");
+            w.close();
+            w.line("iprot.read" + (list ? "List" : "Set") + "End();");
+            w.close();
+        }
+    }
+
+    private void writeWrite(JavaWriter w) throws UnsupportedIdlException {
+        w.open("public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException");
+        w.line("validate();");
+        w.blank();
+        w.line("oprot.writeStructBegin(STRUCT_DESC);");
+        for (final Member m : members) {
+            final boolean nullable = !m.type.isPrimitive();
+            if (nullable) {
+                w.open("if (this." + m.name + " != null)");
+            }
+            if (m.isOptional()) {
+                w.open("if (isSet" + m.cap + "())");
+            }
+            w.line("oprot.writeFieldBegin(" + m.constant + "_FIELD_DESC);");
+            writeValue(w, m.type, "this." + m.name);
+            w.line("oprot.writeFieldEnd();");
+            if (m.isOptional()) {
+                w.close();
+            }
+            if (nullable) {
+                w.close();
+            }
+        }
+        w.line("oprot.writeFieldStop();");
+        w.line("oprot.writeStructEnd();");
+        w.close();
+    }
+
+    private void writeValue(JavaWriter w, JavaTypes.TypeRef type, String source) throws UnsupportedIdlException {
+        if (type.isEnum()) {
+            w.line("oprot.writeI32(" + source + ".getValue());");
+        } else if (type.isStruct()) {
+            w.line(source + ".write(oprot);");
+        } else if (!type.isContainer()) {
+            w.line("oprot.write" + JavaTypes.protocolSuffix(type) + "(" + source + ");");
+        } else if (type.getKind() == ThriftType.Kind.MAP) {
+            final JavaTypes.TypeRef key = types.key(type);
+            final JavaTypes.TypeRef value = types.element(type);
+            final String iter = w.temporary("_iter");
+            w.open("");
+            w.line("oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(" + types.ttype(key) + ", " + types.ttype(value)
+                    + ", " + source + ".size()));");
+            w.open("for (java.util.Map.Entry<" + types.javaType(key, true) + ", " + types.javaType(value, true) + "> "
+                    + iter + " : " + source + ".entrySet())");
+            writeValue(w, key, iter + ".getKey()");
+            writeValue(w, value, iter + ".getValue()");
+            w.close();
+            w.line("oprot.writeMapEnd();");
+            w.close();
+        } else {
+            final boolean list = type.getKind() == ThriftType.Kind.LIST;
+            final JavaTypes.TypeRef element = types.element(type);
+            final String iter = w.temporary("_iter");
+            w.open("");
+            w.line("oprot.write" + (list ? "List" : "Set") + "Begin(new org.apache.thrift.protocol." + (list ? "TList(" : "TSet(")
+                    + types.ttype(element) + ", " + source + ".size()));");
+            w.open("for (" + types.javaType(element, true) + " " + iter + " : " + source + ")");
+            writeValue(w, element, iter);
+            w.close();
+            w.line("oprot.write" + (list ? "List" : "Set") + "End();");
+            w.close();
+        }
+    }
+
+    private void writeToString(JavaWriter w) {
+        w.line("@Override");
+        w.open("public String toString()");
+        w.line("StringBuilder sb = new StringBuilder(" + JavaTypes.quote(className + "(") + ");");
+        w.line("boolean first = true;");
+        for (final Member m : members) {
+            w.blank();
+            if (m.isOptional()) {
+                w.open("if (isSet" + m.cap + "())");
+            }
+            w.line("if (!first) sb.append(\", \");");
+            w.line("sb.append(" + JavaTypes.quote(m.name + ":") + ");");
+            if (m.type.isPrimitive()) {
+                w.line("sb.append(this." + m.name + ");");
+            } else {
+                w.open("if (this." + m.name + " == null)");
+                w.line("sb.append(\"null\");");
+                w.reopen("else");
+                if (m.type.isBinary()) {
+                    w.line(HELPER + ".toString(this." + m.name + ", sb);");
+                } else {
+                    w.line("sb.append(this." + m.name + ");");
+                }
+                w.close();
+            }
+            w.line("first = false;");
+            if (m.isOptional()) {
+                w.close();
+            }
+        }
+        w.line("sb.append(\")\");");
+        w.line("return sb.toString();");
+        w.close();
+    }
+
+    private void writeValidate(JavaWriter w) {
+        w.open("public void validate() throws org.apache.thrift.TException");
+        w.line("// check for required fields");
+        for (final Member m : members) {
+            if (m.isRequired() && !m.type.isPrimitive()) {
+                w.open("if (" + m.name + " == null)");
+                w.line("throw new org.apache.thrift.protocol.TProtocolException(\"Required field '" + m.name
+                        + "' was not present! Struct: \" + toString());");
+                w.close();
+            }
+        }
+        w.line("// check for sub-struct validity");
+        for (final Member m : members) {
+            if (m.type.isStruct()) {
+                w.open("if (" + m.name + " != null)");
+                w.line(m.name + ".validate();");
+                w.close();
+            }
+        }
+        w.close();
+    }
+
+    private void writeSerialization(JavaWriter w) {
+        w.open("private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException");
+        w.open("try");
+        w.line("write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));");
+        w.reopen("catch (org.apache.thrift.TException te)");
+        w.line("throw new java.io.IOException(te);");
+        w.close();
+        w.close();
+        w.blank();
+        w.open("private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException");
+        w.open("try");
+        if (issetCount > 0) {
+            w.line("// it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.");
+            w.line("__isset_bit_vector = new java.util.BitSet(" + issetCount + ");");
+        }
+        w.line("read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));");
+        w.reopen("catch (org.apache.thrift.TException te)");
+        w.line("throw new java.io.IOException(te);");
+        w.close();
+        w.close();
+    }
+}
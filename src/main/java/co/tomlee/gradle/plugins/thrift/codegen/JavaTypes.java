@@ -0,0 +1,462 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.codegen;
+
+import co.tomlee.gradle.plugins.thrift.idl.ThriftConstValue;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftDefinition;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftEnumValue;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftType;
+
+/**
+ * Maps Thrift types and constants onto Java, as seen from the program
+ * being generated.
+ */
+final class JavaTypes {
+
+    /**
+     * A type with typedefs resolved away. User types carry their
+     * definition, and every type carries the program whose names its
+     * element types are resolved against.
+     */
+    static final class TypeRef {
+
+        private final ThriftProgram program;
+        private final ThriftType type;
+        private final ThriftProgram.Resolved resolved;
+
+        private TypeRef(ThriftProgram program, ThriftType type, ThriftProgram.Resolved resolved) {
+            this.program = program;
+            this.type = type;
+            this.resolved = resolved;
+        }
+
+        boolean isBase(String name) {
+            return type.getKind() == ThriftType.Kind.BASE && type.getName().equals(name);
+        }
+
+        boolean isEnum() {
+            return resolved != null && resolved.getDefinition().getKind() == ThriftDefinition.Kind.ENUM;
+        }
+
+        boolean isStruct() {
+            return resolved != null && !isEnum();
+        }
+
+        boolean isBinary() {
+            return isBase("binary");
+        }
+
+        boolean isContainer() {
+            return type.isContainer();
+        }
+
+        /** Whether the Java type is a primitive, which needs an isset bit. */
+        boolean isPrimitive() {
+            return type.getKind() == ThriftType.Kind.BASE && !isBase("string") && !isBase("binary");
+        }
+
+        ThriftType.Kind getKind() {
+            return type.getKind();
+        }
+    }
+
+    private final ThriftProgram current;
+
+    JavaTypes(ThriftProgram current) {
+        this.current = current;
+    }
+
+    TypeRef resolve(ThriftProgram scope, ThriftType type) throws UnsupportedIdlException {
+        if (type.getKind() == ThriftType.Kind.BASE) {
+            if (type.getName().equals("uuid") || type.getName().equals("slist")) {
+                throw new UnsupportedIdlException("type " + type.getName() + " is not supported");
+            }
+            return new TypeRef(scope, type, null);
+        }
+        if (type.getKind() != ThriftType.Kind.NAMED) {
+            return new TypeRef(scope, type, null);
+        }
+        final ThriftProgram.Resolved resolved = scope.resolve(type.getName());
+        if (resolved == null) {
+            throw new UnsupportedIdlException("type " + type.getName() + " is not defined");
+        }
+        switch (resolved.getDefinition().getKind()) {
+            case TYPEDEF:
+                return resolve(resolved.getProgram(), resolved.getDefinition().getType());
+            case ENUM:
+            case STRUCT:
+            case EXCEPTION:
+                return new TypeRef(resolved.getProgram(), type, resolved);
+            default:
+                throw new UnsupportedIdlException(resolved.getDefinition().getKind().name().toLowerCase()
+                        + " " + type.getName() + " is not supported as a type");
+        }
+    }
+
+    TypeRef key(TypeRef t) throws UnsupportedIdlException {
+        return resolve(t.program, t.type.getKeyType());
+    }
+
+    TypeRef element(TypeRef t) throws UnsupportedIdlException {
+        return resolve(t.program, t.type.getValueType());
+    }
+
+    String javaType(TypeRef t, boolean boxed) throws UnsupportedIdlException {
+        switch (t.getKind()) {
+            case LIST:
+                return "java.util.List<" + javaType(element(t), true) + ">";
+            case SET:
+                return "java.util.Set<" + javaType(element(t), true) + ">";
+            case MAP:
+                return "java.util.Map<" + javaType(key(t), true) + "," + javaType(element(t), true) + ">";
+            case NAMED:
+                return className(t.resolved.getProgram(), t.resolved.getDefinition().getName());
+            default:
+                break;
+        }
+        switch (t.type.getName()) {
+            case "bool":
+                return boxed ? "Boolean" : "boolean";
+            case "byte":
+            case "i8":
+                return boxed ? "Byte" : "byte";
+            case "i16":
+                return boxed ? "Short" : "short";
+            case "i32":
+                return boxed ? "Integer" : "int";
+            case "i64":
+                return boxed ? "Long" : "long";
+            case "double":
+                return boxed ? "Double" : "double";
+            case "string":
+                return "String";
+            case "binary":
+                return "java.nio.ByteBuffer";
+            default:
+                throw new UnsupportedIdlException("type " + t.type.getName() + " is not supported");
+        }
+    }
+
+    /** The class a container field is instantiated as. */
+    String implType(TypeRef t) throws UnsupportedIdlException {
+        switch (t.getKind()) {
+            case LIST:
+                return "java.util.ArrayList<" + javaType(element(t), true) + ">";
+            case SET:
+                return "java.util.HashSet<" + javaType(element(t), true) + ">";
+            case MAP:
+                return "java.util.HashMap<" + javaType(key(t), true) + "," + javaType(element(t), true) + ">";
+            default:
+                return javaType(t, false);
+        }
+    }
+
+    String ttype(TypeRef t) {
+        return "org.apache.thrift.protocol.TType." + ttypeName(t);
+    }
+
+    private static String ttypeName(TypeRef t) {
+        if (t.isEnum()) {
+            return "I32";
+        }
+        switch (t.getKind()) {
+            case LIST:
+                return "LIST";
+            case SET:
+                return "SET";
+            case MAP:
+                return "MAP";
+            case NAMED:
+                return "STRUCT";
+            default:
+                break;
+        }
+        switch (t.type.getName()) {
+            case "bool":
+                return "BOOL";
+            case "byte":
+            case "i8":
+                return "BYTE";
+            case "i16":
+                return "I16";
+            case "i32":
+                return "I32";
+            case "i64":
+                return "I64";
+            case "double":
+                return "DOUBLE";
+            default:
+                return "STRING";
+        }
+    }
+
+    /** The protocol method suffix for a base type, as in {@code readI32}. */
+    static String protocolSuffix(TypeRef t) {
+        switch (t.type.getName()) {
+            case "bool":
+                return "Bool";
+            case "byte":
+            case "i8":
+                return "Byte";
+            case "i16":
+                return "I16";
+            case "i32":
+                return "I32";
+            case "i64":
+                return "I64";
+            case "double":
+                return "Double";
+            case "binary":
+                return "Binary";
+            default:
+                return "String";
+        }
+    }
+
+    /** The value a primitive field holds when it is unset. */
+    static String zero(TypeRef t) {
+        if (t.isBase("bool")) {
+            return "false";
+        }
+        if (t.isBase("double")) {
+            return "0.0";
+        }
+        return "0";
+    }
+
+    /** An expression building the field metadata for the given type. */
+    String metaData(TypeRef t) throws UnsupportedIdlException {
+        final String pkg = "org.apache.thrift.meta_data.";
+        if (t.isEnum()) {
+            return "new " + pkg + "EnumMetaData(org.apache.thrift.protocol.TType.ENUM, " + javaType(t, false) + ".class)";
+        }
+        switch (t.getKind()) {
+            case LIST:
+                return "new " + pkg + "ListMetaData(" + ttype(t) + ", " + metaData(element(t)) + ")";
+            case SET:
+                return "new " + pkg + "SetMetaData(" + ttype(t) + ", " + metaData(element(t)) + ")";
+            case MAP:
+                return "new " + pkg + "MapMetaData(" + ttype(t) + ", " + metaData(key(t))
+                        + ", " + metaData(element(t)) + ")";
+            case NAMED:
+                return "new " + pkg + "StructMetaData(" + ttype(t) + ", " + javaType(t, false) + ".class)";
+            default:
+                break;
+        }
+        if (t.isBinary()) {
+            return "new " + pkg + "FieldValueMetaData(" + ttype(t) + ", true)";
+        }
+        return "new " + pkg + "FieldValueMetaData(" + ttype(t) + ")";
+    }
+
+    /**
+     * Returns an expression for a constant value of the given type, first
+     * writing whatever statements are needed to build a container.
+     */
+    String constValue(ThriftProgram scope, TypeRef t, ThriftConstValue v, JavaWriter w) throws UnsupportedIdlException {
+        if (v.getKind() == ThriftConstValue.Kind.IDENTIFIER && !t.isEnum() && !t.isBase("bool")) {
+            return constReference(scope, v.getText());
+        }
+        if (t.isEnum()) {
+            return enumValue(t, v);
+        }
+        switch (t.getKind()) {
+            case LIST:
+            case SET: {
+                expect(v, ThriftConstValue.Kind.LIST);
+                final TypeRef element = element(t);
+                final String name = w.temporary("_tmp");
+                w.line(javaType(t, false) + " " + name + " = new " + implType(t) + "();");
+                for (final ThriftConstValue value : v.getValues()) {
+                    w.line(name + ".add(" + constValue(scope, element, value, w) + ");");
+                }
+                return name;
+            }
+            case MAP: {
+                expect(v, ThriftConstValue.Kind.MAP);
+                final TypeRef key = key(t);
+                final TypeRef element = element(t);
+                final String name = w.temporary("_tmp");
+                w.line(javaType(t, false) + " " + name + " = new " + implType(t) + "();");
+                for (int i = 0; i < v.getKeys().size(); i++) {
+                    final String k = constValue(scope, key, v.getKeys().get(i), w);
+                    final String e = constValue(scope, element, v.getValues().get(i), w);
+                    w.line(name + ".put(" + k + ", " + e + ");");
+                }
+                return name;
+            }
+            case NAMED:
+                throw new UnsupportedIdlException("struct constants are not supported");
+            default:
+                break;
+        }
+        switch (t.type.getName()) {
+            case "bool":
+                if (v.getKind() == ThriftConstValue.Kind.IDENTIFIER) {
+                    if (v.getText().equals("true") || v.getText().equals("false")) {
+                        return v.getText();
+                    }
+                    return constReference(scope, v.getText());
+                }
+                expect(v, ThriftConstValue.Kind.INTEGER);
+                return parseLong(v) != 0 ? "true" : "false";
+            case "byte":
+            case "i8":
+                expect(v, ThriftConstValue.Kind.INTEGER);
+                return "(byte)" + parseLong(v);
+            case "i16":
+                expect(v, ThriftConstValue.Kind.INTEGER);
+                return "(short)" + parseLong(v);
+            case "i32":
+                expect(v, ThriftConstValue.Kind.INTEGER);
+                return String.valueOf((int) parseLong(v));
+            case "i64":
+                expect(v, ThriftConstValue.Kind.INTEGER);
+                return parseLong(v) + "L";
+            case "double":
+                if (v.getKind() == ThriftConstValue.Kind.INTEGER) {
+                    return parseLong(v) + ".0";
+                }
+                expect(v, ThriftConstValue.Kind.DOUBLE);
+                return v.getText();
+            case "string":
+                expect(v, ThriftConstValue.Kind.STRING);
+                return quote(v.getText());
+            case "binary":
+                expect(v, ThriftConstValue.Kind.STRING);
+                return "java.nio.ByteBuffer.wrap(" + quote(v.getText()) + ".getBytes(java.nio.charset.StandardCharsets.UTF_8))";
+            default:
+                throw new UnsupportedIdlException("type " + t.type.getName() + " is not supported");
+        }
+    }
+
+    private String enumValue(TypeRef t, ThriftConstValue v) throws UnsupportedIdlException {
+        final String enumClass = javaType(t, false);
+        if (v.getKind() == ThriftConstValue.Kind.INTEGER) {
+            return enumClass + ".findByValue(" + (int) parseLong(v) + ")";
+        }
+        expect(v, ThriftConstValue.Kind.IDENTIFIER);
+        final String text = v.getText();
+        final String valueName = text.substring(text.lastIndexOf('.') + 1);
+        for (final ThriftEnumValue value : t.resolved.getDefinition().getEnumValues()) {
+            if (value.getName().equals(valueName)) {
+                return enumClass + "." + valueName;
+            }
+        }
+        throw new UnsupportedIdlException(text + " is not a value of " + t.resolved.getDefinition().getName());
+    }
+
+    private String constReference(ThriftProgram scope, String name) throws UnsupportedIdlException {
+        final ThriftProgram.Resolved resolved = scope.resolve(name);
+        if (resolved == null || resolved.getDefinition().getKind() != ThriftDefinition.Kind.CONST) {
+            throw new UnsupportedIdlException("constant " + name + " is not defined");
+        }
+        return className(resolved.getProgram(), constantsClass(resolved.getProgram())) + "." + resolved.getDefinition().getName();
+    }
+
+    private static void expect(ThriftConstValue v, ThriftConstValue.Kind kind) throws UnsupportedIdlException {
+        if (v.getKind() != kind) {
+            throw new UnsupportedIdlException("expected a " + kind.name().toLowerCase() + " constant but found " + v);
+        }
+    }
+
+    private static long parseLong(ThriftConstValue v) throws UnsupportedIdlException {
+        String text = v.getText();
+        final boolean negative = text.startsWith("-");
+        if (negative || text.startsWith("+")) {
+            text = text.substring(1);
+        }
+        try {
+            final long value = text.startsWith("0x") || text.startsWith("0X")
+                    ? Long.parseLong(text.substring(2), 16)
+                    : Long.parseLong(text);
+            return negative ? -value : value;
+        } catch (NumberFormatException e) {
+            throw new UnsupportedIdlException("malformed integer " + v.getText());
+        }
+    }
+
+    /** The name to use for a class, qualified unless it is in the current package. */
+    String className(ThriftProgram program, String name) {
+        final String pkg = packageName(program);
+        if (pkg == null || pkg.equals(packageName(current))) {
+            return name;
+        }
+        return pkg + "." + name;
+    }
+
+    static String packageName(ThriftProgram program) {
+        return program.getDocument().getNamespace("java");
+    }
+
+    static String constantsClass(ThriftProgram program) {
+        return program.getName() + "Constants";
+    }
+
+    static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /** Converts a camel case name to upper case with underscores, as thrift does. */
+    static String constantName(String name) {
+        final StringBuilder sb = new StringBuilder();
+        boolean previousUpper = false;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            final boolean upper = Character.isUpperCase(c);
+            if (upper && i > 0 && !previousUpper) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(c));
+            previousUpper = upper;
+        }
+        return sb.toString();
+    }
+
+    static String quote(String text) {
+        final StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,100 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.codegen;
+
+/**
+ * Accumulates indented Java source, one line at a time.
+ */
+final class JavaWriter {
+
+    private static final String INDENT = "  ";
+
+    private final StringBuilder buf = new StringBuilder();
+    private int depth = 0;
+    private int temporaries = 0;
+
+    /** Writes a line at the current indentation. */
+    public JavaWriter line(String text) {
+        for (int i = 0; i < depth; i++) {
+            buf.append(INDENT);
+        }
+        buf.append(text).append('\n');
+        return this;
+    }
+
+    public JavaWriter blank() {
+        buf.append('\n');
+        return this;
+    }
+
+    /** Writes a line ending in an opening brace, and indents. */
+    public JavaWriter open(String text) {
+        line(text.isEmpty() ? "{" : text + " {");
+        depth++;
+        return this;
+    }
+
+    /** Outdents, and writes a closing brace. */
+    public JavaWriter close() {
+        return close("");
+    }
+
+    public JavaWriter close(String suffix) {
+        depth--;
+        return line("}" + suffix);
+    }
+
+    /** Closes a block and opens the next, as in {@code } else {}. */
+    public JavaWriter reopen(String text) {
+        depth--;
+        line("} " + text + " {");
+        depth++;
+        return this;
+    }
+
+    public JavaWriter indent() {
+        depth++;
+        return this;
+    }
+
+    public JavaWriter outdent() {
+        depth--;
+        return this;
+    }
+
+    /** Writes a doc comment, if there is any doc. */
+    public JavaWriter doc(String doc) {
+        if (doc == null || doc.isEmpty()) {
+            return this;
+        }
+        line("/**");
+        for (final String text : doc.split("\n")) {
+            line((" * " + text.replace("*/", "*&#47;")).replaceAll("\\s+$", ""));
+        }
+        return line(" */");
+    }
+
+    /** Returns a fresh name for a local variable. */
+    public String temporary(String prefix) {
+        return prefix + temporaries++;
+    }
+
+    @Override
+    public String toString() {
+        return buf.toString();
+    }
+}
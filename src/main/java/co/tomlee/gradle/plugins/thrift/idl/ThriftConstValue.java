@@ -0,0 +1,99 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A constant value in a Thrift IDL, as written.
+ */
+public final class ThriftConstValue {
+
+    public enum Kind {
+        INTEGER, DOUBLE, STRING, IDENTIFIER, LIST, MAP
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final List<ThriftConstValue> keys;
+    private final List<ThriftConstValue> values;
+
+    private ThriftConstValue(Kind kind, String text, List<ThriftConstValue> keys, List<ThriftConstValue> values) {
+        this.kind = kind;
+        this.text = text;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    public static ThriftConstValue scalar(Kind kind, String text) {
+        return new ThriftConstValue(kind, text, Collections.<ThriftConstValue>emptyList(), Collections.<ThriftConstValue>emptyList());
+    }
+
+    public static ThriftConstValue list(List<ThriftConstValue> values) {
+        return new ThriftConstValue(Kind.LIST, null, Collections.<ThriftConstValue>emptyList(), new ArrayList<>(values));
+    }
+
+    public static ThriftConstValue map(List<ThriftConstValue> keys, List<ThriftConstValue> values) {
+        return new ThriftConstValue(Kind.MAP, null, new ArrayList<>(keys), new ArrayList<>(values));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The literal text of a number or identifier, or the value of a string.
+     * Null for lists and maps.
+     */
+    public String getText() {
+        return text;
+    }
+
+    /** The keys of a map, parallel to {@link #getValues()}. */
+    public List<ThriftConstValue> getKeys() {
+        return keys;
+    }
+
+    /** The elements of a list, or the values of a map. */
+    public List<ThriftConstValue> getValues() {
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case STRING:
+                return "\"" + text + "\"";
+            case LIST:
+                return values.toString();
+            case MAP: {
+                final StringBuilder sb = new StringBuilder("{");
+                for (int i = 0; i < keys.size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(keys.get(i)).append(": ").append(values.get(i));
+                }
+                return sb.append("}").toString();
+            }
+            default:
+                return text;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A top-level definition in a Thrift IDL.
+ *
+ * Which of the properties are meaningful depends on the kind: constants and
+ * typedefs have a type, structs, unions and exceptions have fields, enums
+ * have values and services have functions.
+ */
+public final class ThriftDefinition {
+
+    public enum Kind {
+        CONST, TYPEDEF, ENUM, SENUM, STRUCT, UNION, EXCEPTION, SERVICE;
+
+        /** Whether the definition introduces a type which fields can refer to. */
+        public boolean isType() {
+            return this != CONST && this != SERVICE;
+        }
+    }
+
+    private final Kind kind;
+    private final String name;
+    private final String doc;
+    private final int line;
+    private final int start;
+    private final int end;
+    private final ThriftType type;
+    private final ThriftConstValue value;
+    private final List<ThriftField> fields;
+    private final List<ThriftEnumValue> enumValues;
+    private final String extendsName;
+    private final List<ThriftFunction> functions;
+    private final Map<String, String> annotations;
+
+    public ThriftDefinition(Kind kind, String name, String doc, int line, int start, int end,
+            ThriftType type, ThriftConstValue value, List<ThriftField> fields, List<ThriftEnumValue> enumValues,
+            String extendsName, List<ThriftFunction> functions, Map<String, String> annotations) {
+        this.kind = kind;
+        this.name = name;
+        this.doc = doc;
+        this.line = line;
+        this.start = start;
+        this.end = end;
+        this.type = type;
+        this.value = value;
+        this.fields = fields == null ? Collections.<ThriftField>emptyList() : fields;
+        this.enumValues = enumValues == null ? Collections.<ThriftEnumValue>emptyList() : enumValues;
+        this.extendsName = extendsName;
+        this.functions = functions == null ? Collections.<ThriftFunction>emptyList() : functions;
+        this.annotations = annotations == null ? Collections.<String, String>emptyMap() : annotations;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The doc comment, or null. */
+    public String getDoc() {
+        return doc;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    /** The offset in the source of the definition, including its doc comment. */
+    public int getStart() {
+        return start;
+    }
+
+    /** The offset in the source just past the definition. */
+    public int getEnd() {
+        return end;
+    }
+
+    /** The type of a constant, or the aliased type of a typedef. */
+    public ThriftType getType() {
+        return type;
+    }
+
+    /** The value of a constant. */
+    public ThriftConstValue getValue() {
+        return value;
+    }
+
+    public List<ThriftField> getFields() {
+        return fields;
+    }
+
+    public List<ThriftEnumValue> getEnumValues() {
+        return enumValues;
+    }
+
+    /** The service a service extends, or null. */
+    public String getExtendsName() {
+        return extendsName;
+    }
+
+    public List<ThriftFunction> getFunctions() {
+        return functions;
+    }
+
+    public Map<String, String> getAnnotations() {
+        return annotations;
+    }
+
+    /**
+     * Returns the names this definition refers to: user types, the service
+     * it extends, and identifiers used as constant values. Names may be
+     * qualified by the name of an included file.
+     */
+    public Set<String> getReferencedNames() {
+        final Set<String> names = new LinkedHashSet<>();
+        if (type != null) {
+            type.collectNamedTypes(names);
+        }
+        if (value != null) {
+            collectIdentifiers(value, names);
+        }
+        collectFields(fields, names);
+        if (extendsName != null) {
+            names.add(extendsName);
+        }
+        for (final ThriftFunction function : functions) {
+            if (function.getReturnType() != null) {
+                function.getReturnType().collectNamedTypes(names);
+            }
+            collectFields(function.getArguments(), names);
+            collectFields(function.getExceptions(), names);
+        }
+        return names;
+    }
+
+    private static void collectFields(List<ThriftField> fields, Set<String> names) {
+        for (final ThriftField field : fields) {
+            field.getType().collectNamedTypes(names);
+            if (field.getDefaultValue() != null) {
+                collectIdentifiers(field.getDefaultValue(), names);
+            }
+        }
+    }
+
+    private static void collectIdentifiers(ThriftConstValue value, Set<String> names) {
+        if (value.getKind() == ThriftConstValue.Kind.IDENTIFIER) {
+            names.add(value.getText());
+        }
+        for (final ThriftConstValue key : value.getKeys()) {
+            collectIdentifiers(key, names);
+        }
+        for (final ThriftConstValue element : value.getValues()) {
+            collectIdentifiers(element, names);
+        }
+    }
+}
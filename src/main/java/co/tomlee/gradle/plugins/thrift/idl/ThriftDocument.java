@@ -0,0 +1,144 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed Thrift IDL: its headers and its definitions.
+ */
+public final class ThriftDocument {
+
+    /** An {@code include} statement. */
+    public static final class Include {
+
+        private final String path;
+        private final int line;
+
+        public Include(String path, int line) {
+            this.path = path;
+            this.line = line;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * The name definitions from the included file are qualified with,
+         * which is its file name without the extension.
+         */
+        public String getPrefix() {
+            String name = new File(path).getName();
+            final int dot = name.lastIndexOf('.');
+            return dot < 0 ? name : name.substring(0, dot);
+        }
+    }
+
+    private final File file;
+    private final List<Include> includes;
+    private final List<String> cppIncludes;
+    private final Map<String, String> namespaces;
+    private final List<ThriftDefinition> definitions;
+    private final int headerEnd;
+    private final List<String> warnings;
+
+    public ThriftDocument(File file, List<Include> includes, List<String> cppIncludes, Map<String, String> namespaces,
+            List<ThriftDefinition> definitions, int headerEnd) {
+        this(file, includes, cppIncludes, namespaces, definitions, headerEnd, Collections.<String>emptyList());
+    }
+
+    public ThriftDocument(File file, List<Include> includes, List<String> cppIncludes, Map<String, String> namespaces,
+            List<ThriftDefinition> definitions, int headerEnd, List<String> warnings) {
+        this.file = file;
+        this.includes = includes;
+        this.cppIncludes = cppIncludes;
+        this.namespaces = namespaces;
+        this.definitions = definitions;
+        this.headerEnd = headerEnd;
+        this.warnings = warnings;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public List<Include> getIncludes() {
+        return includes;
+    }
+
+    public List<String> getCppIncludes() {
+        return cppIncludes;
+    }
+
+    /** Namespaces keyed by scope, such as {@code java} or {@code *}. */
+    public Map<String, String> getNamespaces() {
+        return namespaces;
+    }
+
+    /** The namespace for the given scope, falling back to the {@code *} scope. */
+    public String getNamespace(String scope) {
+        final String namespace = namespaces.get(scope);
+        return namespace != null ? namespace : namespaces.get("*");
+    }
+
+    public List<ThriftDefinition> getDefinitions() {
+        return definitions;
+    }
+
+    /** Returns the definitions of the given kind. */
+    public List<ThriftDefinition> getDefinitions(ThriftDefinition.Kind kind) {
+        final List<ThriftDefinition> result = new ArrayList<>();
+        for (final ThriftDefinition definition : definitions) {
+            if (definition.getKind() == kind) {
+                result.add(definition);
+            }
+        }
+        return result;
+    }
+
+    /** Returns the definition with the given name, or null. */
+    public ThriftDefinition getDefinition(String name) {
+        for (final ThriftDefinition definition : definitions) {
+            if (definition.getName().equals(name)) {
+                return definition;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * What thrift only warns about, such as non-positive field ids, as
+     * {@code file:line:column: message}.
+     */
+    public List<String> getWarnings() {
+        return warnings;
+    }
+
+    /** The offset in the source just past the last header. */
+    public int getHeaderEnd() {
+        return headerEnd;
+    }
+}
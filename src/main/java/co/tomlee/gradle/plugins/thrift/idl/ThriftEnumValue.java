@@ -0,0 +1,53 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+/**
+ * A member of an enum.
+ */
+public final class ThriftEnumValue {
+
+    private final String name;
+    private final int value;
+    private final String doc;
+    private final int line;
+
+    public ThriftEnumValue(String name, int value, String doc, int line) {
+        this.name = name;
+        this.value = value;
+        this.doc = doc;
+        this.line = line;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The value, either as written or one more than the previous member's. */
+    public int getValue() {
+        return value;
+    }
+
+    /** The doc comment, or null. */
+    public String getDoc() {
+        return doc;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.util.Map;
+
+/**
+ * A field of a struct, union or exception, or an argument or exception of
+ * a service function.
+ */
+public final class ThriftField {
+
+    public enum Requiredness {
+        DEFAULT, REQUIRED, OPTIONAL
+    }
+
+    private final int id;
+    private final boolean explicitId;
+    private final Requiredness requiredness;
+    private final ThriftType type;
+    private final String name;
+    private final ThriftConstValue defaultValue;
+    private final String doc;
+    private final int line;
+    private final Map<String, String> annotations;
+
+    public ThriftField(int id, boolean explicitId, Requiredness requiredness, ThriftType type, String name,
+            ThriftConstValue defaultValue, String doc, int line, Map<String, String> annotations) {
+        this.id = id;
+        this.explicitId = explicitId;
+        this.requiredness = requiredness;
+        this.type = type;
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.doc = doc;
+        this.line = line;
+        this.annotations = annotations;
+    }
+
+    /** The field id, assigned negative values counting down when not given, as the compiler does. */
+    public int getId() {
+        return id;
+    }
+
+    public boolean isExplicitId() {
+        return explicitId;
+    }
+
+    public Requiredness getRequiredness() {
+        return requiredness;
+    }
+
+    public ThriftType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** The default value, or null. */
+    public ThriftConstValue getDefaultValue() {
+        return defaultValue;
+    }
+
+    /** The doc comment, or null. */
+    public String getDoc() {
+        return doc;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public Map<String, String> getAnnotations() {
+        return annotations;
+    }
+}
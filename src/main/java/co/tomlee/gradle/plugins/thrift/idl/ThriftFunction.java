@@ -0,0 +1,74 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.util.List;
+
+/**
+ * A function of a service.
+ */
+public final class ThriftFunction {
+
+    private final String name;
+    private final boolean oneway;
+    private final ThriftType returnType;
+    private final List<ThriftField> arguments;
+    private final List<ThriftField> exceptions;
+    private final String doc;
+    private final int line;
+
+    public ThriftFunction(String name, boolean oneway, ThriftType returnType, List<ThriftField> arguments,
+            List<ThriftField> exceptions, String doc, int line) {
+        this.name = name;
+        this.oneway = oneway;
+        this.returnType = returnType;
+        this.arguments = arguments;
+        this.exceptions = exceptions;
+        this.doc = doc;
+        this.line = line;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isOneway() {
+        return oneway;
+    }
+
+    /** The return type, or null for void. */
+    public ThriftType getReturnType() {
+        return returnType;
+    }
+
+    public List<ThriftField> getArguments() {
+        return arguments;
+    }
+
+    public List<ThriftField> getExceptions() {
+        return exceptions;
+    }
+
+    /** The doc comment, or null. */
+    public String getDoc() {
+        return doc;
+    }
+
+    public int getLine() {
+        return line;
+    }
+}
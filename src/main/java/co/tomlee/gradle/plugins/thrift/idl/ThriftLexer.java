@@ -0,0 +1,216 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a Thrift IDL into tokens.
+ *
+ * Ordinary comments and whitespace are dropped; doc comments are kept as
+ * {@link ThriftToken.Kind#DOC_COMMENT} tokens.
+ */
+public final class ThriftLexer {
+
+    private static final String SYMBOLS = "{}()[]<>,;:=*&";
+
+    private final File file;
+    private final String text;
+    private int pos = 0;
+    private int line = 1;
+    private int lineStart = 0;
+
+    public ThriftLexer(File file, String text) {
+        this.file = file;
+        this.text = text;
+    }
+
+    public static List<ThriftToken> tokenize(File file, String text) throws ThriftParseException {
+        return new ThriftLexer(file, text).tokenize();
+    }
+
+    public List<ThriftToken> tokenize() throws ThriftParseException {
+        final List<ThriftToken> tokens = new ArrayList<>();
+        for (;;) {
+            skipWhitespaceAndComments(tokens);
+            if (pos >= text.length()) {
+                tokens.add(new ThriftToken(ThriftToken.Kind.EOF, "", line, pos - lineStart + 1, pos, pos));
+                return tokens;
+            }
+            tokens.add(next());
+        }
+    }
+
+    private void skipWhitespaceAndComments(List<ThriftToken> tokens) throws ThriftParseException {
+        while (pos < text.length()) {
+            final char c = text.charAt(pos);
+            if (c == '\n') {
+                pos++;
+                line++;
+                lineStart = pos;
+            } else if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '#' || text.startsWith("//", pos)) {
+                while (pos < text.length() && text.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (text.startsWith("/*", pos)) {
+                final int startLine = line;
+                final int startColumn = pos - lineStart + 1;
+                final int start = pos;
+                final int end = text.indexOf("*/", pos + 2);
+                if (end < 0) {
+                    throw new ThriftParseException(file, startLine, startColumn, "Unterminated comment");
+                }
+                final boolean doc = text.startsWith("/**", pos) && end > pos + 2;
+                advanceTo(end + 2);
+                if (doc) {
+                    tokens.add(new ThriftToken(ThriftToken.Kind.DOC_COMMENT, text.substring(start + 3, end),
+                            startLine, startColumn, start, pos));
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Moves to the given offset, keeping track of line breaks on the way. */
+    private void advanceTo(int target) {
+        while (pos < target) {
+            if (text.charAt(pos) == '\n') {
+                line++;
+                lineStart = pos + 1;
+            }
+            pos++;
+        }
+    }
+
+    private ThriftToken next() throws ThriftParseException {
+        final int start = pos;
+        final int startLine = line;
+        final int startColumn = pos - lineStart + 1;
+        final char c = text.charAt(pos);
+
+        if (c == '"' || c == '\'') {
+            final StringBuilder sb = new StringBuilder();
+            pos++;
+            for (;;) {
+                if (pos >= text.length() || text.charAt(pos) == '\n') {
+                    throw new ThriftParseException(file, startLine, startColumn, "Unterminated string literal");
+                }
+                final char d = text.charAt(pos++);
+                if (d == c) {
+                    break;
+                }
+                if (d == '\\' && pos < text.length()) {
+                    final char e = text.charAt(pos++);
+                    switch (e) {
+                        case 'n':
+                            sb.append('\n');
+                            break;
+                        case 't':
+                            sb.append('\t');
+                            break;
+                        case 'r':
+                            sb.append('\r');
+                            break;
+                        default:
+                            sb.append(e);
+                            break;
+                    }
+                } else {
+                    sb.append(d);
+                }
+            }
+            return new ThriftToken(ThriftToken.Kind.STRING, sb.toString(), startLine, startColumn, start, pos);
+        }
+
+        if (Character.isLetter(c) || c == '_') {
+            pos++;
+            while (pos < text.length()) {
+                final char d = text.charAt(pos);
+                if (Character.isLetterOrDigit(d) || d == '_' || d == '.') {
+                    pos++;
+                } else {
+                    break;
+                }
+            }
+            return new ThriftToken(ThriftToken.Kind.IDENTIFIER, text.substring(start, pos), startLine, startColumn, start, pos);
+        }
+
+        if (Character.isDigit(c) || ((c == '+' || c == '-' || c == '.')
+                && pos + 1 < text.length() && Character.isDigit(text.charAt(pos + 1)))) {
+            return number(start, startLine, startColumn);
+        }
+
+        if (SYMBOLS.indexOf(c) >= 0) {
+            pos++;
+            return new ThriftToken(ThriftToken.Kind.SYMBOL, String.valueOf(c), startLine, startColumn, start, pos);
+        }
+
+        throw new ThriftParseException(file, startLine, startColumn, "Unexpected character '" + c + "'");
+    }
+
+    private ThriftToken number(int start, int startLine, int startColumn) throws ThriftParseException {
+        if (text.charAt(pos) == '+' || text.charAt(pos) == '-') {
+            pos++;
+        }
+        if (text.startsWith("0x", pos) || text.startsWith("0X", pos)) {
+            pos += 2;
+            final int digits = pos;
+            while (pos < text.length() && Character.digit(text.charAt(pos), 16) >= 0) {
+                pos++;
+            }
+            if (pos == digits) {
+                throw new ThriftParseException(file, startLine, startColumn, "Malformed hex constant");
+            }
+            return new ThriftToken(ThriftToken.Kind.INTEGER, text.substring(start, pos), startLine, startColumn, start, pos);
+        }
+        boolean isDouble = false;
+        while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+            pos++;
+        }
+        if (pos < text.length() && text.charAt(pos) == '.') {
+            isDouble = true;
+            pos++;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            isDouble = true;
+            pos++;
+            if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+                pos++;
+            }
+            final int digits = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (pos == digits) {
+                throw new ThriftParseException(file, startLine, startColumn, "Malformed exponent");
+            }
+        }
+        if (pos < text.length() && (Character.isLetter(text.charAt(pos)) || text.charAt(pos) == '_')) {
+            throw new ThriftParseException(file, startLine, startColumn, "Malformed number");
+        }
+        return new ThriftToken(isDouble ? ThriftToken.Kind.DOUBLE : ThriftToken.Kind.INTEGER,
+                text.substring(start, pos), startLine, startColumn, start, pos);
+    }
+}
@@ -0,0 +1,517 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A recursive descent parser for Thrift IDL, following the grammar of the
+ * Apache Thrift compiler closely enough to build a {@link ThriftDocument}.
+ *
+ * The parser does not resolve types or includes; it only checks syntax.
+ */
+public final class ThriftParser {
+
+    private static final Set<String> LEGACY_NAMESPACES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "cpp_namespace", "php_namespace", "py_module", "perl_package", "ruby_namespace", "smalltalk_category",
+            "smalltalk_prefix", "java_package", "cocoa_prefix", "xsd_namespace", "csharp_namespace", "delphi_namespace")));
+
+    private final File file;
+    private final List<ThriftToken> tokens = new ArrayList<>();
+    private final List<ThriftToken> docs = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+    private int index = 0;
+
+    private ThriftParser(File file, List<ThriftToken> allTokens) {
+        this.file = file;
+        ThriftToken doc = null;
+        for (final ThriftToken token : allTokens) {
+            if (token.getKind() == ThriftToken.Kind.DOC_COMMENT) {
+                doc = token;
+            } else {
+                tokens.add(token);
+                docs.add(doc);
+                doc = null;
+            }
+        }
+    }
+
+    public static ThriftDocument parse(File file) throws IOException, ThriftParseException {
+        return parse(file, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+
+    public static ThriftDocument parse(File file, String text) throws ThriftParseException {
+        return new ThriftParser(file, ThriftLexer.tokenize(file, text)).parseDocument();
+    }
+
+    private ThriftDocument parseDocument() throws ThriftParseException {
+        final List<ThriftDocument.Include> includes = new ArrayList<>();
+        final List<String> cppIncludes = new ArrayList<>();
+        final Map<String, String> namespaces = new LinkedHashMap<>();
+        final List<ThriftDefinition> definitions = new ArrayList<>();
+        final Set<String> names = new HashSet<>();
+        int headerEnd = 0;
+
+        while (peek().getKind() != ThriftToken.Kind.EOF) {
+            final ThriftToken token = peek();
+            if (token.getKind() != ThriftToken.Kind.IDENTIFIER) {
+                throw error(token, "Expected a header or definition but found " + token);
+            }
+            final String keyword = token.getText();
+            if (keyword.equals("include") || keyword.equals("cpp_include")
+                    || keyword.equals("namespace") || LEGACY_NAMESPACES.contains(keyword)) {
+                if (!definitions.isEmpty()) {
+                    throw error(token, "Headers must come before all definitions");
+                }
+                next();
+                if (keyword.equals("include")) {
+                    includes.add(new ThriftDocument.Include(expect(ThriftToken.Kind.STRING, "include path").getText(), token.getLine()));
+                } else if (keyword.equals("cpp_include")) {
+                    cppIncludes.add(expect(ThriftToken.Kind.STRING, "include path").getText());
+                } else if (keyword.equals("namespace")) {
+                    final ThriftToken scope = next();
+                    if (!scope.isSymbol('*') && scope.getKind() != ThriftToken.Kind.IDENTIFIER) {
+                        throw error(scope, "Expected a namespace scope but found " + scope);
+                    }
+                    final ThriftToken name = next();
+                    if (name.getKind() != ThriftToken.Kind.IDENTIFIER && name.getKind() != ThriftToken.Kind.STRING) {
+                        throw error(name, "Expected a namespace but found " + name);
+                    }
+                    namespaces.put(scope.getText(), name.getText());
+                    parseAnnotations();
+                } else {
+                    final ThriftToken name = next();
+                    if (name.getKind() != ThriftToken.Kind.IDENTIFIER && name.getKind() != ThriftToken.Kind.STRING) {
+                        throw error(name, "Expected a namespace but found " + name);
+                    }
+                    namespaces.put(keyword, name.getText());
+                }
+                skipSeparator();
+                headerEnd = previous().getEnd();
+                continue;
+            }
+
+            final ThriftDefinition definition = parseDefinition();
+            if (!names.add(definition.getName())) {
+                throw new ThriftParseException(file, definition.getLine(), 1,
+                        "Duplicate definition of " + definition.getName());
+            }
+            definitions.add(definition);
+        }
+        return new ThriftDocument(file, includes, cppIncludes, namespaces, definitions, headerEnd, warnings);
+    }
+
+    private ThriftDefinition parseDefinition() throws ThriftParseException {
+        final ThriftToken doc = docs.get(index);
+        final ThriftToken keyword = next();
+        final int start = doc != null ? doc.getStart() : keyword.getStart();
+        final String docText = cleanDoc(doc);
+
+        switch (keyword.getText()) {
+            case "const": {
+                final ThriftType type = parseType();
+                final ThriftToken name = expectIdentifier("constant name");
+                expectSymbol('=');
+                final ThriftConstValue value = parseConstValue();
+                skipSeparator();
+                return new ThriftDefinition(ThriftDefinition.Kind.CONST, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), type, value, null, null, null, null, null);
+            }
+            case "typedef": {
+                final ThriftType type = parseType();
+                final ThriftToken name = expectIdentifier("typedef name");
+                final Map<String, String> annotations = parseAnnotations();
+                skipSeparator();
+                return new ThriftDefinition(ThriftDefinition.Kind.TYPEDEF, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), type, null, null, null, null, null, annotations);
+            }
+            case "enum": {
+                final ThriftToken name = expectIdentifier("enum name");
+                expectSymbol('{');
+                final List<ThriftEnumValue> values = new ArrayList<>();
+                int next = 0;
+                while (!peek().isSymbol('}')) {
+                    final String valueDoc = cleanDoc(docs.get(index));
+                    final ThriftToken valueName = expectIdentifier("enum value name");
+                    int value = next;
+                    if (peek().isSymbol('=')) {
+                        next();
+                        value = parseInt(expect(ThriftToken.Kind.INTEGER, "enum value"));
+                    }
+                    parseAnnotations();
+                    skipSeparator();
+                    values.add(new ThriftEnumValue(valueName.getText(), value, valueDoc, valueName.getLine()));
+                    next = value + 1;
+                }
+                expectSymbol('}');
+                final Map<String, String> annotations = parseAnnotations();
+                skipSeparator();
+                return new ThriftDefinition(ThriftDefinition.Kind.ENUM, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), null, null, null, values, null, null, annotations);
+            }
+            case "senum": {
+                final ThriftToken name = expectIdentifier("senum name");
+                expectSymbol('{');
+                final List<ThriftEnumValue> values = new ArrayList<>();
+                while (!peek().isSymbol('}')) {
+                    final ThriftToken value = expect(ThriftToken.Kind.STRING, "senum value");
+                    skipSeparator();
+                    values.add(new ThriftEnumValue(value.getText(), values.size(), null, value.getLine()));
+                }
+                expectSymbol('}');
+                final Map<String, String> annotations = parseAnnotations();
+                skipSeparator();
+                return new ThriftDefinition(ThriftDefinition.Kind.SENUM, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), null, null, null, values, null, null, annotations);
+            }
+            case "struct":
+            case "union":
+            case "exception": {
+                final ThriftToken name = expectIdentifier(keyword.getText() + " name");
+                if (peek().is(ThriftToken.Kind.IDENTIFIER, "xsd_all")) {
+                    next();
+                }
+                expectSymbol('{');
+                final List<ThriftField> fields = parseFields('}');
+                final Map<String, String> annotations = parseAnnotations();
+                skipSeparator();
+                final ThriftDefinition.Kind kind = keyword.getText().equals("struct") ? ThriftDefinition.Kind.STRUCT
+                        : keyword.getText().equals("union") ? ThriftDefinition.Kind.UNION : ThriftDefinition.Kind.EXCEPTION;
+                return new ThriftDefinition(kind, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), null, null, fields, null, null, null, annotations);
+            }
+            case "service": {
+                final ThriftToken name = expectIdentifier("service name");
+                String extendsName = null;
+                if (peek().is(ThriftToken.Kind.IDENTIFIER, "extends")) {
+                    next();
+                    extendsName = expectIdentifier("service name").getText();
+                }
+                expectSymbol('{');
+                final List<ThriftFunction> functions = new ArrayList<>();
+                final Set<String> functionNames = new HashSet<>();
+                while (!peek().isSymbol('}')) {
+                    final ThriftFunction function = parseFunction();
+                    if (!functionNames.add(function.getName())) {
+                        throw new ThriftParseException(file, function.getLine(), 1,
+                                "Duplicate function " + function.getName() + " in service " + name.getText());
+                    }
+                    functions.add(function);
+                }
+                expectSymbol('}');
+                final Map<String, String> annotations = parseAnnotations();
+                skipSeparator();
+                return new ThriftDefinition(ThriftDefinition.Kind.SERVICE, name.getText(), docText, keyword.getLine(),
+                        start, previous().getEnd(), null, null, null, null, extendsName, functions, annotations);
+            }
+            default:
+                throw error(keyword, "Expected a definition but found " + keyword);
+        }
+    }
+
+    private ThriftFunction parseFunction() throws ThriftParseException {
+        final String doc = cleanDoc(docs.get(index));
+        boolean oneway = false;
+        if (peek().is(ThriftToken.Kind.IDENTIFIER, "oneway") || peek().is(ThriftToken.Kind.IDENTIFIER, "async")) {
+            next();
+            oneway = true;
+        }
+        ThriftType returnType = null;
+        if (peek().is(ThriftToken.Kind.IDENTIFIER, "void")) {
+            next();
+        } else {
+            returnType = parseType();
+        }
+        final ThriftToken name = expectIdentifier("function name");
+        expectSymbol('(');
+        final List<ThriftField> arguments = parseFields(')');
+        List<ThriftField> exceptions = Collections.emptyList();
+        if (peek().is(ThriftToken.Kind.IDENTIFIER, "throws")) {
+            next();
+            expectSymbol('(');
+            exceptions = parseFields(')');
+        }
+        parseAnnotations();
+        skipSeparator();
+        return new ThriftFunction(name.getText(), oneway, returnType, arguments, exceptions, doc, name.getLine());
+    }
+
+    /** Parses fields up to and including the given closing symbol. */
+    private List<ThriftField> parseFields(char close) throws ThriftParseException {
+        final List<ThriftField> fields = new ArrayList<>();
+        final Set<Integer> ids = new HashSet<>();
+        final Set<String> names = new HashSet<>();
+        int implicitId = -1;
+        while (!peek().isSymbol(close)) {
+            final String doc = cleanDoc(docs.get(index));
+            final int line = peek().getLine();
+            int id;
+            boolean explicitId = false;
+            if (peek().getKind() == ThriftToken.Kind.INTEGER) {
+                final ThriftToken idToken = next();
+                id = parseInt(idToken);
+                explicitId = true;
+                expectSymbol(':');
+                if (id <= 0) {
+                    // As thrift does, unless it is given --allow-neg-keys.
+                    warn(idToken, "Nonpositive value (" + id + ") not allowed as a field key; assigning an id automatically");
+                    id = implicitId--;
+                    explicitId = false;
+                }
+            } else {
+                id = implicitId--;
+            }
+            ThriftField.Requiredness requiredness = ThriftField.Requiredness.DEFAULT;
+            if (peek().is(ThriftToken.Kind.IDENTIFIER, "required")) {
+                next();
+                requiredness = ThriftField.Requiredness.REQUIRED;
+            } else if (peek().is(ThriftToken.Kind.IDENTIFIER, "optional")) {
+                next();
+                requiredness = ThriftField.Requiredness.OPTIONAL;
+            }
+            final ThriftType type = parseType();
+            if (peek().isSymbol('&')) {
+                next();
+            }
+            final ThriftToken name = expectIdentifier("field name");
+            ThriftConstValue defaultValue = null;
+            if (peek().isSymbol('=')) {
+                next();
+                defaultValue = parseConstValue();
+            }
+            while (peek().is(ThriftToken.Kind.IDENTIFIER, "xsd_optional") || peek().is(ThriftToken.Kind.IDENTIFIER, "xsd_nillable")) {
+                next();
+            }
+            if (peek().is(ThriftToken.Kind.IDENTIFIER, "xsd_attrs")) {
+                next();
+                expectSymbol('{');
+                parseFields('}');
+            }
+            final Map<String, String> annotations = parseAnnotations();
+            skipSeparator();
+            if (!ids.add(id)) {
+                throw new ThriftParseException(file, line, 1, "Duplicate field id " + id);
+            }
+            if (!names.add(name.getText())) {
+                throw new ThriftParseException(file, line, 1, "Duplicate field name " + name.getText());
+            }
+            fields.add(new ThriftField(id, explicitId, requiredness, type, name.getText(), defaultValue, doc, line, annotations));
+        }
+        expectSymbol(close);
+        return fields;
+    }
+
+    private ThriftType parseType() throws ThriftParseException {
+        final ThriftToken token = expectIdentifier("type");
+        final ThriftType type;
+        switch (token.getText()) {
+            case "map": {
+                skipCppType();
+                expectSymbol('<');
+                final ThriftType keyType = parseType();
+                expectSymbol(',');
+                final ThriftType valueType = parseType();
+                expectSymbol('>');
+                type = ThriftType.map(keyType, valueType);
+                break;
+            }
+            case "set": {
+                skipCppType();
+                expectSymbol('<');
+                final ThriftType elementType = parseType();
+                expectSymbol('>');
+                type = ThriftType.set(elementType);
+                break;
+            }
+            case "list": {
+                expectSymbol('<');
+                final ThriftType elementType = parseType();
+                expectSymbol('>');
+                skipCppType();
+                type = ThriftType.list(elementType);
+                break;
+            }
+            default:
+                type = ThriftType.named(token.getText());
+                break;
+        }
+        parseAnnotations();
+        return type;
+    }
+
+    private void skipCppType() throws ThriftParseException {
+        if (peek().is(ThriftToken.Kind.IDENTIFIER, "cpp_type")) {
+            next();
+            expect(ThriftToken.Kind.STRING, "cpp type");
+        }
+    }
+
+    private ThriftConstValue parseConstValue() throws ThriftParseException {
+        final ThriftToken token = next();
+        switch (token.getKind()) {
+            case INTEGER:
+                return ThriftConstValue.scalar(ThriftConstValue.Kind.INTEGER, token.getText());
+            case DOUBLE:
+                return ThriftConstValue.scalar(ThriftConstValue.Kind.DOUBLE, token.getText());
+            case STRING:
+                return ThriftConstValue.scalar(ThriftConstValue.Kind.STRING, token.getText());
+            case IDENTIFIER:
+                return ThriftConstValue.scalar(ThriftConstValue.Kind.IDENTIFIER, token.getText());
+            default:
+                break;
+        }
+        if (token.isSymbol('[')) {
+            final List<ThriftConstValue> values = new ArrayList<>();
+            while (!peek().isSymbol(']')) {
+                values.add(parseConstValue());
+                skipSeparator();
+            }
+            expectSymbol(']');
+            return ThriftConstValue.list(values);
+        }
+        if (token.isSymbol('{')) {
+            final List<ThriftConstValue> keys = new ArrayList<>();
+            final List<ThriftConstValue> values = new ArrayList<>();
+            while (!peek().isSymbol('}')) {
+                keys.add(parseConstValue());
+                expectSymbol(':');
+                values.add(parseConstValue());
+                skipSeparator();
+            }
+            expectSymbol('}');
+            return ThriftConstValue.map(keys, values);
+        }
+        throw error(token, "Expected a constant value but found " + token);
+    }
+
+    private Map<String, String> parseAnnotations() throws ThriftParseException {
+        if (!peek().isSymbol('(')) {
+            return Collections.emptyMap();
+        }
+        next();
+        final Map<String, String> annotations = new LinkedHashMap<>();
+        while (!peek().isSymbol(')')) {
+            final ThriftToken key = expectIdentifier("annotation name");
+            String value = "1";
+            if (peek().isSymbol('=')) {
+                next();
+                value = expect(ThriftToken.Kind.STRING, "annotation value").getText();
+            }
+            annotations.put(key.getText(), value);
+            skipSeparator();
+        }
+        expectSymbol(')');
+        return annotations;
+    }
+
+    private void skipSeparator() {
+        if (peek().isSymbol(',') || peek().isSymbol(';')) {
+            next();
+        }
+    }
+
+    private int parseInt(ThriftToken token) throws ThriftParseException {
+        try {
+            final String text = token.getText();
+            final boolean negative = text.startsWith("-");
+            final String digits = text.startsWith("+") || negative ? text.substring(1) : text;
+            final long value = digits.startsWith("0x") || digits.startsWith("0X")
+                    ? Long.parseLong(digits.substring(2), 16)
+                    : Long.parseLong(digits);
+            final long signed = negative ? -value : value;
+            if (signed < Integer.MIN_VALUE || signed > Integer.MAX_VALUE) {
+                throw error(token, "Integer out of range: " + text);
+            }
+            return (int) signed;
+        } catch (NumberFormatException e) {
+            throw error(token, "Malformed integer: " + token.getText());
+        }
+    }
+
+    private ThriftToken peek() {
+        return tokens.get(index);
+    }
+
+    private ThriftToken previous() {
+        return tokens.get(index - 1);
+    }
+
+    private ThriftToken next() {
+        final ThriftToken token = tokens.get(index);
+        if (token.getKind() != ThriftToken.Kind.EOF) {
+            index++;
+        }
+        return token;
+    }
+
+    private ThriftToken expect(ThriftToken.Kind kind, String what) throws ThriftParseException {
+        final ThriftToken token = next();
+        if (token.getKind() != kind) {
+            throw error(token, "Expected " + what + " but found " + token);
+        }
+        return token;
+    }
+
+    private ThriftToken expectIdentifier(String what) throws ThriftParseException {
+        return expect(ThriftToken.Kind.IDENTIFIER, what);
+    }
+
+    private void expectSymbol(char c) throws ThriftParseException {
+        final ThriftToken token = next();
+        if (!token.isSymbol(c)) {
+            throw error(token, "Expected '" + c + "' but found " + token);
+        }
+    }
+
+    private ThriftParseException error(ThriftToken token, String message) {
+        return new ThriftParseException(file, token.getLine(), token.getColumn(), message);
+    }
+
+    /** Records a warning, located like an error. */
+    private void warn(ThriftToken token, String message) {
+        warnings.add(error(token, message).getMessage());
+    }
+
+    /** Strips the leading asterisks and indentation from a doc comment. */
+    private static String cleanDoc(ThriftToken doc) {
+        if (doc == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (String line : doc.getText().split("\r?\n")) {
+            line = line.trim();
+            if (line.startsWith("*")) {
+                line = line.substring(1).trim();
+            }
+            if (sb.length() > 0 || !line.isEmpty()) {
+                sb.append(line).append('\n');
+            }
+        }
+        return sb.toString().trim();
+    }
+}
@@ -0,0 +1,173 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A parsed IDL together with the programs it includes, which is enough to
+ * resolve the names it uses.
+ */
+public final class ThriftProgram {
+
+    /** A definition and the program which defines it. */
+    public static final class Resolved {
+
+        private final ThriftProgram program;
+        private final ThriftDefinition definition;
+
+        private Resolved(ThriftProgram program, ThriftDefinition definition) {
+            this.program = program;
+            this.definition = definition;
+        }
+
+        public ThriftProgram getProgram() {
+            return program;
+        }
+
+        public ThriftDefinition getDefinition() {
+            return definition;
+        }
+    }
+
+    private final ThriftDocument document;
+    private final Map<String, ThriftProgram> includes = new LinkedHashMap<>();
+
+    private ThriftProgram(ThriftDocument document) {
+        this.document = document;
+    }
+
+    /**
+     * Parses the given IDL and, transitively, everything it includes.
+     *
+     * @param cache Programs already loaded, keyed by normalized file, which
+     * is shared between calls so that common includes are parsed once.
+     */
+    public static ThriftProgram load(File file, List<File> includeDirs, Map<File, ThriftProgram> cache)
+            throws IOException, ThriftParseException {
+        final File key = normalize(file);
+        ThriftProgram program = cache.get(key);
+        if (program != null) {
+            return program;
+        }
+        program = new ThriftProgram(ThriftParser.parse(key));
+        cache.put(key, program);
+        for (final ThriftDocument.Include include : program.document.getIncludes()) {
+            final File resolved = resolveInclude(key, include.getPath(), includeDirs);
+            if (resolved == null) {
+                throw new ThriftParseException(key, include.getLine(), 1, "Could not find include file " + include.getPath());
+            }
+            program.includes.put(include.getPrefix(), load(resolved, includeDirs, cache));
+        }
+        return program;
+    }
+
+    /**
+     * Resolves an include as the thrift compiler does: an absolute path
+     * names only itself, and any other path is looked up relative to the
+     * including file first, then against each include directory in turn.
+     * This is the only resolver, so that checking, pruning and the include
+     * graph all agree on what an include names.
+     *
+     * @return The included file, normalized, or null if it does not exist.
+     */
+    public static File resolveInclude(File from, String path, List<File> includeDirs) {
+        final File relative = new File(path);
+        if (relative.isAbsolute()) {
+            return relative.isFile() ? normalize(relative) : null;
+        }
+        final File sibling = new File(from.getParentFile(), path);
+        if (sibling.isFile()) {
+            return normalize(sibling);
+        }
+        for (final File dir : includeDirs) {
+            final File candidate = new File(dir, path);
+            if (candidate.isFile()) {
+                return normalize(candidate);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes a file absolute and removes redundant path elements, without
+     * following links, which is how IDLs are keyed everywhere.
+     */
+    public static File normalize(File file) {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+
+    public ThriftDocument getDocument() {
+        return document;
+    }
+
+    /** The file name without its extension, which is how includers refer to this program. */
+    public String getName() {
+        return new ThriftDocument.Include(document.getFile().getName(), 0).getPrefix();
+    }
+
+    /** The programs this one includes, keyed by the prefix used to refer to them. */
+    public Map<String, ThriftProgram> getIncludes() {
+        return includes;
+    }
+
+    /** This program and everything it includes, transitively, each once. */
+    public List<ThriftProgram> getClosure() {
+        final List<ThriftProgram> closure = new ArrayList<>();
+        addClosure(closure);
+        return closure;
+    }
+
+    private void addClosure(List<ThriftProgram> closure) {
+        if (closure.contains(this)) {
+            return;
+        }
+        closure.add(this);
+        for (final ThriftProgram include : includes.values()) {
+            include.addClosure(closure);
+        }
+    }
+
+    /**
+     * Resolves a name such as {@code Foo} or {@code shared.Foo} as seen from
+     * this program.
+     *
+     * @return The definition, or null if there is none.
+     */
+    public Resolved resolve(String name) {
+        final ThriftDefinition local = document.getDefinition(name);
+        if (local != null) {
+            return new Resolved(this, local);
+        }
+        final int dot = name.indexOf('.');
+        if (dot > 0) {
+            final ThriftProgram included = includes.get(name.substring(0, dot));
+            if (included != null) {
+                final ThriftDefinition definition = included.document.getDefinition(name.substring(dot + 1));
+                if (definition != null) {
+                    return new Resolved(included, definition);
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+/**
+ * A lexical token of a Thrift IDL.
+ */
+public final class ThriftToken {
+
+    public enum Kind {
+        IDENTIFIER,
+        STRING,
+        INTEGER,
+        DOUBLE,
+        SYMBOL,
+        /** A {@code /** ... *}{@code /} comment, which Thrift attaches to the following definition. */
+        DOC_COMMENT,
+        EOF
+    }
+
+    private final Kind kind;
+    private final String text;
+    private final int line;
+    private final int column;
+    private final int start;
+    private final int end;
+
+    public ThriftToken(Kind kind, String text, int line, int column, int start, int end) {
+        this.kind = kind;
+        this.text = text;
+        this.line = line;
+        this.column = column;
+        this.start = start;
+        this.end = end;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * The text of the token. For strings this is the unquoted value, and
+     * for doc comments the comment without its delimiters.
+     */
+    public String getText() {
+        return text;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /** The offset of the first character of the token in the source. */
+    public int getStart() {
+        return start;
+    }
+
+    /** The offset just past the last character of the token in the source. */
+    public int getEnd() {
+        return end;
+    }
+
+    public boolean is(Kind kind, String text) {
+        return this.kind == kind && this.text.equals(text);
+    }
+
+    public boolean isSymbol(char c) {
+        return kind == Kind.SYMBOL && text.length() == 1 && text.charAt(0) == c;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case EOF:
+                return "end of file";
+            case STRING:
+                return "string \"" + text + "\"";
+            case DOC_COMMENT:
+                return "doc comment";
+            default:
+                return "'" + text + "'";
+        }
+    }
+}
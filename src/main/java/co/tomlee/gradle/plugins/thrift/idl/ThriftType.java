@@ -0,0 +1,123 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package co.tomlee.gradle.plugins.thrift.idl;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A reference to a type in a Thrift IDL: a base type, a container, or a
+ * named (possibly include-qualified) user type.
+ */
+public final class ThriftType {
+
+    public enum Kind {
+        BASE, LIST, SET, MAP, NAMED
+    }
+
+    private static final Set<String> BASE_TYPES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "bool", "byte", "i8", "i16", "i32", "i64", "double", "string", "binary", "slist", "uuid")));
+
+    private final Kind kind;
+    private final String name;
+    private final ThriftType keyType;
+    private final ThriftType valueType;
+
+    private ThriftType(Kind kind, String name, ThriftType keyType, ThriftType valueType) {
+        this.kind = kind;
+        this.name = name;
+        this.keyType = keyType;
+        this.valueType = valueType;
+    }
+
+    public static boolean isBaseTypeName(String name) {
+        return BASE_TYPES.contains(name);
+    }
+
+    public static ThriftType named(String name) {
+        return new ThriftType(isBaseTypeName(name) ? Kind.BASE : Kind.NAMED, name, null, null);
+    }
+
+    public static ThriftType list(ThriftType elementType) {
+        return new ThriftType(Kind.LIST, "list", null, elementType);
+    }
+
+    public static ThriftType set(ThriftType elementType) {
+        return new ThriftType(Kind.SET, "set", null, elementType);
+    }
+
+    public static ThriftType map(ThriftType keyType, ThriftType valueType) {
+        return new ThriftType(Kind.MAP, "map", keyType, valueType);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** The base type or user type name, or the container kind. */
+    public String getName() {
+        return name;
+    }
+
+    /** The key type of a map, otherwise null. */
+    public ThriftType getKeyType() {
+        return keyType;
+    }
+
+    /** The element type of a list or set, or the value type of a map, otherwise null. */
+    public ThriftType getValueType() {
+        return valueType;
+    }
+
+    public boolean isContainer() {
+        return kind == Kind.LIST || kind == Kind.SET || kind == Kind.MAP;
+    }
+
+    /** Adds the named user types this type refers to, including inside containers. */
+    public void collectNamedTypes(Set<String> names) {
+        switch (kind) {
+            case NAMED:
+                names.add(name);
+                break;
+            case MAP:
+                keyType.collectNamedTypes(names);
+                valueType.collectNamedTypes(names);
+                break;
+            case LIST:
+            case SET:
+                valueType.collectNamedTypes(names);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case MAP:
+                return "map<" + keyType + "," + valueType + ">";
+            case LIST:
+            case SET:
+                return name + "<" + valueType + ">";
+            default:
+                return name;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nonnull;
+
+/**
+ * Writes a synthetic tree of IDLs under {@code src/main/thrift}.
+ *
+ * A flat corpus is {@code size} IDLs which all include one shared header.
+ * A tree corpus is a binary include tree of {@code size} IDLs, each in a
+ * directory for its depth, so that IDL {@code i} includes IDL
+ * {@code (i - 1) / 2}. Either way the last IDL is a leaf which nothing
+ * includes.
+ */
+public class SyntheticCorpus {
+
+    public enum Shape {
+        FLAT, TREE
+    }
+
+    private final Shape shape;
+    private final int size;
+
+    public SyntheticCorpus(@Nonnull Shape shape, int size) {
+        this.shape = shape;
+        this.size = size;
+    }
+
+    @Nonnull
+    public String getName() {
+        return shape.name().toLowerCase() + "-" + size;
+    }
+
+    public void write(@Nonnull File thriftDir) throws IOException {
+        if (shape == Shape.FLAT) {
+            write(new File(thriftDir, "shared.thrift"), null, "Shared", 0);
+        }
+        for (int i = 0; i < size; i++) {
+            write(getFile(thriftDir, i), getInclude(i), "S" + i, 0);
+        }
+    }
+
+    /** Adds a field to the IDL which nothing includes. */
+    public void editLeaf(@Nonnull File thriftDir) throws IOException {
+        final int i = size - 1;
+        write(getFile(thriftDir, i), getInclude(i), "S" + i, 1);
+    }
+
+    /** Adds a field to the IDL which everything depends on. */
+    public void editShared(@Nonnull File thriftDir) throws IOException {
+        if (shape == Shape.FLAT) {
+            write(new File(thriftDir, "shared.thrift"), null, "Shared", 1);
+        } else {
+            write(getFile(thriftDir, 0), null, "S0", 1);
+        }
+    }
+
+    @Nonnull
+    private File getFile(@Nonnull File thriftDir, int i) {
+        return new File(thriftDir, getPath(i));
+    }
+
+    @Nonnull
+    private String getPath(int i) {
+        if (shape == Shape.FLAT) {
+            return String.format("f%05d.thrift", i);
+        }
+        return String.format("d%02d/f%05d.thrift", depth(i), i);
+    }
+
+    /** Returns the path and struct name of what IDL {@code i} includes, or null. */
+    private String[] getInclude(int i) {
+        if (shape == Shape.FLAT) {
+            return new String[]{"shared.thrift", "shared.Shared"};
+        }
+        if (i == 0) {
+            return null;
+        }
+        final int parent = (i - 1) / 2;
+        final String path = getPath(parent);
+        final String module = path.substring(path.lastIndexOf('/') + 1, path.length() - ".thrift".length());
+        return new String[]{path, module + ".S" + parent};
+    }
+
+    private static int depth(int i) {
+        int depth = 0;
+        for (int n = i + 1; n > 1; n >>= 1) {
+            depth++;
+        }
+        return depth;
+    }
+
+    private static void write(@Nonnull File file, String[] include, @Nonnull String name, int extraFields) throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("namespace java perf\n");
+        if (include != null) {
+            sb.append("include \"").append(include[0]).append("\"\n");
+        }
+        sb.append("\nstruct ").append(name).append(" {\n");
+        sb.append("  1: i64 id\n");
+        sb.append("  2: string name\n");
+        int field = 3;
+        if (include != null) {
+            sb.append("  ").append(field++).append(": ").append(include[1]).append(" parent\n");
+        }
+        for (int i = 0; i < extraFields; i++) {
+            sb.append("  ").append(field++).append(": i32 extra").append(i).append("\n");
+        }
+        sb.append("}\n");
+        file.getParentFile().mkdirs();
+        Files.write(sb.toString(), file, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,182 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import javax.annotation.Nonnull;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures generation against synthetic corpora and a fake compiler.
+ *
+ * Each corpus is built clean, again with nothing changed, after an edit to
+ * a leaf IDL and after an edit to the IDL everything includes. The wall
+ * time and the number of compiler processes of each scenario are written
+ * to {@code thrift.perf.results}, and compared with the baseline: more
+ * processes than the baseline, or a time beyond the baseline times
+ * {@code thrift.perf.tolerance}, fails the test. Scenarios missing from
+ * the baseline are only recorded.
+ */
+@RunWith(Parameterized.class)
+public class ThriftPerformanceTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThriftPerformanceTest.class);
+
+    private static final String BASELINE = "/thrift-perf-baseline.properties";
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parameters() throws Exception {
+        final List<Object[]> parameters = new ArrayList<>();
+        for (final String size : System.getProperty("thrift.perf.sizes", "10").split(",")) {
+            for (final SyntheticCorpus.Shape shape : SyntheticCorpus.Shape.values()) {
+                final SyntheticCorpus corpus = new SyntheticCorpus(shape, Integer.parseInt(size.trim()));
+                parameters.add(new Object[]{corpus.getName(), corpus});
+            }
+        }
+        return parameters;
+    }
+
+    private final SyntheticCorpus corpus;
+    private final Properties results = new Properties();
+    private final List<String> regressions = new ArrayList<>();
+    private Properties baseline;
+    @Rule
+    public final TemporaryFolder testProjectDir = new TemporaryFolder();
+
+    public ThriftPerformanceTest(String name, SyntheticCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("The fake compiler is a shell script", File.separatorChar == '/');
+        baseline = loadBaseline();
+    }
+
+    @Test
+    public void testGeneration() throws Exception {
+        final FakeThriftCompiler thrift = new FakeThriftCompiler(testProjectDir.newFolder("bin"),
+                Integer.getInteger("thrift.perf.latencyMillis", 5), Integer.getInteger("thrift.perf.outputBytes", 4096));
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "generateThriftSource {\n"
+                + "    executable '" + thrift.getScript().getAbsolutePath() + "'\n"
+                + "    path file('src/main/thrift')\n"
+                + "    generators {\n"
+                + "        java {}\n"
+                + "        js {}\n"
+                + "        py {}\n"
+                + "    }\n"
+                + "}\n";
+        Files.write(text, testProjectDir.newFile("build.gradle"), StandardCharsets.UTF_8);
+        final File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        corpus.write(thriftDir);
+
+        GradleRunner runner = GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot());
+        // Start the daemon outside of any measurement.
+        runner.withArguments("help").build();
+        runner = runner.withArguments("generateThriftSource");
+
+        measure("clean", runner, thrift);
+        measure("noop", runner, thrift);
+        corpus.editLeaf(thriftDir);
+        measure("leafEdit", runner, thrift);
+        corpus.editShared(thriftDir);
+        measure("sharedEdit", runner, thrift);
+
+        saveResults();
+        assertTrue("Performance regressions in " + corpus.getName() + ":\n" + regressions, regressions.isEmpty());
+    }
+
+    private void measure(@Nonnull String scenario, @Nonnull GradleRunner runner, @Nonnull FakeThriftCompiler thrift) throws IOException {
+        final int before = thrift.getProcessCount();
+        final long start = System.nanoTime();
+        runner.build();
+        final long millis = (System.nanoTime() - start) / 1000000;
+        final int processes = thrift.getProcessCount() - before;
+        LOG.info(corpus.getName() + " " + scenario + ": " + millis + "ms, " + processes + " thrift processes");
+
+        final String key = corpus.getName() + "." + scenario;
+        results.setProperty(key + ".millis", String.valueOf(millis));
+        results.setProperty(key + ".processes", String.valueOf(processes));
+
+        final String expectedProcesses = baseline.getProperty(key + ".processes");
+        if (expectedProcesses != null && processes > Integer.parseInt(expectedProcesses)) {
+            regressions.add(key + " ran " + processes + " thrift processes, baseline " + expectedProcesses);
+        }
+        final String expectedMillis = baseline.getProperty(key + ".millis");
+        final double tolerance = Double.parseDouble(System.getProperty("thrift.perf.tolerance", "1.5"));
+        if (expectedMillis != null && millis > Long.parseLong(expectedMillis) * tolerance) {
+            regressions.add(key + " took " + millis + "ms, baseline " + expectedMillis + "ms");
+        }
+    }
+
+    @Nonnull
+    private static Properties loadBaseline() throws IOException {
+        final Properties properties = new Properties();
+        final String path = System.getProperty("thrift.perf.baseline");
+        try (InputStream in = path != null
+                ? new FileInputStream(path)
+                : ThriftPerformanceTest.class.getResourceAsStream(BASELINE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        }
+        return properties;
+    }
+
+    /** Merges this corpus's results into the results file, which can serve as a baseline. */
+    private void saveResults() throws IOException {
+        final String path = System.getProperty("thrift.perf.results");
+        if (path == null) {
+            return;
+        }
+        final File file = new File(path);
+        final Properties merged = new Properties();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                merged.load(in);
+            }
+        }
+        merged.putAll(results);
+        file.getParentFile().mkdirs();
+        try (OutputStream out = new FileOutputStream(file)) {
+            merged.store(out, "Thrift performance results");
+        }
+    }
+}
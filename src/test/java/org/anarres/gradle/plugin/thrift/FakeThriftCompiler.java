@@ -0,0 +1,144 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/**
+ * A shell script standing in for the thrift compiler.
+ *
+ * It accepts the arguments ThriftTask passes, sleeps for a configurable
+ * latency, and writes one output of a configurable size per generator,
+ * named after the IDL, plus an empty Java class for the java generator so
+ * that builds can compile the output. The class carries the dated
+ * {@code @Generated} annotation thrift writes, commented out so that it
+ * compiles on any JDK. With {@code -recurse} it does the
+ * same for every IDL the file includes, relative to the including file or
+ * else to the include path.
+ * Each run appends its arguments as a line to a log, so that tests can
+ * count processes and inspect what they were asked to do, and records how
+ * many runs were in flight as each started. An IDL which contains
+ * {@code FAIL} makes it write an error and exit with 3.
+ */
+public class FakeThriftCompiler {
+
+    private final File script;
+    private final File log;
+    private final File concurrencyLog;
+
+    public FakeThriftCompiler(@Nonnull File dir, int latencyMillis, int outputBytes) throws IOException {
+        this.script = new File(dir, "thrift");
+        this.log = new File(dir, "thrift.log");
+        this.concurrencyLog = new File(dir, "concurrency.log");
+        final File running = new File(dir, "running");
+        final String sleep = latencyMillis > 0 ? String.format("sleep %d.%03d\n", latencyMillis / 1000, latencyMillis % 1000) : "";
+        final String text = "#!/bin/sh\n"
+                + "if [ \"$1\" = \"-version\" ]; then\n"
+                + "  echo \"Thrift version 0.0.0-perf\"\n"
+                + "  exit 0\n"
+                + "fi\n"
+                + "echo \"$*\" >> '" + log.getAbsolutePath() + "'\n"
+                + "mkdir -p '" + running.getAbsolutePath() + "'\n"
+                + "marker='" + running.getAbsolutePath() + "'/$$\n"
+                + "touch \"$marker\"\n"
+                + "trap 'rm -f \"$marker\"' EXIT\n"
+                + "ls '" + running.getAbsolutePath() + "' | wc -l >> '" + concurrencyLog.getAbsolutePath() + "'\n"
+                + "out=\n"
+                + "gens=\n"
+                + "file=\n"
+                + "recurse=\n"
+                + "path=\n"
+                + "while [ $# -gt 0 ]; do\n"
+                + "  case \"$1\" in\n"
+                + "    -out) out=\"$2\"; shift 2 ;;\n"
+                + "    --gen) gens=\"$gens ${2%%:*}\"; shift 2 ;;\n"
+                + "    -I) path=\"$path $2\"; shift 2 ;;\n"
+                + "    -recurse) recurse=1; shift ;;\n"
+                + "    -*) shift ;;\n"
+                + "    *) file=\"$1\"; shift ;;\n"
+                + "  esac\n"
+                + "done\n"
+                + sleep
+                + "if grep -q FAIL \"$file\"; then\n"
+                + "  echo \"$file: FAIL requested\" >&2\n"
+                + "  exit 3\n"
+                + "fi\n"
+                + "emit() {\n"
+                + "  local base dir inc cls i\n"
+                + "  base=$(basename \"$1\" .thrift)\n"
+                + "  for gen in $gens; do\n"
+                + "    mkdir -p \"$out/gen-$gen\"\n"
+                + "    head -c " + outputBytes + " /dev/zero > \"$out/gen-$gen/$base.txt\"\n"
+                + "    if [ \"$gen\" = java ]; then\n"
+                + "      cls=T_$(echo \"$base\" | tr -c 'A-Za-z0-9_\\n' '_')\n"
+                + "      echo \"// @Generated(value = \\\"Autogenerated by Thrift Compiler (0.0.0-perf)\\\", date = \\\"2001-02-03\\\")\" > \"$out/gen-java/$cls.java\"\n"
+                + "      echo \"public class $cls {}\" >> \"$out/gen-java/$cls.java\"\n"
+                + "    fi\n"
+                + "  done\n"
+                + "  if [ -n \"$recurse\" ]; then\n"
+                + "    dir=$(dirname \"$1\")\n"
+                + "    for inc in $(sed -n 's/^include *\"\\(.*\\)\".*/\\1/p' \"$1\"); do\n"
+                + "      for i in \"$dir\" $path; do\n"
+                + "        if [ -f \"$i/$inc\" ]; then emit \"$i/$inc\"; break; fi\n"
+                + "      done\n"
+                + "    done\n"
+                + "  fi\n"
+                + "  return 0\n"
+                + "}\n"
+                + "emit \"$file\"\n";
+        Files.write(text, script, StandardCharsets.UTF_8);
+        if (!script.setExecutable(true)) {
+            throw new IOException("Could not make " + script + " executable");
+        }
+    }
+
+    @Nonnull
+    public File getScript() {
+        return script;
+    }
+
+    /** Returns how many times the compiler has run, not counting version probes. */
+    public int getProcessCount() throws IOException {
+        return getInvocations().size();
+    }
+
+    /** Returns the arguments of each run so far, one line per run. */
+    @Nonnull
+    public List<String> getInvocations() throws IOException {
+        if (!log.isFile()) {
+            return new ArrayList<>();
+        }
+        return Files.readLines(log, StandardCharsets.UTF_8);
+    }
+
+    /** Returns the most runs which were in flight at once. */
+    public int getMaxConcurrency() throws IOException {
+        int max = 0;
+        if (concurrencyLog.isFile()) {
+            for (String line : Files.readLines(concurrencyLog, StandardCharsets.UTF_8)) {
+                max = Math.max(max, Integer.parseInt(line.trim()));
+            }
+        }
+        return max;
+    }
+}
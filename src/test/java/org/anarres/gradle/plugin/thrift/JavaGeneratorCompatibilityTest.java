@@ -0,0 +1,175 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import co.tomlee.gradle.plugins.thrift.codegen.JavaGenerator;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import com.google.common.io.Files;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TDeserializer;
+import org.apache.thrift.TSerializer;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compiles the in-process Java generator's output against libthrift and
+ * checks that it reads and writes the binary protocol as thrift's own
+ * generated code does.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class JavaGeneratorCompatibilityTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    private ClassLoader loader;
+
+    @Before
+    public void setUp() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assume.assumeTrue("Compiling the generated code needs a JDK", compiler != null);
+
+        File idl = new File(JavaGeneratorCompatibilityTest.class.getResource("/golden/idl/types.thrift").toURI());
+        ThriftProgram program = ThriftProgram.load(idl, Collections.<File>emptyList(), new HashMap<File, ThriftProgram>());
+        Map<String, String> sources = new JavaGenerator(Arrays.asList("hashcode", "generated_annotations=suppress")).generate(program.getClosure());
+
+        File src = folder.newFolder("src");
+        File classes = folder.newFolder("classes");
+        List<String> arguments = new ArrayList<String>(Arrays.asList(
+                "-nowarn", "-d", classes.getAbsolutePath(),
+                "-cp", new File(TBase.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath()));
+        for (Map.Entry<String, String> e : sources.entrySet()) {
+            File file = new File(src, e.getKey());
+            Files.createParentDirs(file);
+            Files.write(e.getValue(), file, StandardCharsets.UTF_8);
+            arguments.add(file.getAbsolutePath());
+        }
+        assertEquals("javac exit code", 0, compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])));
+        loader = new URLClassLoader(new URL[]{classes.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private TBase newStruct(String name) throws Exception {
+        return (TBase) loader.loadClass(name).newInstance();
+    }
+
+    private static void set(TBase struct, int id, Object value) {
+        struct.setFieldValue(struct.fieldForId(id), value);
+    }
+
+    private Object color(String name) throws Exception {
+        return Enum.valueOf((Class) loader.loadClass("org.example.shared.Color"), name);
+    }
+
+    private TBase sharedStruct(int key, String value) throws Exception {
+        TBase struct = newStruct("org.example.shared.SharedStruct");
+        set(struct, 1, key);
+        set(struct, 2, value);
+        return struct;
+    }
+
+    private static TBase roundTrip(TBase struct, TBase into) throws Exception {
+        byte[] bytes = new TSerializer(new TBinaryProtocol.Factory()).serialize(struct);
+        new TDeserializer(new TBinaryProtocol.Factory()).deserialize(into, bytes);
+        assertEquals(struct, into);
+        assertEquals(struct.hashCode(), into.hashCode());
+        assertEquals(0, ((Comparable) struct).compareTo(into));
+        return into;
+    }
+
+    @Test
+    public void testWireFormat() throws Exception {
+        // What thrift's own generated code writes for SharedStruct(1, "v").
+        byte[] expected = {
+            8, 0, 1, 0, 0, 0, 1,
+            11, 0, 2, 0, 0, 0, 1, 'v',
+            0
+        };
+        TBase struct = sharedStruct(1, "v");
+        assertArrayEquals(expected, new TSerializer(new TBinaryProtocol.Factory()).serialize(struct));
+
+        TBase read = newStruct("org.example.shared.SharedStruct");
+        new TDeserializer(new TBinaryProtocol.Factory()).deserialize(read, expected);
+        assertEquals(struct, read);
+    }
+
+    @Test
+    public void testRoundTripEveryField() throws Exception {
+        TBase struct = newStruct("org.example.types.Everything");
+        set(struct, 1, true);
+        set(struct, 2, (byte) -3);
+        set(struct, 3, (short) 300);
+        set(struct, 4, 70000);
+        set(struct, 5, 1L << 40);
+        set(struct, 6, 2.5);
+        set(struct, 7, "text é");
+        set(struct, 8, new byte[]{0, 1, (byte) 0xff});
+        set(struct, 9, color("GREEN"));
+        set(struct, 10, sharedStruct(2, "nested"));
+        set(struct, 11, Arrays.asList(1, 2, 3));
+        set(struct, 12, new HashSet<String>(Arrays.asList("a", "b")));
+        Map<String, List<Object>> index = new HashMap<String, List<Object>>();
+        index.put("k", Arrays.<Object>asList(sharedStruct(3, "x"), sharedStruct(4, "y")));
+        set(struct, 13, index);
+        set(struct, 14, Arrays.<Object>asList(sharedStruct(5, "z")));
+        set(struct, 15, 1234567890123L);
+        Map<Object, Object> palette = new HashMap<Object, Object>();
+        palette.put(color("RED"), new HashSet<Object>(Arrays.asList(ByteBuffer.wrap(new byte[]{1, 2}))));
+        set(struct, 16, palette);
+        struct.validate();
+
+        TBase read = roundTrip(struct, newStruct("org.example.types.Everything"));
+        assertEquals(color("GREEN"), read.getFieldValue(read.fieldForId(9)));
+    }
+
+    @Test
+    public void testRoundTripDefaults() throws Exception {
+        TBase struct = newStruct("org.example.types.Everything");
+        set(struct, 1, false);
+        set(struct, 7, "");
+        TBase read = roundTrip(struct, newStruct("org.example.types.Everything"));
+        // The optional field with a default is written only once set.
+        assertEquals(false, read.isSet(read.fieldForId(4)));
+        assertEquals(42, read.getFieldValue(read.fieldForId(4)));
+    }
+
+    @Test
+    public void testRoundTripException() throws Exception {
+        TBase exception = newStruct("org.example.types.NotFound");
+        set(exception, 1, "missing");
+        set(exception, 2, 404);
+        roundTrip(exception, newStruct("org.example.types.NotFound"));
+    }
+}
@@ -0,0 +1,92 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import co.tomlee.gradle.plugins.thrift.codegen.JavaGenerator;
+import co.tomlee.gradle.plugins.thrift.codegen.UnsupportedIdlException;
+import co.tomlee.gradle.plugins.thrift.idl.ThriftProgram;
+import com.google.common.io.Files;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares the in-process Java generator with the sources checked in under
+ * {@code golden/java} and {@code golden/java-beans}.
+ */
+public class JavaGeneratorGoldenTest {
+
+    private static File resource(String path) throws Exception {
+        return new File(JavaGeneratorGoldenTest.class.getResource("/golden/" + path).toURI());
+    }
+
+    private static void list(File dir, String prefix, TreeSet<String> out) {
+        for (File file : dir.listFiles()) {
+            if (file.isDirectory())
+                list(file, prefix + file.getName() + "/", out);
+            else
+                out.add(prefix + file.getName());
+        }
+    }
+
+    private static void assertGolden(String idl, String golden, String... options) throws Exception {
+        ThriftProgram program = ThriftProgram.load(resource("idl/" + idl), Collections.<File>emptyList(), new HashMap<File, ThriftProgram>());
+        Map<String, String> sources = new JavaGenerator(Arrays.asList(options)).generate(program.getClosure());
+
+        File dir = resource(golden);
+        TreeSet<String> expected = new TreeSet<String>();
+        list(dir, "", expected);
+        assertEquals(expected, new TreeSet<String>(sources.keySet()));
+        for (Map.Entry<String, String> e : sources.entrySet()) {
+            String text = Files.toString(new File(dir, e.getKey()), StandardCharsets.UTF_8);
+            assertEquals(e.getKey(), text, e.getValue());
+        }
+    }
+
+    @Test
+    public void testDefaultOptions() throws Exception {
+        assertGolden("types.thrift", "java", "hashcode");
+    }
+
+    @Test
+    public void testBeans() throws Exception {
+        assertGolden("types.thrift", "java-beans", "beans", "generated_annotations=suppress");
+    }
+
+    @Test
+    public void testServicesAreUnsupported() throws Exception {
+        ThriftProgram program = ThriftProgram.load(resource("idl/service.thrift"), Collections.<File>emptyList(), new HashMap<File, ThriftProgram>());
+        try {
+            new JavaGenerator(Collections.<String>emptyList()).generate(program.getClosure());
+            fail("Services should fall back to thrift.");
+        } catch (UnsupportedIdlException e) {
+            assertEquals("service.thrift: service Lookup is not supported", e.getMessage());
+        }
+    }
+
+    @Test(expected = UnsupportedIdlException.class)
+    public void testUnknownOption() throws Exception {
+        new JavaGenerator(Arrays.asList("android"));
+    }
+}
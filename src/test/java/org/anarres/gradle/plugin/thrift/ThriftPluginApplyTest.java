@@ -18,12 +18,19 @@ package org.anarres.gradle.plugin.thrift;
 
 import com.google.common.io.Files;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
 import javax.annotation.Nonnull;
 import org.gradle.testkit.runner.BuildResult;
 import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.gradle.util.GradleVersion;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -32,6 +39,8 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -55,9 +64,10 @@ public class ThriftPluginApplyTest {
                 // A("3.0"),
                 // A("3.2.1"),  // No longer works.
                 // A("4.10.3"), // No longer works.
-                A("5.6"),
+                // A("5.6"),    // No build services.
                 A("6.1.1"),
-                A("6.4.1")
+                A("6.4.1"),
+                A("7.6")
         );
     }
 
@@ -92,4 +102,183 @@ public class ThriftPluginApplyTest {
         LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
     }
 
+    @Test
+    public void testConfigurationCache() throws Exception {
+        Assume.assumeTrue(GradleVersion.version(gradleVersion).compareTo(GradleVersion.version("7.0")) >= 0);
+        Assume.assumeTrue("The fake compiler is a shell script", File.separatorChar == '/');
+        FakeThriftCompiler thrift = new FakeThriftCompiler(testProjectDir.newFolder("bin"), 0, 16);
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "generateThriftSource { executable '" + thrift.getScript().getAbsolutePath() + "'; generators { java {} } }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        Files.write("struct Foo { 1: i32 id }\n", new File(thriftDir, "foo.thrift"), StandardCharsets.UTF_8);
+        Files.write("struct Bar { 1: i32 id }\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("--configuration-cache", "generateThriftSource");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":generateThriftSource").getOutcome());
+        assertEquals(2, thrift.getProcessCount());
+
+        // The task runs from the cached configuration, incrementally.
+        Files.write("struct Bar { 1: i32 id, 2: i32 other }\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+        result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertTrue(result.getOutput().contains("Reusing configuration cache."));
+        assertEquals(TaskOutcome.SUCCESS, result.task(":generateThriftSource").getOutcome());
+        assertEquals(3, thrift.getProcessCount());
+        assertTrue(thrift.getInvocations().get(2).endsWith("bar.thrift"));
+        assertTrue(new File(testProjectDir.getRoot(), "build/generated-src/thrift/main/gen-java/T_bar.java").isFile());
+
+        result = runner.build();
+        assertEquals(TaskOutcome.UP_TO_DATE, result.task(":generateThriftSource").getOutcome());
+    }
+
+    @Test
+    public void testThriftCheck() throws Exception {
+        String text = "plugins { id 'com.google.gradle.thrift' }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        Files.write("namespace java test\nstruct Foo { 1: i32 id, -1: i32 legacy }\n", new File(thriftDir, "foo.thrift"), StandardCharsets.UTF_8);
+        Files.write("include \"foo.thrift\"\nstruct Bar { 1: foo.Foo foo }\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("thriftCheck");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        // Like thrift, a non-positive field id is only a warning.
+        assertTrue(result.getOutput().contains("foo.thrift:2:25: Nonpositive value (-1) not allowed as a field key"));
+
+        Files.write("include \"missing.thrift\"\nstruct Bar { 1: foo.Foo foo\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+        result = runner.buildAndFail();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertTrue(result.getOutput().contains("bar.thrift:3:1: Expected field name but found end of file"));
+    }
+
+    @Test
+    public void testSeparateCompilation() throws Exception {
+        Assume.assumeTrue("The fake compiler is a shell script", File.separatorChar == '/');
+        FakeThriftCompiler thrift = new FakeThriftCompiler(testProjectDir.newFolder("bin"), 0, 16);
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "tasks.withType(co.tomlee.gradle.plugins.thrift.ThriftTask) { executable '" + thrift.getScript().getAbsolutePath() + "' }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        Files.write("struct Foo { 1: i32 id }\n", new File(testProjectDir.newFolder("src", "main", "thrift"), "foo.thrift"), StandardCharsets.UTF_8);
+        Files.write("struct Bar { 1: i32 id }\n", new File(testProjectDir.newFolder("src", "test", "thrift"), "bar.thrift"), StandardCharsets.UTF_8);
+        Files.write("public class Main { T_foo foo; }\n", new File(testProjectDir.newFolder("src", "main", "java"), "Main.java"), StandardCharsets.UTF_8);
+        // The classes of testThrift, like those of test, see the main ones.
+        Files.write("class UsesMain { Main main; T_foo foo; }\n", new File(testProjectDir.newFolder("src", "testThrift", "java"), "UsesMain.java"), StandardCharsets.UTF_8);
+        Files.write("class UsesGenerated { T_foo foo; T_bar bar; UsesMain main; }\n", new File(testProjectDir.newFolder("src", "test", "java"), "UsesGenerated.java"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("-Pthrift.separateCompilation=true", "build");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileMainThriftJava").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":mainThriftJar").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileTestThriftJava").getOutcome());
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileTestJava").getOutcome());
+        assertTrue(new File(testProjectDir.getRoot(), "build/classes/java/mainThrift/T_foo.class").isFile());
+        assertTrue(new File(testProjectDir.getRoot(), "build/classes/java/testThrift/T_bar.class").isFile());
+    }
+
+    @Test
+    public void testPublishGenerated() throws Exception {
+        Assume.assumeTrue("The fake compiler is a shell script", File.separatorChar == '/');
+        FakeThriftCompiler thrift = new FakeThriftCompiler(testProjectDir.newFolder("bin"), 0, 16);
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "generateThriftSource { executable '" + thrift.getScript().getAbsolutePath() + "'; generators { java {} } }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        Files.write("struct Foo { 1: i32 id }\n", new File(thriftDir, "foo.thrift"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("-Pthrift.publishGenerated=true", "-Pthrift.consumePrebuilt=true", "build");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertEquals(TaskOutcome.SUCCESS, result.task(":compileMainThriftJava").getOutcome());
+        // Without thrift dependencies there is nothing prebuilt, so the IDL is generated here.
+        assertEquals(1, thrift.getProcessCount());
+        File jar = new File(testProjectDir.getRoot(), "build/libs/" + testProjectDir.getRoot().getName() + "-thrift.jar");
+        try (ZipFile zip = new ZipFile(jar)) {
+            assertTrue(zip.getEntry("T_foo.class") != null);
+        }
+    }
+
+    @Test
+    public void testPruning() throws Exception {
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "generateThriftSource { generators { java { engine 'inprocess'; roots 'Bar' } } }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        Files.write("namespace java test\nstruct Foo { 1: i32 id }\nstruct Unused { 1: i32 id }\n", new File(thriftDir, "foo.thrift"), StandardCharsets.UTF_8);
+        Files.write("namespace java test\ninclude \"foo.thrift\"\nstruct Bar { 1: foo.Foo foo }\nstruct Other { 1: i32 id }\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("generateThriftSource");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        File out = new File(testProjectDir.getRoot(), "build/generated-src/thrift/main/test");
+        assertTrue(new File(out, "Bar.java").isFile());
+        assertTrue(new File(out, "Foo.java").isFile());
+        assertTrue(!new File(out, "Unused.java").exists());
+        assertTrue(!new File(out, "Other.java").exists());
+        String report = Files.toString(new File(testProjectDir.getRoot(), "build/reports/thrift/generateThriftSource.json"), StandardCharsets.UTF_8);
+        assertTrue(report.contains("foo.Unused"));
+    }
+
+    private void writeIdlJar(@Nonnull File jar, @Nonnull String idl) throws Exception {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+            out.write("Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8));
+            out.putNextEntry(new ZipEntry("shared/foo.thrift"));
+            out.write(idl.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testDependencyIdls() throws Exception {
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "dependencies { thrift files('idl.jar') }\n"
+                + "generateThriftSource { generators { java { engine 'inprocess' } } }\n";
+        Files.write(text, testProjectBuildFile, StandardCharsets.UTF_8);
+        File jar = new File(testProjectDir.getRoot(), "idl.jar");
+        writeIdlJar(jar, "namespace java test\nstruct Foo { 1: i32 id }\n");
+        File thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+        Files.write("namespace java test\ninclude \"shared/foo.thrift\"\nstruct Bar { 1: foo.Foo foo }\n", new File(thriftDir, "bar.thrift"), StandardCharsets.UTF_8);
+
+        GradleRunner runner = GradleRunner.create()
+                .withGradleVersion(gradleVersion)
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments("thriftCheck", "generateThriftSource");
+        BuildResult result = runner.build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        File foo = new File(testProjectDir.getRoot(), "build/generated-src/thrift/main/test/Foo.java");
+        assertTrue(new File(foo.getParentFile(), "Bar.java").isFile());
+        assertTrue(foo.isFile());
+        assertTrue(!Files.toString(foo, StandardCharsets.UTF_8).contains("String getName()"));
+
+        // Only the archive changes; the IDL which includes it must be regenerated.
+        writeIdlJar(jar, "namespace java test\nstruct Foo { 1: i32 id, 2: string name }\n");
+        result = runner.withArguments("generateThriftSource").build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        assertTrue(Files.toString(foo, StandardCharsets.UTF_8).contains("String getName()"));
+    }
+
 }
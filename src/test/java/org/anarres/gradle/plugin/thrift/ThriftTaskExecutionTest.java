@@ -0,0 +1,642 @@
+// Copyright (c) 2023 Google LLC
+// Permission is hereby granted, free of charge, to any person obtaining a copy
+// of this software and associated documentation files (the "Software"), to deal
+// in the Software without restriction, including without limitation the rights
+// to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+// copies of the Software, and to permit persons to whom the Software is
+// furnished to do so, subject to the following conditions:
+// The above copyright notice and this permission notice shall be included in all
+// copies or substantial portions of the Software.
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+// AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+// LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+// OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+// SOFTWARE.
+package org.anarres.gradle.plugin.thrift;
+
+import co.tomlee.gradle.plugins.thrift.ThriftPlugin;
+import co.tomlee.gradle.plugins.thrift.ThriftWatchTask;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.annotation.Nonnull;
+import org.gradle.api.Project;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs generateThriftSource against the fake compiler and checks what it
+ * leaves in the output directory, across incremental builds.
+ */
+public class ThriftTaskExecutionTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ThriftTaskExecutionTest.class);
+
+    @Rule
+    public final TemporaryFolder testProjectDir = new TemporaryFolder();
+    private FakeThriftCompiler thrift;
+    private File thriftDir;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeTrue("The fake compiler is a shell script", File.separatorChar == '/');
+        thrift = new FakeThriftCompiler(testProjectDir.newFolder("bin"), 0, 16);
+        thriftDir = testProjectDir.newFolder("src", "main", "thrift");
+    }
+
+    /** Writes a build file whose generateThriftSource runs the fake compiler, plus the given configuration. */
+    private void writeBuild(@Nonnull String configuration) throws IOException {
+        String text = "plugins { id 'com.google.gradle.thrift' }\n"
+                + "generateThriftSource {\n"
+                + "    executable '" + thrift.getScript().getAbsolutePath() + "'\n"
+                + configuration
+                + "}\n";
+        Files.write(text, new File(testProjectDir.getRoot(), "build.gradle"), StandardCharsets.UTF_8);
+    }
+
+    private void writeIdl(@Nonnull String name, @Nonnull String text) throws IOException {
+        Files.write(text, new File(thriftDir, name), StandardCharsets.UTF_8);
+    }
+
+    private void write(@Nonnull String path, @Nonnull String text) throws IOException {
+        File file = new File(testProjectDir.getRoot(), path);
+        Files.createParentDirs(file);
+        Files.write(text, file, StandardCharsets.UTF_8);
+    }
+
+    @Nonnull
+    private File output(@Nonnull String path) {
+        return new File(testProjectDir.getRoot(), "build/generated-src/thrift/main/" + path);
+    }
+
+    @Nonnull
+    private BuildResult build(@Nonnull String... arguments) {
+        BuildResult result = GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments(arguments)
+                .build();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        return result;
+    }
+
+    @Nonnull
+    private BuildResult buildAndFail(@Nonnull String... arguments) {
+        BuildResult result = GradleRunner.create()
+                .withPluginClasspath()
+                .withProjectDir(testProjectDir.getRoot())
+                .withArguments(arguments)
+                .buildAndFail();
+        LOG.info("Output:\n\n" + result.getOutput() + "\n\n");
+        return result;
+    }
+
+    @Nonnull
+    private String readReport() throws IOException {
+        return Files.toString(new File(testProjectDir.getRoot(), "build/reports/thrift/generateThriftSource.json"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testParallelInvocations() throws Exception {
+        thrift = new FakeThriftCompiler(testProjectDir.newFolder("parallel"), 500, 16);
+        writeBuild("    maxParallelInvocations 4\n    generators { java {} }\n");
+        for (String name : Arrays.asList("a", "b", "c", "d")) {
+            writeIdl(name + ".thrift", "struct " + name.toUpperCase() + " { 1: i32 id }\n");
+        }
+        build("--max-workers=4", "generateThriftSource");
+        assertEquals(4, thrift.getProcessCount());
+        int concurrency = thrift.getMaxConcurrency();
+        assertTrue("concurrency " + concurrency, concurrency > 1 && concurrency <= 4);
+        assertTrue(output("gen-java/T_d.java").isFile());
+
+        // The cap holds however many workers Gradle has.
+        thrift = new FakeThriftCompiler(testProjectDir.newFolder("serial"), 100, 16);
+        writeBuild("    maxParallelInvocations 1\n    generators { java {} }\n");
+        build("--max-workers=4", "--rerun-tasks", "generateThriftSource");
+        assertEquals(4, thrift.getProcessCount());
+        assertEquals(1, thrift.getMaxConcurrency());
+    }
+
+    @Test
+    public void testIncludeDependentsRegenerated() throws Exception {
+        writeBuild("    path file('vendor')\n    generators { java {} }\n");
+        write("vendor/v.thrift", "struct V { 1: i32 id }\n");
+        writeIdl("common.thrift", "struct Common { 1: i32 id }\n");
+        writeIdl("a.thrift", "include \"common.thrift\"\nstruct A { 1: common.Common common }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        writeIdl("c.thrift", "include \"v.thrift\"\nstruct C { 1: v.V v }\n");
+        build("generateThriftSource");
+        assertEquals(3, thrift.getProcessCount());
+
+        // Only the IDL which includes the edited one runs again.
+        writeIdl("common.thrift", "struct Common { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        List<String> invocations = thrift.getInvocations();
+        assertEquals(4, invocations.size());
+        assertTrue(invocations.get(3).endsWith("a.thrift"));
+
+        // Likewise for an IDL found through the include path.
+        write("vendor/v.thrift", "struct V { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        invocations = thrift.getInvocations();
+        assertEquals(5, invocations.size());
+        assertTrue(invocations.get(4).endsWith("c.thrift"));
+        assertTrue(output("gen-java/v.txt").isFile());
+    }
+
+    @Test
+    public void testRecursePlansRoots() throws Exception {
+        writeBuild("    generators { java {} }\n");
+        writeIdl("common.thrift", "struct Common { 1: i32 id }\n");
+        writeIdl("a.thrift", "include \"common.thrift\"\nstruct A { 1: common.Common common }\n");
+        writeIdl("b.thrift", "include \"common.thrift\"\nstruct B { 1: common.Common common }\n");
+        writeIdl("d.thrift", "struct D { 1: i32 id }\n");
+        BuildResult result = build("--info", "generateThriftSource");
+        assertTrue(result.getOutput().contains("Thrift plan: 3 root IDLs cover 4 inputs"));
+        List<String> invocations = thrift.getInvocations();
+        assertEquals(3, invocations.size());
+        for (String invocation : invocations) {
+            assertTrue(invocation, invocation.contains("-recurse"));
+            assertTrue(invocation, !invocation.endsWith("common.thrift"));
+        }
+        assertTrue(output("gen-java/common.txt").isFile());
+
+        // Without -recurse, every IDL is compiled on its own.
+        writeBuild("    recurse false\n    generators { java {} }\n");
+        build("generateThriftSource");
+        invocations = thrift.getInvocations().subList(3, thrift.getProcessCount());
+        assertEquals(4, invocations.size());
+        for (String invocation : invocations) {
+            assertTrue(invocation, !invocation.contains("-recurse"));
+        }
+    }
+
+    @Test
+    public void testWriteIfChanged() throws Exception {
+        writeBuild("    writeIfChanged true\n    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        build("generateThriftSource");
+        long modified = output("gen-java/T_b.java").lastModified();
+
+        // The fake compiler writes the same outputs again, so nothing is touched.
+        Thread.sleep(1100);
+        writeIdl("b.thrift", "struct B { 1: i32 id, 2: i32 other }\n");
+        BuildResult result = build("--info", "generateThriftSource");
+        assertEquals(3, thrift.getProcessCount());
+        assertTrue(result.getOutput().contains("Thrift wrote 0 outputs, left 2 unchanged"));
+        assertEquals(modified, output("gen-java/T_b.java").lastModified());
+
+        // Otherwise every output is written again. The setting is not an
+        // input, so the run has to be forced.
+        writeBuild("    generators { java {} }\n");
+        build("--rerun-tasks", "generateThriftSource");
+        assertTrue(output("gen-java/T_b.java").lastModified() != modified);
+    }
+
+    @Test
+    public void testCoalesceGenerators() throws Exception {
+        writeBuild("    coalesceGenerators true\n"
+                + "    generators { java {}; js {}; go { out file('build/go') } }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        build("generateThriftSource");
+
+        // java and js share a directory, so they run in one process per IDL; go has its own.
+        List<String> invocations = thrift.getInvocations();
+        assertEquals(4, invocations.size());
+        int coalesced = 0;
+        for (String invocation : invocations) {
+            if (invocation.contains("--gen java")) {
+                assertTrue(invocation, invocation.contains("--gen js"));
+                assertTrue(invocation, !invocation.contains("--gen go"));
+                coalesced++;
+            }
+        }
+        assertEquals(2, coalesced);
+        assertTrue(output("gen-java/a.txt").isFile());
+        assertTrue(output("gen-js/a.txt").isFile());
+        assertTrue(new File(testProjectDir.getRoot(), "build/go/gen-go/a.txt").isFile());
+
+        // Without coalescing, which is not an input, each generator runs on its own.
+        writeBuild("    generators { java {}; js {}; go { out file('build/go') } }\n");
+        build("--rerun-tasks", "generateThriftSource");
+        assertEquals(10, thrift.getProcessCount());
+    }
+
+    @Test
+    public void testSemanticChangeDetection() throws Exception {
+        writeBuild("    semanticChangeDetection true\n    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        build("generateThriftSource");
+        assertEquals(2, thrift.getProcessCount());
+
+        // Whitespace and plain comments do not run thrift.
+        writeIdl("b.thrift", "// A comment.\nstruct B {\n  1: i32 id  # another\n}\n");
+        BuildResult result = build("--info", "generateThriftSource");
+        assertTrue(result.getOutput().contains("1 modified thrift inputs are semantically unchanged"));
+        assertEquals(2, thrift.getProcessCount());
+        assertTrue(output("gen-java/b.txt").isFile());
+
+        // Doc comments reach the generated code, so they do.
+        writeIdl("b.thrift", "/** Documented. */\nstruct B {\n  1: i32 id  # another\n}\n");
+        build("generateThriftSource");
+        assertEquals(3, thrift.getProcessCount());
+        assertTrue(thrift.getInvocations().get(2).endsWith("b.thrift"));
+    }
+
+    /** Writes two projects which compile the same IDL with the output cache. */
+    private void writeCacheBuild(@Nonnull String configuration) throws IOException {
+        // The cache lives in the test kit's Gradle user home, which outlives the test, so the IDL is unique.
+        String idl = "const string RUN = \"" + UUID.randomUUID() + "\"\nstruct Shared { 1: i32 id }\n";
+        write("settings.gradle", "include 'p1', 'p2'\n");
+        for (String project : Arrays.asList("p1", "p2")) {
+            write(project + "/build.gradle", "plugins { id 'com.google.gradle.thrift' }\n"
+                    + "generateThriftSource {\n"
+                    + "    executable '" + thrift.getScript().getAbsolutePath() + "'\n"
+                    + "    outputCache true\n"
+                    + configuration
+                    + "    generators { java {} }\n"
+                    + "}\n");
+            write(project + "/src/main/thrift/shared.thrift", idl);
+        }
+    }
+
+    @Test
+    public void testOutputCache() throws Exception {
+        writeCacheBuild("");
+        BuildResult result = build("--info", ":p1:generateThriftSource", ":p2:generateThriftSource");
+        assertEquals(1, thrift.getProcessCount());
+        assertTrue(result.getOutput().contains("Thrift output cache: 1 hits, 0 misses"));
+        File p1 = new File(testProjectDir.getRoot(), "p1/build/generated-src/thrift/main/gen-java/T_shared.java");
+        File p2 = new File(testProjectDir.getRoot(), "p2/build/generated-src/thrift/main/gen-java/T_shared.java");
+        assertArrayEquals(Files.toByteArray(p1), Files.toByteArray(p2));
+
+        // A clean build is served from the cache too.
+        build(":p1:clean", ":p1:generateThriftSource");
+        assertEquals(1, thrift.getProcessCount());
+        assertTrue(p1.isFile());
+
+        // Editing an output in place leaves the cached copy alone.
+        byte[] generated = Files.toByteArray(p2);
+        try (RandomAccessFile out = new RandomAccessFile(p1, "rw")) {
+            out.write('#');
+        }
+        build(":p2:clean", ":p2:generateThriftSource");
+        assertEquals(1, thrift.getProcessCount());
+        assertArrayEquals(generated, Files.toByteArray(p2));
+
+        // Entries beyond the size limit are evicted once each run is done.
+        writeCacheBuild("    outputCacheMaxSize 1L\n");
+        build(":p1:generateThriftSource", ":p2:generateThriftSource");
+        assertEquals(3, thrift.getProcessCount());
+    }
+
+    @Test
+    public void testPostProcessors() throws Exception {
+        write("HEADER.txt", "// Licensed.\n");
+        writeBuild("    stripTimestamps()\n"
+                + "    normalizeLineEndings '\\r\\n'\n"
+                + "    licenseHeader file('HEADER.txt')\n"
+                + "    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        build("generateThriftSource");
+        String text = Files.toString(output("gen-java/T_a.java"), StandardCharsets.UTF_8);
+        LOG.info("Processed:\n\n" + text + "\n\n");
+        assertTrue(text, text.startsWith("// Licensed."));
+        assertTrue(text, text.contains("// @Generated(value = \"Autogenerated by Thrift Compiler (0.0.0-perf)\")\r\n"));
+        assertTrue(text, text.endsWith("public class T_a {}\r\n"));
+        assertTrue(text, !text.contains("2001-02-03"));
+        // The header only goes on Java files.
+        assertEquals(16, output("gen-java/a.txt").length());
+
+        writeBuild("    fixTimestamps '1970-01-01'\n    generators { java {} }\n");
+        build("generateThriftSource");
+        text = Files.toString(output("gen-java/T_a.java"), StandardCharsets.UTF_8);
+        assertTrue(text, text.startsWith("// @Generated(value = \"Autogenerated by Thrift Compiler (0.0.0-perf)\", date = \"1970-01-01\")\n"));
+    }
+
+    @Test
+    public void testIncludesResolvedAgain() throws Exception {
+        writeBuild("    path file('vendor')\n    generators { java {} }\n");
+        writeIdl("a.thrift", "include \"common.thrift\"\ninclude \"v.thrift\"\nstruct A { 1: i32 id }\n");
+        new File(testProjectDir.getRoot(), "vendor").mkdirs();
+        build("generateThriftSource");
+        assertEquals(1, thrift.getProcessCount());
+
+        // The includes appear later, and then change.
+        write("vendor/common.thrift", "struct Common { 1: i32 id }\n");
+        write("vendor/v.thrift", "struct V { 1: i32 id }\n");
+        build("generateThriftSource");
+        assertEquals(2, thrift.getProcessCount());
+        write("vendor/common.thrift", "struct Common { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        assertEquals(3, thrift.getProcessCount());
+        assertTrue(thrift.getInvocations().get(2).endsWith("a.thrift"));
+
+        // An IDL beside a.thrift hides the one on the include path.
+        writeIdl("v.thrift", "struct V { 1: i32 id }\n");
+        build("generateThriftSource");
+        assertEquals(4, thrift.getProcessCount());
+        writeIdl("v.thrift", "struct V { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        assertEquals(5, thrift.getProcessCount());
+        assertTrue(thrift.getInvocations().get(4).endsWith("a.thrift"));
+
+        // An absolute include names only itself, never a file on the include path.
+        File missing = new File(testProjectDir.getRoot(), "missing/common.thrift");
+        writeIdl("b.thrift", "include \"" + missing.getAbsolutePath() + "\"\nstruct B { 1: i32 id }\n");
+        build("generateThriftSource");
+        assertEquals(6, thrift.getProcessCount());
+        write("vendor/common.thrift", "struct Common { 1: i32 id, 2: i32 third }\n");
+        build("generateThriftSource");
+        assertEquals(7, thrift.getProcessCount());
+        assertTrue(thrift.getInvocations().get(6).endsWith("a.thrift"));
+    }
+
+    @Test
+    public void testRecurseKeepsOutputsOfDroppedInclude() throws Exception {
+        writeBuild("    generators { java {} }\n");
+        writeIdl("x.thrift", "struct X { 1: i32 id }\n");
+        writeIdl("r.thrift", "include \"x.thrift\"\nstruct R { 1: x.X x }\n");
+        build("generateThriftSource");
+        assertEquals(1, thrift.getProcessCount());
+        assertTrue(output("gen-java/x.txt").isFile());
+
+        // r.thrift claimed x's outputs; once it stops including x, x needs a run of its own.
+        writeIdl("r.thrift", "struct R { 1: i32 id }\n");
+        build("generateThriftSource");
+        assertTrue(output("gen-java/r.txt").isFile());
+        assertTrue(output("gen-java/x.txt").isFile());
+
+        // And a build with nothing to do leaves them alone.
+        build("generateThriftSource");
+        assertTrue(output("gen-java/x.txt").isFile());
+    }
+
+    @Test
+    public void testStateRestoredFromCache() throws Exception {
+        write("settings.gradle", "buildCache { local { directory = file('build-cache') } }\n");
+        writeBuild("    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        build("--build-cache", "generateThriftSource");
+        assertEquals(2, thrift.getProcessCount());
+
+        build("clean");
+        BuildResult result = build("--build-cache", "generateThriftSource");
+        assertEquals(TaskOutcome.FROM_CACHE, result.task(":generateThriftSource").getOutcome());
+        assertTrue(new File(testProjectDir.getRoot(), "build/thrift-state/generateThriftSource/outputs.txt").isFile());
+
+        // The restored state knows what b.thrift generated, so deleting it needs no thrift run.
+        assertTrue(new File(thriftDir, "b.thrift").delete());
+        build("--build-cache", "generateThriftSource");
+        assertEquals(2, thrift.getProcessCount());
+        assertTrue(output("gen-java/a.txt").isFile());
+        assertTrue(!output("gen-java/b.txt").exists());
+    }
+
+    @Test
+    public void testSrcjar() throws Exception {
+        writeBuild("    generators { java { srcjar file('build/thrift.srcjar') } }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        build("generateThriftSource");
+        File srcjar = new File(testProjectDir.getRoot(), "build/thrift.srcjar");
+        byte[] first = Files.toByteArray(srcjar);
+        List<String> names = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(srcjar)) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(Arrays.asList("T_a.java", "T_b.java", "a.txt", "b.txt"), names);
+        // The scratch directory goes once the archive is packed.
+        File scratch = new File(testProjectDir.getRoot(), "build/tmp/generateThriftSource/srcjar");
+        assertTrue(!scratch.exists() || scratch.list().length == 0);
+
+        // A clean build writes the same bytes.
+        Thread.sleep(1100);
+        build("clean", "generateThriftSource");
+        assertArrayEquals(first, Files.toByteArray(srcjar));
+
+        // An incremental run keeps the outputs of IDLs it did not regenerate.
+        writeIdl("b.thrift", "struct B { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        assertEquals(5, thrift.getProcessCount());
+        assertArrayEquals(first, Files.toByteArray(srcjar));
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        writeBuild("    reportSlowest 5\n    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        BuildResult result = build("generateThriftSource");
+        assertTrue(result.getOutput().contains("Slowest thrift invocations"));
+        String report = readReport();
+        LOG.info("Report:\n\n" + report + "\n\n");
+        assertTrue(report.contains("\"failed\": false"));
+        assertTrue(report.contains("\"incremental\": false"));
+        assertTrue(report.contains("\"invocationCount\": 2"));
+        assertTrue(report.contains("\"file\": \"src/main/thrift/a.thrift\""));
+        assertTrue(report.contains("\"file\": \"src/main/thrift/b.thrift\""));
+        assertTrue(report.contains("\"exitCode\": 0"));
+        assertTrue(!report.contains("\"error\""));
+
+        writeIdl("b.thrift", "struct B { 1: i32 id, 2: i32 other }\n");
+        build("generateThriftSource");
+        report = readReport();
+        assertTrue(report.contains("\"incremental\": true"));
+        assertTrue(report.contains("\"invocationCount\": 1"));
+        assertTrue(!report.contains("a.thrift"));
+    }
+
+    @Test
+    public void testReportOnFailure() throws Exception {
+        thrift = new FakeThriftCompiler(testProjectDir.newFolder("slow"), 100, 16);
+        writeBuild("    generators { java {} }\n");
+        writeIdl("bad.thrift", "struct FAIL { 1: i32 id }\n");
+        BuildResult result = buildAndFail("generateThriftSource");
+        assertTrue(result.getOutput().contains("FAIL requested"));
+        String report = readReport();
+        LOG.info("Report:\n\n" + report + "\n\n");
+        assertTrue(report.contains("\"failed\": true"));
+        assertTrue(report.contains("\"file\": \"src/main/thrift/bad.thrift\""));
+        assertTrue(report.contains("\"exitCode\": 3"));
+        assertTrue(report.contains("bad.thrift: FAIL requested"));
+        // The time spent before the failure is reported too.
+        Matcher matcher = Pattern.compile("\"processMillis\": (\\d+)").matcher(report);
+        assertTrue(matcher.find());
+        assertTrue(report, Long.parseLong(matcher.group(1)) >= 100);
+    }
+
+    @Test
+    public void testScheduling() throws Exception {
+        writeBuild("    maxParallelInvocations 1\n    generators { java {} }\n");
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        writeIdl("b.thrift", "struct B { 1: i32 id }\n");
+        write(".gradle/thrift/durations.txt", "1\t:generateThriftSource java src/main/thrift/a.thrift\n"
+                + "9999\t:generateThriftSource java src/main/thrift/b.thrift\n"
+                + "5\t:generateThriftSource java src/main/thrift/gone.thrift\n"
+                + "5\tjava /old/checkout/src/main/thrift/a.thrift\n");
+        build("generateThriftSource");
+
+        // The invocation which took longest before runs first.
+        List<String> invocations = thrift.getInvocations();
+        assertEquals(2, invocations.size());
+        assertTrue(invocations.get(0).endsWith("b.thrift"));
+        assertTrue(invocations.get(1).endsWith("a.thrift"));
+
+        // Durations of IDLs which are gone, or keyed the old way, are dropped.
+        String durations = Files.toString(new File(testProjectDir.getRoot(), ".gradle/thrift/durations.txt"), StandardCharsets.UTF_8);
+        LOG.info("Durations:\n\n" + durations + "\n\n");
+        assertTrue(durations.contains("\t:generateThriftSource java src/main/thrift/a.thrift\n"));
+        assertTrue(durations.contains("\t:generateThriftSource java src/main/thrift/b.thrift\n"));
+        assertTrue(!durations.contains("gone.thrift"));
+        assertTrue(!durations.contains("/old/checkout"));
+    }
+
+    /**
+     * Writes a producer which publishes the classes generated from its
+     * IDL, and a consumer which includes that IDL and generates with the
+     * given generators.
+     */
+    private void writePrebuiltBuild(@Nonnull String consumerGenerators) throws IOException {
+        String executable = "    executable '" + thrift.getScript().getAbsolutePath() + "'\n";
+        write("settings.gradle", "include 'producer', 'consumer'\n");
+        write("producer/gradle.properties", "thrift.publishGenerated=true\n");
+        write("producer/build.gradle", "plugins { id 'com.google.gradle.thrift' }\n"
+                + "sourceSets.main.resources.srcDir 'src/main/thrift'\n"
+                + "generateThriftSource {\n" + executable + "    generators { java {} }\n}\n");
+        write("producer/src/main/thrift/shared.thrift", "struct Shared { 1: i32 id }\n");
+        write("consumer/gradle.properties", "thrift.consumePrebuilt=true\n");
+        write("consumer/build.gradle", "plugins { id 'com.google.gradle.thrift' }\n"
+                + "dependencies { thrift project(':producer') }\n"
+                + "generateThriftSource {\n" + executable + "    generators { " + consumerGenerators + " }\n}\n"
+                + "task printClasspath { doLast { configurations.compileClasspath.each { println 'classpath: ' + it.name } } }\n");
+        write("consumer/src/main/thrift/user.thrift", "include \"shared.thrift\"\nstruct User { 1: shared.Shared shared }\n");
+    }
+
+    @Nonnull
+    private List<String> getConsumerInvocations() throws IOException {
+        List<String> out = new ArrayList<>();
+        for (String invocation : thrift.getInvocations()) {
+            if (invocation.contains("consumer")) {
+                out.add(invocation);
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void testConsumePrebuilt() throws Exception {
+        writePrebuiltBuild("java {}");
+        BuildResult result = build(":consumer:compileJava", ":consumer:printClasspath");
+        assertTrue(result.getOutput().contains("classpath: producer-thrift.jar"));
+        List<String> invocations = getConsumerInvocations();
+        assertEquals(1, invocations.size());
+        assertTrue(!invocations.get(0).contains("-recurse"));
+        assertTrue(new File(testProjectDir.getRoot(), "consumer/build/generated-src/thrift/main/gen-java/T_user.java").isFile());
+        assertTrue(!new File(testProjectDir.getRoot(), "consumer/build/generated-src/thrift/main/gen-java/T_shared.java").exists());
+    }
+
+    @Test
+    public void testConsumePrebuiltIncomplete() throws Exception {
+        // The producer publishes no js, so the consumer generates everything itself.
+        writePrebuiltBuild("java {}; js {}");
+        BuildResult result = build(":consumer:compileJava", ":consumer:printClasspath");
+        assertTrue(!result.getOutput().contains("classpath: producer-thrift.jar"));
+        List<String> invocations = getConsumerInvocations();
+        assertTrue(!invocations.isEmpty());
+        for (String invocation : invocations) {
+            assertTrue(invocation.contains("-recurse"));
+        }
+        assertTrue(new File(testProjectDir.getRoot(), "consumer/build/generated-src/thrift/main/gen-java/T_shared.java").isFile());
+    }
+
+    /** Waits for the watch to bring {@code file} into the expected state, rewriting {@code idl} meanwhile in case the watch was not yet listening. */
+    private void awaitWatch(@Nonnull File file, boolean exists, @Nonnull File idl, @Nonnull String text) throws Exception {
+        for (int i = 0; i < 200 && file.exists() != exists; i++) {
+            if (i % 20 == 19 && exists) {
+                Files.write(text, idl, StandardCharsets.UTF_8);
+            }
+            Thread.sleep(100);
+        }
+        assertEquals(file + " exists", exists, file.exists());
+    }
+
+    @Test
+    public void testWatchDeletesOutputsOfDeletedIdl() throws Exception {
+        // The watch never finishes, so it runs in a thread of the test and is interrupted.
+        writeIdl("a.thrift", "struct A { 1: i32 id }\n");
+        write("thrift.gradle", "generateThriftSource {\n"
+                + "    executable '" + thrift.getScript().getAbsolutePath() + "'\n"
+                + "    generators { java {} }\n"
+                + "}\n");
+        Project project = ProjectBuilder.builder().withProjectDir(testProjectDir.getRoot()).build();
+        project.getPluginManager().apply("java");
+        project.getPluginManager().apply(ThriftPlugin.class);
+        project.apply(Collections.singletonMap("from", "thrift.gradle"));
+        final ThriftWatchTask watch = (ThriftWatchTask) project.getTasks().getByName("thriftWatch");
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    watch.watch();
+                } catch (InterruptedException e) {
+                    // Stopped by the test.
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        thread.start();
+        try {
+            Thread.sleep(500);
+            File idl = new File(thriftDir, "b.thrift");
+            String text = "struct B { 1: i32 id }\n";
+            Files.write(text, idl, StandardCharsets.UTF_8);
+            awaitWatch(output("gen-java/b.txt"), true, idl, text);
+            assertTrue(output("gen-java/T_b.java").isFile());
+
+            assertTrue(idl.delete());
+            awaitWatch(output("gen-java/b.txt"), false, idl, text);
+            assertTrue(!output("gen-java/T_b.java").exists());
+            String manifest = Files.toString(new File(testProjectDir.getRoot(), "build/thrift-state/generateThriftSource/outputs.txt"), StandardCharsets.UTF_8);
+            assertTrue(manifest, !manifest.contains("b.thrift"));
+        } finally {
+            thread.interrupt();
+            thread.join(10000);
+        }
+        assertEquals(null, failure.get());
+    }
+}
@@ -0,0 +1,7 @@
+namespace java org.example.service
+
+include "types.thrift"
+
+service Lookup {
+  types.Everything get(1: string key) throws (1: types.NotFound notFound)
+}
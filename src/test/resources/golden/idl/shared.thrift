@@ -0,0 +1,18 @@
+namespace java org.example.shared
+
+/** The colours a widget can be. */
+enum Color {
+  RED = 1,
+  GREEN,
+  /** Bluer than blue. */
+  BLUE = 10
+}
+
+typedef i64 Timestamp
+
+const i32 MAX_ITEMS = 10
+
+struct SharedStruct {
+  1: i32 key
+  2: string value
+}
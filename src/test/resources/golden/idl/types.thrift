@@ -0,0 +1,41 @@
+namespace java org.example.types
+
+include "shared.thrift"
+
+typedef list<shared.SharedStruct> SharedList
+
+const list<string> NAMES = ["a", "b\"quoted\""]
+const map<string, i32> LIMITS = {"max": shared.MAX_ITEMS, "min": 0}
+const set<shared.Color> PRIMARY = [shared.Color.RED, shared.Color.GREEN]
+const double RATIO = 1.5e3
+const bool ENABLED = 1
+
+/**
+ * Every kind of field.
+ */
+struct Everything {
+  1: required bool flag
+  2: byte tiny = 7
+  3: i16 small
+  4: optional i32 medium = 42
+  5: i64 large
+  6: double real
+  7: required string text
+  8: binary blob
+  9: optional shared.Color color = shared.Color.BLUE
+  10: shared.SharedStruct nested
+  11: list<i32> numbers
+  12: set<string> tags
+  13: map<string, list<shared.SharedStruct>> index
+  14: SharedList shared
+  15: shared.Timestamp when
+  16: optional map<shared.Color, set<binary>> palette
+}
+
+exception NotFound {
+  1: string message
+  2: i32 code = -1
+}
+
+struct Empty {
+}
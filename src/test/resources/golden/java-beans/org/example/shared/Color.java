@@ -0,0 +1,49 @@
+/**
+ * Autogenerated by Thrift Compiler (inprocess)
+ *
+ * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *  @generated
+ */
+package org.example.shared;
+
+/**
+ * The colours a widget can be.
+ */
+public enum Color implements org.apache.thrift.TEnum {
+  RED(1),
+  GREEN(2),
+  /**
+   * Bluer than blue.
+   */
+  BLUE(10);
+
+  private final int value;
+
+  private Color(int value) {
+    this.value = value;
+  }
+
+  /**
+   * Get the integer value of this enum value, as defined in the Thrift IDL.
+   */
+  public int getValue() {
+    return value;
+  }
+
+  /**
+   * Find a the enum type by its integer value, as defined in the Thrift IDL.
+   * @return null if the value is not found.
+   */
+  public static Color findByValue(int value) {
+    switch (value) {
+      case 1:
+        return RED;
+      case 2:
+        return GREEN;
+      case 10:
+        return BLUE;
+      default:
+        return null;
+    }
+  }
+}
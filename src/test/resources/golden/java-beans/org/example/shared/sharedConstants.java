@@ -0,0 +1,13 @@
+/**
+ * Autogenerated by Thrift Compiler (inprocess)
+ *
+ * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *  @generated
+ */
+package org.example.shared;
+
+public class sharedConstants {
+
+  public static final int MAX_ITEMS = 10;
+
+}
@@ -0,0 +1,14 @@
+/**
+ * Autogenerated by Thrift Compiler (inprocess)
+ *
+ * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *  @generated
+ */
+package org.example.shared;
+
+@javax.annotation.Generated(value = "Autogenerated by Thrift Compiler (inprocess)")
+public class sharedConstants {
+
+  public static final int MAX_ITEMS = 10;
+
+}
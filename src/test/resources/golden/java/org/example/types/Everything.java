@@ -0,0 +1,1928 @@
+/**
+ * Autogenerated by Thrift Compiler (inprocess)
+ *
+ * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *  @generated
+ */
+package org.example.types;
+
+/**
+ * Every kind of field.
+ */
+@SuppressWarnings({"cast", "rawtypes", "serial", "unchecked", "unused"})
+@javax.annotation.Generated(value = "Autogenerated by Thrift Compiler (inprocess)")
+public class Everything implements org.apache.thrift.TBase<Everything, Everything._Fields>, java.io.Serializable, Cloneable, Comparable<Everything> {
+  private static final org.apache.thrift.protocol.TStruct STRUCT_DESC = new org.apache.thrift.protocol.TStruct("Everything");
+
+  private static final org.apache.thrift.protocol.TField FLAG_FIELD_DESC = new org.apache.thrift.protocol.TField("flag", org.apache.thrift.protocol.TType.BOOL, (short)1);
+  private static final org.apache.thrift.protocol.TField TINY_FIELD_DESC = new org.apache.thrift.protocol.TField("tiny", org.apache.thrift.protocol.TType.BYTE, (short)2);
+  private static final org.apache.thrift.protocol.TField SMALL_FIELD_DESC = new org.apache.thrift.protocol.TField("small", org.apache.thrift.protocol.TType.I16, (short)3);
+  private static final org.apache.thrift.protocol.TField MEDIUM_FIELD_DESC = new org.apache.thrift.protocol.TField("medium", org.apache.thrift.protocol.TType.I32, (short)4);
+  private static final org.apache.thrift.protocol.TField LARGE_FIELD_DESC = new org.apache.thrift.protocol.TField("large", org.apache.thrift.protocol.TType.I64, (short)5);
+  private static final org.apache.thrift.protocol.TField REAL_FIELD_DESC = new org.apache.thrift.protocol.TField("real", org.apache.thrift.protocol.TType.DOUBLE, (short)6);
+  private static final org.apache.thrift.protocol.TField TEXT_FIELD_DESC = new org.apache.thrift.protocol.TField("text", org.apache.thrift.protocol.TType.STRING, (short)7);
+  private static final org.apache.thrift.protocol.TField BLOB_FIELD_DESC = new org.apache.thrift.protocol.TField("blob", org.apache.thrift.protocol.TType.STRING, (short)8);
+  private static final org.apache.thrift.protocol.TField COLOR_FIELD_DESC = new org.apache.thrift.protocol.TField("color", org.apache.thrift.protocol.TType.I32, (short)9);
+  private static final org.apache.thrift.protocol.TField NESTED_FIELD_DESC = new org.apache.thrift.protocol.TField("nested", org.apache.thrift.protocol.TType.STRUCT, (short)10);
+  private static final org.apache.thrift.protocol.TField NUMBERS_FIELD_DESC = new org.apache.thrift.protocol.TField("numbers", org.apache.thrift.protocol.TType.LIST, (short)11);
+  private static final org.apache.thrift.protocol.TField TAGS_FIELD_DESC = new org.apache.thrift.protocol.TField("tags", org.apache.thrift.protocol.TType.SET, (short)12);
+  private static final org.apache.thrift.protocol.TField INDEX_FIELD_DESC = new org.apache.thrift.protocol.TField("index", org.apache.thrift.protocol.TType.MAP, (short)13);
+  private static final org.apache.thrift.protocol.TField SHARED_FIELD_DESC = new org.apache.thrift.protocol.TField("shared", org.apache.thrift.protocol.TType.LIST, (short)14);
+  private static final org.apache.thrift.protocol.TField WHEN_FIELD_DESC = new org.apache.thrift.protocol.TField("when", org.apache.thrift.protocol.TType.I64, (short)15);
+  private static final org.apache.thrift.protocol.TField PALETTE_FIELD_DESC = new org.apache.thrift.protocol.TField("palette", org.apache.thrift.protocol.TType.MAP, (short)16);
+
+  public boolean flag; // required
+  public byte tiny; // required
+  public short small; // required
+  public int medium; // optional
+  public long large; // required
+  public double real; // required
+  public String text; // required
+  public java.nio.ByteBuffer blob; // required
+  public org.example.shared.Color color; // optional
+  public org.example.shared.SharedStruct nested; // required
+  public java.util.List<Integer> numbers; // required
+  public java.util.Set<String> tags; // required
+  public java.util.Map<String,java.util.List<org.example.shared.SharedStruct>> index; // required
+  public java.util.List<org.example.shared.SharedStruct> shared; // required
+  public long when; // required
+  public java.util.Map<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>> palette; // optional
+
+  /** The set of fields this struct contains, along with convenience methods for finding and manipulating them. */
+  public enum _Fields implements org.apache.thrift.TFieldIdEnum {
+    FLAG((short)1, "flag"),
+    TINY((short)2, "tiny"),
+    SMALL((short)3, "small"),
+    MEDIUM((short)4, "medium"),
+    LARGE((short)5, "large"),
+    REAL((short)6, "real"),
+    TEXT((short)7, "text"),
+    BLOB((short)8, "blob"),
+    COLOR((short)9, "color"),
+    NESTED((short)10, "nested"),
+    NUMBERS((short)11, "numbers"),
+    TAGS((short)12, "tags"),
+    INDEX((short)13, "index"),
+    SHARED((short)14, "shared"),
+    WHEN((short)15, "when"),
+    PALETTE((short)16, "palette");
+
+    private static final java.util.Map<String, _Fields> byName = new java.util.HashMap<String, _Fields>();
+
+    static {
+      for (_Fields field : java.util.EnumSet.allOf(_Fields.class)) {
+        byName.put(field.getFieldName(), field);
+      }
+    }
+
+    /**
+     * Find the _Fields constant that matches fieldId, or null if its not found.
+     */
+    public static _Fields findByThriftId(int fieldId) {
+      switch(fieldId) {
+        case 1: // FLAG
+          return FLAG;
+        case 2: // TINY
+          return TINY;
+        case 3: // SMALL
+          return SMALL;
+        case 4: // MEDIUM
+          return MEDIUM;
+        case 5: // LARGE
+          return LARGE;
+        case 6: // REAL
+          return REAL;
+        case 7: // TEXT
+          return TEXT;
+        case 8: // BLOB
+          return BLOB;
+        case 9: // COLOR
+          return COLOR;
+        case 10: // NESTED
+          return NESTED;
+        case 11: // NUMBERS
+          return NUMBERS;
+        case 12: // TAGS
+          return TAGS;
+        case 13: // INDEX
+          return INDEX;
+        case 14: // SHARED
+          return SHARED;
+        case 15: // WHEN
+          return WHEN;
+        case 16: // PALETTE
+          return PALETTE;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * Find the _Fields constant that matches fieldId, throwing an exception
+     * if it is not found.
+     */
+    public static _Fields findByThriftIdOrThrow(int fieldId) {
+      _Fields fields = findByThriftId(fieldId);
+      if (fields == null) throw new IllegalArgumentException("Field " + fieldId + " doesn't exist!");
+      return fields;
+    }
+
+    /**
+     * Find the _Fields constant that matches name, or null if its not found.
+     */
+    public static _Fields findByName(String name) {
+      return byName.get(name);
+    }
+
+    private final short _thriftId;
+    private final String _fieldName;
+
+    _Fields(short thriftId, String fieldName) {
+      _thriftId = thriftId;
+      _fieldName = fieldName;
+    }
+
+    public short getThriftFieldId() {
+      return _thriftId;
+    }
+
+    public String getFieldName() {
+      return _fieldName;
+    }
+  }
+
+  // isset id assignments
+  private static final int __FLAG_ISSET_ID = 0;
+  private static final int __TINY_ISSET_ID = 1;
+  private static final int __SMALL_ISSET_ID = 2;
+  private static final int __MEDIUM_ISSET_ID = 3;
+  private static final int __LARGE_ISSET_ID = 4;
+  private static final int __REAL_ISSET_ID = 5;
+  private static final int __WHEN_ISSET_ID = 6;
+  private java.util.BitSet __isset_bit_vector = new java.util.BitSet(7);
+  public static final java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> metaDataMap;
+  static {
+    java.util.Map<_Fields, org.apache.thrift.meta_data.FieldMetaData> tmpMap = new java.util.EnumMap<_Fields, org.apache.thrift.meta_data.FieldMetaData>(_Fields.class);
+    tmpMap.put(_Fields.FLAG, new org.apache.thrift.meta_data.FieldMetaData("flag", org.apache.thrift.TFieldRequirementType.REQUIRED, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BOOL)));
+    tmpMap.put(_Fields.TINY, new org.apache.thrift.meta_data.FieldMetaData("tiny", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.BYTE)));
+    tmpMap.put(_Fields.SMALL, new org.apache.thrift.meta_data.FieldMetaData("small", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I16)));
+    tmpMap.put(_Fields.MEDIUM, new org.apache.thrift.meta_data.FieldMetaData("medium", org.apache.thrift.TFieldRequirementType.OPTIONAL, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32)));
+    tmpMap.put(_Fields.LARGE, new org.apache.thrift.meta_data.FieldMetaData("large", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.REAL, new org.apache.thrift.meta_data.FieldMetaData("real", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.DOUBLE)));
+    tmpMap.put(_Fields.TEXT, new org.apache.thrift.meta_data.FieldMetaData("text", org.apache.thrift.TFieldRequirementType.REQUIRED, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING)));
+    tmpMap.put(_Fields.BLOB, new org.apache.thrift.meta_data.FieldMetaData("blob", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING, true)));
+    tmpMap.put(_Fields.COLOR, new org.apache.thrift.meta_data.FieldMetaData("color", org.apache.thrift.TFieldRequirementType.OPTIONAL, new org.apache.thrift.meta_data.EnumMetaData(org.apache.thrift.protocol.TType.ENUM, org.example.shared.Color.class)));
+    tmpMap.put(_Fields.NESTED, new org.apache.thrift.meta_data.FieldMetaData("nested", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, org.example.shared.SharedStruct.class)));
+    tmpMap.put(_Fields.NUMBERS, new org.apache.thrift.meta_data.FieldMetaData("numbers", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I32))));
+    tmpMap.put(_Fields.TAGS, new org.apache.thrift.meta_data.FieldMetaData("tags", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.SetMetaData(org.apache.thrift.protocol.TType.SET, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING))));
+    tmpMap.put(_Fields.INDEX, new org.apache.thrift.meta_data.FieldMetaData("index", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING), new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, org.example.shared.SharedStruct.class)))));
+    tmpMap.put(_Fields.SHARED, new org.apache.thrift.meta_data.FieldMetaData("shared", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.ListMetaData(org.apache.thrift.protocol.TType.LIST, new org.apache.thrift.meta_data.StructMetaData(org.apache.thrift.protocol.TType.STRUCT, org.example.shared.SharedStruct.class))));
+    tmpMap.put(_Fields.WHEN, new org.apache.thrift.meta_data.FieldMetaData("when", org.apache.thrift.TFieldRequirementType.DEFAULT, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.I64)));
+    tmpMap.put(_Fields.PALETTE, new org.apache.thrift.meta_data.FieldMetaData("palette", org.apache.thrift.TFieldRequirementType.OPTIONAL, new org.apache.thrift.meta_data.MapMetaData(org.apache.thrift.protocol.TType.MAP, new org.apache.thrift.meta_data.EnumMetaData(org.apache.thrift.protocol.TType.ENUM, org.example.shared.Color.class), new org.apache.thrift.meta_data.SetMetaData(org.apache.thrift.protocol.TType.SET, new org.apache.thrift.meta_data.FieldValueMetaData(org.apache.thrift.protocol.TType.STRING, true)))));
+    metaDataMap = java.util.Collections.unmodifiableMap(tmpMap);
+    org.apache.thrift.meta_data.FieldMetaData.addStructMetaDataMap(Everything.class, metaDataMap);
+  }
+
+  public Everything() {
+    this.tiny = (byte)7;
+    this.medium = 42;
+    this.color = org.example.shared.Color.BLUE;
+  }
+
+  public Everything(boolean flag, byte tiny, short small, long large, double real, String text, java.nio.ByteBuffer blob, org.example.shared.SharedStruct nested, java.util.List<Integer> numbers, java.util.Set<String> tags, java.util.Map<String,java.util.List<org.example.shared.SharedStruct>> index, java.util.List<org.example.shared.SharedStruct> shared, long when) {
+    this();
+    this.flag = flag;
+    setFlagIsSet(true);
+    this.tiny = tiny;
+    setTinyIsSet(true);
+    this.small = small;
+    setSmallIsSet(true);
+    this.large = large;
+    setLargeIsSet(true);
+    this.real = real;
+    setRealIsSet(true);
+    this.text = text;
+    this.blob = org.apache.thrift.TBaseHelper.copyBinary(blob);
+    this.nested = nested;
+    this.numbers = numbers;
+    this.tags = tags;
+    this.index = index;
+    this.shared = shared;
+    this.when = when;
+    setWhenIsSet(true);
+  }
+
+  /**
+   * Performs a deep copy on <i>other</i>.
+   */
+  public Everything(Everything other) {
+    __isset_bit_vector.clear();
+    __isset_bit_vector.or(other.__isset_bit_vector);
+    this.flag = other.flag;
+    this.tiny = other.tiny;
+    this.small = other.small;
+    this.medium = other.medium;
+    this.large = other.large;
+    this.real = other.real;
+    if (other.isSetText()) {
+      this.text = other.text;
+    }
+    if (other.isSetBlob()) {
+      this.blob = org.apache.thrift.TBaseHelper.copyBinary(other.blob);
+    }
+    if (other.isSetColor()) {
+      this.color = other.color;
+    }
+    if (other.isSetNested()) {
+      this.nested = new org.example.shared.SharedStruct(other.nested);
+    }
+    if (other.isSetNumbers()) {
+      java.util.List<Integer> __this__copy0 = new java.util.ArrayList<Integer>(other.numbers.size());
+      for (Integer other_element1 : other.numbers) {
+        __this__copy0.add(other_element1);
+      }
+      this.numbers = __this__copy0;
+    }
+    if (other.isSetTags()) {
+      java.util.Set<String> __this__copy2 = new java.util.HashSet<String>(other.tags.size());
+      for (String other_element3 : other.tags) {
+        __this__copy2.add(other_element3);
+      }
+      this.tags = __this__copy2;
+    }
+    if (other.isSetIndex()) {
+      java.util.Map<String,java.util.List<org.example.shared.SharedStruct>> __this__copy4 = new java.util.HashMap<String,java.util.List<org.example.shared.SharedStruct>>(other.index.size());
+      for (java.util.Map.Entry<String, java.util.List<org.example.shared.SharedStruct>> other_element5 : other.index.entrySet()) {
+        java.util.List<org.example.shared.SharedStruct> __this__copy6 = new java.util.ArrayList<org.example.shared.SharedStruct>(other_element5.getValue().size());
+        for (org.example.shared.SharedStruct other_element7 : other_element5.getValue()) {
+          __this__copy6.add(new org.example.shared.SharedStruct(other_element7));
+        }
+        __this__copy4.put(other_element5.getKey(), __this__copy6);
+      }
+      this.index = __this__copy4;
+    }
+    if (other.isSetShared()) {
+      java.util.List<org.example.shared.SharedStruct> __this__copy8 = new java.util.ArrayList<org.example.shared.SharedStruct>(other.shared.size());
+      for (org.example.shared.SharedStruct other_element9 : other.shared) {
+        __this__copy8.add(new org.example.shared.SharedStruct(other_element9));
+      }
+      this.shared = __this__copy8;
+    }
+    this.when = other.when;
+    if (other.isSetPalette()) {
+      java.util.Map<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>> __this__copy10 = new java.util.HashMap<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>>(other.palette.size());
+      for (java.util.Map.Entry<org.example.shared.Color, java.util.Set<java.nio.ByteBuffer>> other_element11 : other.palette.entrySet()) {
+        java.util.Set<java.nio.ByteBuffer> __this__copy12 = new java.util.HashSet<java.nio.ByteBuffer>(other_element11.getValue().size());
+        for (java.nio.ByteBuffer other_element13 : other_element11.getValue()) {
+          __this__copy12.add(org.apache.thrift.TBaseHelper.copyBinary(other_element13));
+        }
+        __this__copy10.put(other_element11.getKey(), __this__copy12);
+      }
+      this.palette = __this__copy10;
+    }
+  }
+
+  public Everything deepCopy() {
+    return new Everything(this);
+  }
+
+  @Override
+  public void clear() {
+    setFlagIsSet(false);
+    this.flag = false;
+    this.tiny = (byte)7;
+    setSmallIsSet(false);
+    this.small = 0;
+    this.medium = 42;
+    setLargeIsSet(false);
+    this.large = 0;
+    setRealIsSet(false);
+    this.real = 0.0;
+    this.text = null;
+    this.blob = null;
+    this.color = org.example.shared.Color.BLUE;
+    this.nested = null;
+    this.numbers = null;
+    this.tags = null;
+    this.index = null;
+    this.shared = null;
+    setWhenIsSet(false);
+    this.when = 0;
+    this.palette = null;
+  }
+
+  public boolean isFlag() {
+    return this.flag;
+  }
+
+  public Everything setFlag(boolean flag) {
+    this.flag = flag;
+    setFlagIsSet(true);
+    return this;
+  }
+
+  public void unsetFlag() {
+    __isset_bit_vector.clear(__FLAG_ISSET_ID);
+  }
+
+  /** Returns true if field flag is set (has been assigned a value) and false otherwise */
+  public boolean isSetFlag() {
+    return __isset_bit_vector.get(__FLAG_ISSET_ID);
+  }
+
+  public void setFlagIsSet(boolean value) {
+    __isset_bit_vector.set(__FLAG_ISSET_ID, value);
+  }
+
+  public byte getTiny() {
+    return this.tiny;
+  }
+
+  public Everything setTiny(byte tiny) {
+    this.tiny = tiny;
+    setTinyIsSet(true);
+    return this;
+  }
+
+  public void unsetTiny() {
+    __isset_bit_vector.clear(__TINY_ISSET_ID);
+  }
+
+  /** Returns true if field tiny is set (has been assigned a value) and false otherwise */
+  public boolean isSetTiny() {
+    return __isset_bit_vector.get(__TINY_ISSET_ID);
+  }
+
+  public void setTinyIsSet(boolean value) {
+    __isset_bit_vector.set(__TINY_ISSET_ID, value);
+  }
+
+  public short getSmall() {
+    return this.small;
+  }
+
+  public Everything setSmall(short small) {
+    this.small = small;
+    setSmallIsSet(true);
+    return this;
+  }
+
+  public void unsetSmall() {
+    __isset_bit_vector.clear(__SMALL_ISSET_ID);
+  }
+
+  /** Returns true if field small is set (has been assigned a value) and false otherwise */
+  public boolean isSetSmall() {
+    return __isset_bit_vector.get(__SMALL_ISSET_ID);
+  }
+
+  public void setSmallIsSet(boolean value) {
+    __isset_bit_vector.set(__SMALL_ISSET_ID, value);
+  }
+
+  public int getMedium() {
+    return this.medium;
+  }
+
+  public Everything setMedium(int medium) {
+    this.medium = medium;
+    setMediumIsSet(true);
+    return this;
+  }
+
+  public void unsetMedium() {
+    __isset_bit_vector.clear(__MEDIUM_ISSET_ID);
+  }
+
+  /** Returns true if field medium is set (has been assigned a value) and false otherwise */
+  public boolean isSetMedium() {
+    return __isset_bit_vector.get(__MEDIUM_ISSET_ID);
+  }
+
+  public void setMediumIsSet(boolean value) {
+    __isset_bit_vector.set(__MEDIUM_ISSET_ID, value);
+  }
+
+  public long getLarge() {
+    return this.large;
+  }
+
+  public Everything setLarge(long large) {
+    this.large = large;
+    setLargeIsSet(true);
+    return this;
+  }
+
+  public void unsetLarge() {
+    __isset_bit_vector.clear(__LARGE_ISSET_ID);
+  }
+
+  /** Returns true if field large is set (has been assigned a value) and false otherwise */
+  public boolean isSetLarge() {
+    return __isset_bit_vector.get(__LARGE_ISSET_ID);
+  }
+
+  public void setLargeIsSet(boolean value) {
+    __isset_bit_vector.set(__LARGE_ISSET_ID, value);
+  }
+
+  public double getReal() {
+    return this.real;
+  }
+
+  public Everything setReal(double real) {
+    this.real = real;
+    setRealIsSet(true);
+    return this;
+  }
+
+  public void unsetReal() {
+    __isset_bit_vector.clear(__REAL_ISSET_ID);
+  }
+
+  /** Returns true if field real is set (has been assigned a value) and false otherwise */
+  public boolean isSetReal() {
+    return __isset_bit_vector.get(__REAL_ISSET_ID);
+  }
+
+  public void setRealIsSet(boolean value) {
+    __isset_bit_vector.set(__REAL_ISSET_ID, value);
+  }
+
+  public String getText() {
+    return this.text;
+  }
+
+  public Everything setText(String text) {
+    this.text = text;
+    return this;
+  }
+
+  public void unsetText() {
+    this.text = null;
+  }
+
+  /** Returns true if field text is set (has been assigned a value) and false otherwise */
+  public boolean isSetText() {
+    return this.text != null;
+  }
+
+  public void setTextIsSet(boolean value) {
+    if (!value) {
+      this.text = null;
+    }
+  }
+
+  public byte[] getBlob() {
+    setBlob(org.apache.thrift.TBaseHelper.rightSize(blob));
+    return blob == null ? null : blob.array();
+  }
+
+  public java.nio.ByteBuffer bufferForBlob() {
+    return org.apache.thrift.TBaseHelper.copyBinary(blob);
+  }
+
+  public Everything setBlob(byte[] blob) {
+    this.blob = blob == null ? (java.nio.ByteBuffer)null : java.nio.ByteBuffer.wrap(blob.clone());
+    return this;
+  }
+
+  public Everything setBlob(java.nio.ByteBuffer blob) {
+    this.blob = org.apache.thrift.TBaseHelper.copyBinary(blob);
+    return this;
+  }
+
+  public void unsetBlob() {
+    this.blob = null;
+  }
+
+  /** Returns true if field blob is set (has been assigned a value) and false otherwise */
+  public boolean isSetBlob() {
+    return this.blob != null;
+  }
+
+  public void setBlobIsSet(boolean value) {
+    if (!value) {
+      this.blob = null;
+    }
+  }
+
+  public org.example.shared.Color getColor() {
+    return this.color;
+  }
+
+  public Everything setColor(org.example.shared.Color color) {
+    this.color = color;
+    return this;
+  }
+
+  public void unsetColor() {
+    this.color = null;
+  }
+
+  /** Returns true if field color is set (has been assigned a value) and false otherwise */
+  public boolean isSetColor() {
+    return this.color != null;
+  }
+
+  public void setColorIsSet(boolean value) {
+    if (!value) {
+      this.color = null;
+    }
+  }
+
+  public org.example.shared.SharedStruct getNested() {
+    return this.nested;
+  }
+
+  public Everything setNested(org.example.shared.SharedStruct nested) {
+    this.nested = nested;
+    return this;
+  }
+
+  public void unsetNested() {
+    this.nested = null;
+  }
+
+  /** Returns true if field nested is set (has been assigned a value) and false otherwise */
+  public boolean isSetNested() {
+    return this.nested != null;
+  }
+
+  public void setNestedIsSet(boolean value) {
+    if (!value) {
+      this.nested = null;
+    }
+  }
+
+  public int getNumbersSize() {
+    return (this.numbers == null) ? 0 : this.numbers.size();
+  }
+
+  public java.util.Iterator<Integer> getNumbersIterator() {
+    return (this.numbers == null) ? null : this.numbers.iterator();
+  }
+
+  public void addToNumbers(Integer elem) {
+    if (this.numbers == null) {
+      this.numbers = new java.util.ArrayList<Integer>();
+    }
+    this.numbers.add(elem);
+  }
+
+  public java.util.List<Integer> getNumbers() {
+    return this.numbers;
+  }
+
+  public Everything setNumbers(java.util.List<Integer> numbers) {
+    this.numbers = numbers;
+    return this;
+  }
+
+  public void unsetNumbers() {
+    this.numbers = null;
+  }
+
+  /** Returns true if field numbers is set (has been assigned a value) and false otherwise */
+  public boolean isSetNumbers() {
+    return this.numbers != null;
+  }
+
+  public void setNumbersIsSet(boolean value) {
+    if (!value) {
+      this.numbers = null;
+    }
+  }
+
+  public int getTagsSize() {
+    return (this.tags == null) ? 0 : this.tags.size();
+  }
+
+  public java.util.Iterator<String> getTagsIterator() {
+    return (this.tags == null) ? null : this.tags.iterator();
+  }
+
+  public void addToTags(String elem) {
+    if (this.tags == null) {
+      this.tags = new java.util.HashSet<String>();
+    }
+    this.tags.add(elem);
+  }
+
+  public java.util.Set<String> getTags() {
+    return this.tags;
+  }
+
+  public Everything setTags(java.util.Set<String> tags) {
+    this.tags = tags;
+    return this;
+  }
+
+  public void unsetTags() {
+    this.tags = null;
+  }
+
+  /** Returns true if field tags is set (has been assigned a value) and false otherwise */
+  public boolean isSetTags() {
+    return this.tags != null;
+  }
+
+  public void setTagsIsSet(boolean value) {
+    if (!value) {
+      this.tags = null;
+    }
+  }
+
+  public int getIndexSize() {
+    return (this.index == null) ? 0 : this.index.size();
+  }
+
+  public void putToIndex(String key, java.util.List<org.example.shared.SharedStruct> val) {
+    if (this.index == null) {
+      this.index = new java.util.HashMap<String,java.util.List<org.example.shared.SharedStruct>>();
+    }
+    this.index.put(key, val);
+  }
+
+  public java.util.Map<String,java.util.List<org.example.shared.SharedStruct>> getIndex() {
+    return this.index;
+  }
+
+  public Everything setIndex(java.util.Map<String,java.util.List<org.example.shared.SharedStruct>> index) {
+    this.index = index;
+    return this;
+  }
+
+  public void unsetIndex() {
+    this.index = null;
+  }
+
+  /** Returns true if field index is set (has been assigned a value) and false otherwise */
+  public boolean isSetIndex() {
+    return this.index != null;
+  }
+
+  public void setIndexIsSet(boolean value) {
+    if (!value) {
+      this.index = null;
+    }
+  }
+
+  public int getSharedSize() {
+    return (this.shared == null) ? 0 : this.shared.size();
+  }
+
+  public java.util.Iterator<org.example.shared.SharedStruct> getSharedIterator() {
+    return (this.shared == null) ? null : this.shared.iterator();
+  }
+
+  public void addToShared(org.example.shared.SharedStruct elem) {
+    if (this.shared == null) {
+      this.shared = new java.util.ArrayList<org.example.shared.SharedStruct>();
+    }
+    this.shared.add(elem);
+  }
+
+  public java.util.List<org.example.shared.SharedStruct> getShared() {
+    return this.shared;
+  }
+
+  public Everything setShared(java.util.List<org.example.shared.SharedStruct> shared) {
+    this.shared = shared;
+    return this;
+  }
+
+  public void unsetShared() {
+    this.shared = null;
+  }
+
+  /** Returns true if field shared is set (has been assigned a value) and false otherwise */
+  public boolean isSetShared() {
+    return this.shared != null;
+  }
+
+  public void setSharedIsSet(boolean value) {
+    if (!value) {
+      this.shared = null;
+    }
+  }
+
+  public long getWhen() {
+    return this.when;
+  }
+
+  public Everything setWhen(long when) {
+    this.when = when;
+    setWhenIsSet(true);
+    return this;
+  }
+
+  public void unsetWhen() {
+    __isset_bit_vector.clear(__WHEN_ISSET_ID);
+  }
+
+  /** Returns true if field when is set (has been assigned a value) and false otherwise */
+  public boolean isSetWhen() {
+    return __isset_bit_vector.get(__WHEN_ISSET_ID);
+  }
+
+  public void setWhenIsSet(boolean value) {
+    __isset_bit_vector.set(__WHEN_ISSET_ID, value);
+  }
+
+  public int getPaletteSize() {
+    return (this.palette == null) ? 0 : this.palette.size();
+  }
+
+  public void putToPalette(org.example.shared.Color key, java.util.Set<java.nio.ByteBuffer> val) {
+    if (this.palette == null) {
+      this.palette = new java.util.HashMap<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>>();
+    }
+    this.palette.put(key, val);
+  }
+
+  public java.util.Map<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>> getPalette() {
+    return this.palette;
+  }
+
+  public Everything setPalette(java.util.Map<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>> palette) {
+    this.palette = palette;
+    return this;
+  }
+
+  public void unsetPalette() {
+    this.palette = null;
+  }
+
+  /** Returns true if field palette is set (has been assigned a value) and false otherwise */
+  public boolean isSetPalette() {
+    return this.palette != null;
+  }
+
+  public void setPaletteIsSet(boolean value) {
+    if (!value) {
+      this.palette = null;
+    }
+  }
+
+  public void setFieldValue(_Fields field, Object value) {
+    switch (field) {
+      case FLAG:
+        if (value == null) {
+          unsetFlag();
+        } else {
+          setFlag((Boolean)value);
+        }
+        break;
+
+      case TINY:
+        if (value == null) {
+          unsetTiny();
+        } else {
+          setTiny((Byte)value);
+        }
+        break;
+
+      case SMALL:
+        if (value == null) {
+          unsetSmall();
+        } else {
+          setSmall((Short)value);
+        }
+        break;
+
+      case MEDIUM:
+        if (value == null) {
+          unsetMedium();
+        } else {
+          setMedium((Integer)value);
+        }
+        break;
+
+      case LARGE:
+        if (value == null) {
+          unsetLarge();
+        } else {
+          setLarge((Long)value);
+        }
+        break;
+
+      case REAL:
+        if (value == null) {
+          unsetReal();
+        } else {
+          setReal((Double)value);
+        }
+        break;
+
+      case TEXT:
+        if (value == null) {
+          unsetText();
+        } else {
+          setText((String)value);
+        }
+        break;
+
+      case BLOB:
+        if (value == null) {
+          unsetBlob();
+        } else {
+          if (value instanceof byte[]) {
+            setBlob((byte[])value);
+          } else {
+            setBlob((java.nio.ByteBuffer)value);
+          }
+        }
+        break;
+
+      case COLOR:
+        if (value == null) {
+          unsetColor();
+        } else {
+          setColor((org.example.shared.Color)value);
+        }
+        break;
+
+      case NESTED:
+        if (value == null) {
+          unsetNested();
+        } else {
+          setNested((org.example.shared.SharedStruct)value);
+        }
+        break;
+
+      case NUMBERS:
+        if (value == null) {
+          unsetNumbers();
+        } else {
+          setNumbers((java.util.List<Integer>)value);
+        }
+        break;
+
+      case TAGS:
+        if (value == null) {
+          unsetTags();
+        } else {
+          setTags((java.util.Set<String>)value);
+        }
+        break;
+
+      case INDEX:
+        if (value == null) {
+          unsetIndex();
+        } else {
+          setIndex((java.util.Map<String,java.util.List<org.example.shared.SharedStruct>>)value);
+        }
+        break;
+
+      case SHARED:
+        if (value == null) {
+          unsetShared();
+        } else {
+          setShared((java.util.List<org.example.shared.SharedStruct>)value);
+        }
+        break;
+
+      case WHEN:
+        if (value == null) {
+          unsetWhen();
+        } else {
+          setWhen((Long)value);
+        }
+        break;
+
+      case PALETTE:
+        if (value == null) {
+          unsetPalette();
+        } else {
+          setPalette((java.util.Map<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>>)value);
+        }
+        break;
+
+    }
+  }
+
+  public Object getFieldValue(_Fields field) {
+    switch (field) {
+      case FLAG:
+        return isFlag();
+
+      case TINY:
+        return getTiny();
+
+      case SMALL:
+        return getSmall();
+
+      case MEDIUM:
+        return getMedium();
+
+      case LARGE:
+        return getLarge();
+
+      case REAL:
+        return getReal();
+
+      case TEXT:
+        return getText();
+
+      case BLOB:
+        return getBlob();
+
+      case COLOR:
+        return getColor();
+
+      case NESTED:
+        return getNested();
+
+      case NUMBERS:
+        return getNumbers();
+
+      case TAGS:
+        return getTags();
+
+      case INDEX:
+        return getIndex();
+
+      case SHARED:
+        return getShared();
+
+      case WHEN:
+        return getWhen();
+
+      case PALETTE:
+        return getPalette();
+
+    }
+    throw new IllegalStateException();
+  }
+
+  /** Returns true if field corresponding to fieldID is set (has been assigned a value) and false otherwise */
+  public boolean isSet(_Fields field) {
+    if (field == null) {
+      throw new IllegalArgumentException();
+    }
+
+    switch (field) {
+      case FLAG:
+        return isSetFlag();
+      case TINY:
+        return isSetTiny();
+      case SMALL:
+        return isSetSmall();
+      case MEDIUM:
+        return isSetMedium();
+      case LARGE:
+        return isSetLarge();
+      case REAL:
+        return isSetReal();
+      case TEXT:
+        return isSetText();
+      case BLOB:
+        return isSetBlob();
+      case COLOR:
+        return isSetColor();
+      case NESTED:
+        return isSetNested();
+      case NUMBERS:
+        return isSetNumbers();
+      case TAGS:
+        return isSetTags();
+      case INDEX:
+        return isSetIndex();
+      case SHARED:
+        return isSetShared();
+      case WHEN:
+        return isSetWhen();
+      case PALETTE:
+        return isSetPalette();
+    }
+    throw new IllegalStateException();
+  }
+
+  @Override
+  public boolean equals(Object that) {
+    if (that == null)
+      return false;
+    if (that instanceof Everything)
+      return this.equals((Everything)that);
+    return false;
+  }
+
+  public boolean equals(Everything that) {
+    if (that == null)
+      return false;
+
+    boolean this_present_flag = true;
+    boolean that_present_flag = true;
+    if (this_present_flag || that_present_flag) {
+      if (!(this_present_flag && that_present_flag))
+        return false;
+      if (this.flag != that.flag)
+        return false;
+    }
+
+    boolean this_present_tiny = true;
+    boolean that_present_tiny = true;
+    if (this_present_tiny || that_present_tiny) {
+      if (!(this_present_tiny && that_present_tiny))
+        return false;
+      if (this.tiny != that.tiny)
+        return false;
+    }
+
+    boolean this_present_small = true;
+    boolean that_present_small = true;
+    if (this_present_small || that_present_small) {
+      if (!(this_present_small && that_present_small))
+        return false;
+      if (this.small != that.small)
+        return false;
+    }
+
+    boolean this_present_medium = this.isSetMedium();
+    boolean that_present_medium = that.isSetMedium();
+    if (this_present_medium || that_present_medium) {
+      if (!(this_present_medium && that_present_medium))
+        return false;
+      if (this.medium != that.medium)
+        return false;
+    }
+
+    boolean this_present_large = true;
+    boolean that_present_large = true;
+    if (this_present_large || that_present_large) {
+      if (!(this_present_large && that_present_large))
+        return false;
+      if (this.large != that.large)
+        return false;
+    }
+
+    boolean this_present_real = true;
+    boolean that_present_real = true;
+    if (this_present_real || that_present_real) {
+      if (!(this_present_real && that_present_real))
+        return false;
+      if (this.real != that.real)
+        return false;
+    }
+
+    boolean this_present_text = this.isSetText();
+    boolean that_present_text = that.isSetText();
+    if (this_present_text || that_present_text) {
+      if (!(this_present_text && that_present_text))
+        return false;
+      if (!this.text.equals(that.text))
+        return false;
+    }
+
+    boolean this_present_blob = this.isSetBlob();
+    boolean that_present_blob = that.isSetBlob();
+    if (this_present_blob || that_present_blob) {
+      if (!(this_present_blob && that_present_blob))
+        return false;
+      if (!this.blob.equals(that.blob))
+        return false;
+    }
+
+    boolean this_present_color = this.isSetColor();
+    boolean that_present_color = that.isSetColor();
+    if (this_present_color || that_present_color) {
+      if (!(this_present_color && that_present_color))
+        return false;
+      if (!this.color.equals(that.color))
+        return false;
+    }
+
+    boolean this_present_nested = this.isSetNested();
+    boolean that_present_nested = that.isSetNested();
+    if (this_present_nested || that_present_nested) {
+      if (!(this_present_nested && that_present_nested))
+        return false;
+      if (!this.nested.equals(that.nested))
+        return false;
+    }
+
+    boolean this_present_numbers = this.isSetNumbers();
+    boolean that_present_numbers = that.isSetNumbers();
+    if (this_present_numbers || that_present_numbers) {
+      if (!(this_present_numbers && that_present_numbers))
+        return false;
+      if (!this.numbers.equals(that.numbers))
+        return false;
+    }
+
+    boolean this_present_tags = this.isSetTags();
+    boolean that_present_tags = that.isSetTags();
+    if (this_present_tags || that_present_tags) {
+      if (!(this_present_tags && that_present_tags))
+        return false;
+      if (!this.tags.equals(that.tags))
+        return false;
+    }
+
+    boolean this_present_index = this.isSetIndex();
+    boolean that_present_index = that.isSetIndex();
+    if (this_present_index || that_present_index) {
+      if (!(this_present_index && that_present_index))
+        return false;
+      if (!this.index.equals(that.index))
+        return false;
+    }
+
+    boolean this_present_shared = this.isSetShared();
+    boolean that_present_shared = that.isSetShared();
+    if (this_present_shared || that_present_shared) {
+      if (!(this_present_shared && that_present_shared))
+        return false;
+      if (!this.shared.equals(that.shared))
+        return false;
+    }
+
+    boolean this_present_when = true;
+    boolean that_present_when = true;
+    if (this_present_when || that_present_when) {
+      if (!(this_present_when && that_present_when))
+        return false;
+      if (this.when != that.when)
+        return false;
+    }
+
+    boolean this_present_palette = this.isSetPalette();
+    boolean that_present_palette = that.isSetPalette();
+    if (this_present_palette || that_present_palette) {
+      if (!(this_present_palette && that_present_palette))
+        return false;
+      if (!this.palette.equals(that.palette))
+        return false;
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    java.util.List<Object> list = new java.util.ArrayList<Object>();
+
+    boolean present_flag = true;
+    list.add(present_flag);
+    if (present_flag)
+      list.add(flag);
+
+    boolean present_tiny = true;
+    list.add(present_tiny);
+    if (present_tiny)
+      list.add(tiny);
+
+    boolean present_small = true;
+    list.add(present_small);
+    if (present_small)
+      list.add(small);
+
+    boolean present_medium = this.isSetMedium();
+    list.add(present_medium);
+    if (present_medium)
+      list.add(medium);
+
+    boolean present_large = true;
+    list.add(present_large);
+    if (present_large)
+      list.add(large);
+
+    boolean present_real = true;
+    list.add(present_real);
+    if (present_real)
+      list.add(real);
+
+    boolean present_text = this.isSetText();
+    list.add(present_text);
+    if (present_text)
+      list.add(text);
+
+    boolean present_blob = this.isSetBlob();
+    list.add(present_blob);
+    if (present_blob)
+      list.add(blob);
+
+    boolean present_color = this.isSetColor();
+    list.add(present_color);
+    if (present_color)
+      list.add(color.getValue());
+
+    boolean present_nested = this.isSetNested();
+    list.add(present_nested);
+    if (present_nested)
+      list.add(nested);
+
+    boolean present_numbers = this.isSetNumbers();
+    list.add(present_numbers);
+    if (present_numbers)
+      list.add(numbers);
+
+    boolean present_tags = this.isSetTags();
+    list.add(present_tags);
+    if (present_tags)
+      list.add(tags);
+
+    boolean present_index = this.isSetIndex();
+    list.add(present_index);
+    if (present_index)
+      list.add(index);
+
+    boolean present_shared = this.isSetShared();
+    list.add(present_shared);
+    if (present_shared)
+      list.add(shared);
+
+    boolean present_when = true;
+    list.add(present_when);
+    if (present_when)
+      list.add(when);
+
+    boolean present_palette = this.isSetPalette();
+    list.add(present_palette);
+    if (present_palette)
+      list.add(palette);
+
+    return list.hashCode();
+  }
+
+  @Override
+  public int compareTo(Everything other) {
+    if (!getClass().equals(other.getClass())) {
+      return getClass().getName().compareTo(other.getClass().getName());
+    }
+
+    int lastComparison = 0;
+
+    lastComparison = Boolean.valueOf(isSetFlag()).compareTo(other.isSetFlag());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetFlag()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.flag, other.flag);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetTiny()).compareTo(other.isSetTiny());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetTiny()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.tiny, other.tiny);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetSmall()).compareTo(other.isSetSmall());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetSmall()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.small, other.small);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetMedium()).compareTo(other.isSetMedium());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetMedium()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.medium, other.medium);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetLarge()).compareTo(other.isSetLarge());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetLarge()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.large, other.large);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetReal()).compareTo(other.isSetReal());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetReal()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.real, other.real);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetText()).compareTo(other.isSetText());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetText()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.text, other.text);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetBlob()).compareTo(other.isSetBlob());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetBlob()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.blob, other.blob);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetColor()).compareTo(other.isSetColor());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetColor()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.color, other.color);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetNested()).compareTo(other.isSetNested());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetNested()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.nested, other.nested);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetNumbers()).compareTo(other.isSetNumbers());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetNumbers()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.numbers, other.numbers);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetTags()).compareTo(other.isSetTags());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetTags()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.tags, other.tags);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetIndex()).compareTo(other.isSetIndex());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetIndex()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.index, other.index);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetShared()).compareTo(other.isSetShared());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetShared()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.shared, other.shared);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetWhen()).compareTo(other.isSetWhen());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetWhen()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.when, other.when);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    lastComparison = Boolean.valueOf(isSetPalette()).compareTo(other.isSetPalette());
+    if (lastComparison != 0) {
+      return lastComparison;
+    }
+    if (isSetPalette()) {
+      lastComparison = org.apache.thrift.TBaseHelper.compareTo(this.palette, other.palette);
+      if (lastComparison != 0) {
+        return lastComparison;
+      }
+    }
+    return 0;
+  }
+
+  public _Fields fieldForId(int fieldId) {
+    return _Fields.findByThriftId(fieldId);
+  }
+
+  public void read(org.apache.thrift.protocol.TProtocol iprot) throws org.apache.thrift.TException {
+    org.apache.thrift.protocol.TField schemeField;
+    iprot.readStructBegin();
+    while (true) {
+      schemeField = iprot.readFieldBegin();
+      if (schemeField.type == org.apache.thrift.protocol.TType.STOP) {
+        break;
+      }
+      switch (schemeField.id) {
+        case 1: // FLAG
+          if (schemeField.type == org.apache.thrift.protocol.TType.BOOL) {
+            this.flag = iprot.readBool();
+            setFlagIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 2: // TINY
+          if (schemeField.type == org.apache.thrift.protocol.TType.BYTE) {
+            this.tiny = iprot.readByte();
+            setTinyIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 3: // SMALL
+          if (schemeField.type == org.apache.thrift.protocol.TType.I16) {
+            this.small = iprot.readI16();
+            setSmallIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 4: // MEDIUM
+          if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+            this.medium = iprot.readI32();
+            setMediumIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 5: // LARGE
+          if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+            this.large = iprot.readI64();
+            setLargeIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 6: // REAL
+          if (schemeField.type == org.apache.thrift.protocol.TType.DOUBLE) {
+            this.real = iprot.readDouble();
+            setRealIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 7: // TEXT
+          if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+            this.text = iprot.readString();
+            setTextIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 8: // BLOB
+          if (schemeField.type == org.apache.thrift.protocol.TType.STRING) {
+            this.blob = iprot.readBinary();
+            setBlobIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 9: // COLOR
+          if (schemeField.type == org.apache.thrift.protocol.TType.I32) {
+            this.color = org.example.shared.Color.findByValue(iprot.readI32());
+            setColorIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 10: // NESTED
+          if (schemeField.type == org.apache.thrift.protocol.TType.STRUCT) {
+            this.nested = new org.example.shared.SharedStruct();
+            this.nested.read(iprot);
+            setNestedIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 11: // NUMBERS
+          if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+            {
+              org.apache.thrift.protocol.TList _list14 = iprot.readListBegin();
+              this.numbers = new java.util.ArrayList<Integer>(_list14.size);
+              for (int _i15 = 0; _i15 < _list14.size; ++_i15) {
+                int _elem16;
+                _elem16 = iprot.readI32();
+                this.numbers.add(_elem16);
+              }
+              iprot.readListEnd();
+            }
+            setNumbersIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 12: // TAGS
+          if (schemeField.type == org.apache.thrift.protocol.TType.SET) {
+            {
+              org.apache.thrift.protocol.TSet _set17 = iprot.readSetBegin();
+              this.tags = new java.util.HashSet<String>(2*_set17.size);
+              for (int _i18 = 0; _i18 < _set17.size; ++_i18) {
+                String _elem19;
+                _elem19 = iprot.readString();
+                this.tags.add(_elem19);
+              }
+              iprot.readSetEnd();
+            }
+            setTagsIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 13: // INDEX
+          if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+            {
+              org.apache.thrift.protocol.TMap _map20 = iprot.readMapBegin();
+              this.index = new java.util.HashMap<String,java.util.List<org.example.shared.SharedStruct>>(2*_map20.size);
+              for (int _i21 = 0; _i21 < _map20.size; ++_i21) {
+                String _key22;
+                java.util.List<org.example.shared.SharedStruct> _val23;
+                _key22 = iprot.readString();
+                {
+                  org.apache.thrift.protocol.TList _list24 = iprot.readListBegin();
+                  _val23 = new java.util.ArrayList<org.example.shared.SharedStruct>(_list24.size);
+                  for (int _i25 = 0; _i25 < _list24.size; ++_i25) {
+                    org.example.shared.SharedStruct _elem26;
+                    _elem26 = new org.example.shared.SharedStruct();
+                    _elem26.read(iprot);
+                    _val23.add(_elem26);
+                  }
+                  iprot.readListEnd();
+                }
+                this.index.put(_key22, _val23);
+              }
+              iprot.readMapEnd();
+            }
+            setIndexIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 14: // SHARED
+          if (schemeField.type == org.apache.thrift.protocol.TType.LIST) {
+            {
+              org.apache.thrift.protocol.TList _list27 = iprot.readListBegin();
+              this.shared = new java.util.ArrayList<org.example.shared.SharedStruct>(_list27.size);
+              for (int _i28 = 0; _i28 < _list27.size; ++_i28) {
+                org.example.shared.SharedStruct _elem29;
+                _elem29 = new org.example.shared.SharedStruct();
+                _elem29.read(iprot);
+                this.shared.add(_elem29);
+              }
+              iprot.readListEnd();
+            }
+            setSharedIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 15: // WHEN
+          if (schemeField.type == org.apache.thrift.protocol.TType.I64) {
+            this.when = iprot.readI64();
+            setWhenIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        case 16: // PALETTE
+          if (schemeField.type == org.apache.thrift.protocol.TType.MAP) {
+            {
+              org.apache.thrift.protocol.TMap _map30 = iprot.readMapBegin();
+              this.palette = new java.util.HashMap<org.example.shared.Color,java.util.Set<java.nio.ByteBuffer>>(2*_map30.size);
+              for (int _i31 = 0; _i31 < _map30.size; ++_i31) {
+                org.example.shared.Color _key32;
+                java.util.Set<java.nio.ByteBuffer> _val33;
+                _key32 = org.example.shared.Color.findByValue(iprot.readI32());
+                {
+                  org.apache.thrift.protocol.TSet _set34 = iprot.readSetBegin();
+                  _val33 = new java.util.HashSet<java.nio.ByteBuffer>(2*_set34.size);
+                  for (int _i35 = 0; _i35 < _set34.size; ++_i35) {
+                    java.nio.ByteBuffer _elem36;
+                    _elem36 = iprot.readBinary();
+                    _val33.add(_elem36);
+                  }
+                  iprot.readSetEnd();
+                }
+                this.palette.put(_key32, _val33);
+              }
+              iprot.readMapEnd();
+            }
+            setPaletteIsSet(true);
+          } else {
+            org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+          }
+          break;
+        default:
+          org.apache.thrift.protocol.TProtocolUtil.skip(iprot, schemeField.type);
+      }
+      iprot.readFieldEnd();
+    }
+    iprot.readStructEnd();
+
+    // check for required fields of primitive type, which can't be checked in the validate method
+    if (!isSetFlag()) {
+      throw new org.apache.thrift.protocol.TProtocolException("Required field 'flag' was not found in serialized data! Struct: " + toString());
+    }
+    validate();
+  }
+
+  public void write(org.apache.thrift.protocol.TProtocol oprot) throws org.apache.thrift.TException {
+    validate();
+
+    oprot.writeStructBegin(STRUCT_DESC);
+    oprot.writeFieldBegin(FLAG_FIELD_DESC);
+    oprot.writeBool(this.flag);
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(TINY_FIELD_DESC);
+    oprot.writeByte(this.tiny);
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(SMALL_FIELD_DESC);
+    oprot.writeI16(this.small);
+    oprot.writeFieldEnd();
+    if (isSetMedium()) {
+      oprot.writeFieldBegin(MEDIUM_FIELD_DESC);
+      oprot.writeI32(this.medium);
+      oprot.writeFieldEnd();
+    }
+    oprot.writeFieldBegin(LARGE_FIELD_DESC);
+    oprot.writeI64(this.large);
+    oprot.writeFieldEnd();
+    oprot.writeFieldBegin(REAL_FIELD_DESC);
+    oprot.writeDouble(this.real);
+    oprot.writeFieldEnd();
+    if (this.text != null) {
+      oprot.writeFieldBegin(TEXT_FIELD_DESC);
+      oprot.writeString(this.text);
+      oprot.writeFieldEnd();
+    }
+    if (this.blob != null) {
+      oprot.writeFieldBegin(BLOB_FIELD_DESC);
+      oprot.writeBinary(this.blob);
+      oprot.writeFieldEnd();
+    }
+    if (this.color != null) {
+      if (isSetColor()) {
+        oprot.writeFieldBegin(COLOR_FIELD_DESC);
+        oprot.writeI32(this.color.getValue());
+        oprot.writeFieldEnd();
+      }
+    }
+    if (this.nested != null) {
+      oprot.writeFieldBegin(NESTED_FIELD_DESC);
+      this.nested.write(oprot);
+      oprot.writeFieldEnd();
+    }
+    if (this.numbers != null) {
+      oprot.writeFieldBegin(NUMBERS_FIELD_DESC);
+      {
+        oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.I32, this.numbers.size()));
+        for (Integer _iter37 : this.numbers) {
+          oprot.writeI32(_iter37);
+        }
+        oprot.writeListEnd();
+      }
+      oprot.writeFieldEnd();
+    }
+    if (this.tags != null) {
+      oprot.writeFieldBegin(TAGS_FIELD_DESC);
+      {
+        oprot.writeSetBegin(new org.apache.thrift.protocol.TSet(org.apache.thrift.protocol.TType.STRING, this.tags.size()));
+        for (String _iter38 : this.tags) {
+          oprot.writeString(_iter38);
+        }
+        oprot.writeSetEnd();
+      }
+      oprot.writeFieldEnd();
+    }
+    if (this.index != null) {
+      oprot.writeFieldBegin(INDEX_FIELD_DESC);
+      {
+        oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.STRING, org.apache.thrift.protocol.TType.LIST, this.index.size()));
+        for (java.util.Map.Entry<String, java.util.List<org.example.shared.SharedStruct>> _iter39 : this.index.entrySet()) {
+          oprot.writeString(_iter39.getKey());
+          {
+            oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, _iter39.getValue().size()));
+            for (org.example.shared.SharedStruct _iter40 : _iter39.getValue()) {
+              _iter40.write(oprot);
+            }
+            oprot.writeListEnd();
+          }
+        }
+        oprot.writeMapEnd();
+      }
+      oprot.writeFieldEnd();
+    }
+    if (this.shared != null) {
+      oprot.writeFieldBegin(SHARED_FIELD_DESC);
+      {
+        oprot.writeListBegin(new org.apache.thrift.protocol.TList(org.apache.thrift.protocol.TType.STRUCT, this.shared.size()));
+        for (org.example.shared.SharedStruct _iter41 : this.shared) {
+          _iter41.write(oprot);
+        }
+        oprot.writeListEnd();
+      }
+      oprot.writeFieldEnd();
+    }
+    oprot.writeFieldBegin(WHEN_FIELD_DESC);
+    oprot.writeI64(this.when);
+    oprot.writeFieldEnd();
+    if (this.palette != null) {
+      if (isSetPalette()) {
+        oprot.writeFieldBegin(PALETTE_FIELD_DESC);
+        {
+          oprot.writeMapBegin(new org.apache.thrift.protocol.TMap(org.apache.thrift.protocol.TType.I32, org.apache.thrift.protocol.TType.SET, this.palette.size()));
+          for (java.util.Map.Entry<org.example.shared.Color, java.util.Set<java.nio.ByteBuffer>> _iter42 : this.palette.entrySet()) {
+            oprot.writeI32(_iter42.getKey().getValue());
+            {
+              oprot.writeSetBegin(new org.apache.thrift.protocol.TSet(org.apache.thrift.protocol.TType.STRING, _iter42.getValue().size()));
+              for (java.nio.ByteBuffer _iter43 : _iter42.getValue()) {
+                oprot.writeBinary(_iter43);
+              }
+              oprot.writeSetEnd();
+            }
+          }
+          oprot.writeMapEnd();
+        }
+        oprot.writeFieldEnd();
+      }
+    }
+    oprot.writeFieldStop();
+    oprot.writeStructEnd();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("Everything(");
+    boolean first = true;
+
+    if (!first) sb.append(", ");
+    sb.append("flag:");
+    sb.append(this.flag);
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("tiny:");
+    sb.append(this.tiny);
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("small:");
+    sb.append(this.small);
+    first = false;
+
+    if (isSetMedium()) {
+      if (!first) sb.append(", ");
+      sb.append("medium:");
+      sb.append(this.medium);
+      first = false;
+    }
+
+    if (!first) sb.append(", ");
+    sb.append("large:");
+    sb.append(this.large);
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("real:");
+    sb.append(this.real);
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("text:");
+    if (this.text == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.text);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("blob:");
+    if (this.blob == null) {
+      sb.append("null");
+    } else {
+      org.apache.thrift.TBaseHelper.toString(this.blob, sb);
+    }
+    first = false;
+
+    if (isSetColor()) {
+      if (!first) sb.append(", ");
+      sb.append("color:");
+      if (this.color == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.color);
+      }
+      first = false;
+    }
+
+    if (!first) sb.append(", ");
+    sb.append("nested:");
+    if (this.nested == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.nested);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("numbers:");
+    if (this.numbers == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.numbers);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("tags:");
+    if (this.tags == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.tags);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("index:");
+    if (this.index == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.index);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("shared:");
+    if (this.shared == null) {
+      sb.append("null");
+    } else {
+      sb.append(this.shared);
+    }
+    first = false;
+
+    if (!first) sb.append(", ");
+    sb.append("when:");
+    sb.append(this.when);
+    first = false;
+
+    if (isSetPalette()) {
+      if (!first) sb.append(", ");
+      sb.append("palette:");
+      if (this.palette == null) {
+        sb.append("null");
+      } else {
+        sb.append(this.palette);
+      }
+      first = false;
+    }
+    sb.append(")");
+    return sb.toString();
+  }
+
+  public void validate() throws org.apache.thrift.TException {
+    // check for required fields
+    if (text == null) {
+      throw new org.apache.thrift.protocol.TProtocolException("Required field 'text' was not present! Struct: " + toString());
+    }
+    // check for sub-struct validity
+    if (nested != null) {
+      nested.validate();
+    }
+  }
+
+  private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+    try {
+      write(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(out)));
+    } catch (org.apache.thrift.TException te) {
+      throw new java.io.IOException(te);
+    }
+  }
+
+  private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+    try {
+      // it doesn't seem like you should have to do this, but java serialization is wacky, and doesn't call the default constructor.
+      __isset_bit_vector = new java.util.BitSet(7);
+      read(new org.apache.thrift.protocol.TCompactProtocol(new org.apache.thrift.transport.TIOStreamTransport(in)));
+    } catch (org.apache.thrift.TException te) {
+      throw new java.io.IOException(te);
+    }
+  }
+
+}
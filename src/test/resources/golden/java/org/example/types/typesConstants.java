@@ -0,0 +1,40 @@
+/**
+ * Autogenerated by Thrift Compiler (inprocess)
+ *
+ * DO NOT EDIT UNLESS YOU ARE SURE THAT YOU KNOW WHAT YOU ARE DOING
+ *  @generated
+ */
+package org.example.types;
+
+@javax.annotation.Generated(value = "Autogenerated by Thrift Compiler (inprocess)")
+public class typesConstants {
+
+  public static final java.util.List<String> NAMES;
+  static {
+    java.util.List<String> _tmp0 = new java.util.ArrayList<String>();
+    _tmp0.add("a");
+    _tmp0.add("b\"quoted\"");
+    NAMES = _tmp0;
+  }
+
+  public static final java.util.Map<String,Integer> LIMITS;
+  static {
+    java.util.Map<String,Integer> _tmp1 = new java.util.HashMap<String,Integer>();
+    _tmp1.put("max", org.example.shared.sharedConstants.MAX_ITEMS);
+    _tmp1.put("min", 0);
+    LIMITS = _tmp1;
+  }
+
+  public static final java.util.Set<org.example.shared.Color> PRIMARY;
+  static {
+    java.util.Set<org.example.shared.Color> _tmp2 = new java.util.HashSet<org.example.shared.Color>();
+    _tmp2.add(org.example.shared.Color.RED);
+    _tmp2.add(org.example.shared.Color.GREEN);
+    PRIMARY = _tmp2;
+  }
+
+  public static final double RATIO = 1.5e3;
+
+  public static final boolean ENABLED = true;
+
+}